@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Blob utilities
+ */
+public final class BlobUtils {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private BlobUtils() {
+		// avoid instances
+	}
+
+	/**
+	 * Compute the SHA-1 Git assigns to a blob with the content of the given file
+	 *
+	 * @param file
+	 * @return lower case hex SHA-1
+	 * @throws IOException
+	 */
+	public static String sha1(File file) throws IOException {
+		try (InputStream stream = new FileInputStream(file)) {
+			return sha1(stream, file.length());
+		}
+	}
+
+	/**
+	 * Compute the SHA-1 Git assigns to a blob with the content read from the given stream
+	 *
+	 * @param stream stream to read to its end, not closed
+	 * @param length number of bytes the stream provides
+	 * @return lower case hex SHA-1
+	 * @throws IOException
+	 */
+	public static String sha1(InputStream stream, long length) throws IOException {
+		MessageDigest digest = newDigest(length);
+		byte[] buffer = new byte[8192];
+		long total = 0;
+		int read;
+		while ((read = stream.read(buffer)) != -1) {
+			digest.update(buffer, 0, read);
+			total += read;
+		}
+		if (total != length) {
+			throw new IOException("Read " + total + " bytes instead of " + length);
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Compute the SHA-1 Git assigns to a blob with the given content
+	 *
+	 * @param content
+	 * @return lower case hex SHA-1
+	 */
+	public static String sha1(byte[] content) {
+		MessageDigest digest = newDigest(content.length);
+		digest.update(content);
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Convert bytes to lower case hex
+	 *
+	 * @param bytes
+	 * @return hex string
+	 */
+	public static String toHex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+	private static MessageDigest newDigest(long length) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(("blob " + length + "\0").getBytes(StandardCharsets.US_ASCII));
+		return digest;
+	}
+
+	/**
+	 * Detects text content while it is being read: content is text if it is valid UTF-8 and contains no NUL
+	 * characters. Sequences may be split across updates.
+	 */
+	public static class TextDetector {
+
+		private boolean text = true;
+
+		private int remaining;
+
+		private int lower = 0x80;
+
+		private int upper = 0xBF;
+
+		/**
+		 * Check the next bytes of the content
+		 *
+		 * @param bytes
+		 * @param offset
+		 * @param length
+		 */
+		public void update(byte[] bytes, int offset, int length) {
+			for (int i = offset; this.text && i < offset + length; i++) {
+				int value = bytes[i] & 0xff;
+				if (this.remaining > 0) {
+					// Continuation byte, the first one may be restricted to exclude overlong forms and surrogates
+					if (value < this.lower || value > this.upper) {
+						this.text = false;
+					}
+					this.remaining--;
+					this.lower = 0x80;
+					this.upper = 0xBF;
+				} else if (value == 0 || value >= 0x80 && value < 0xC2 || value >= 0xF5) {
+					this.text = false;
+				} else if (value >= 0xF0) {
+					this.remaining = 3;
+					this.lower = value == 0xF0 ? 0x90 : 0x80;
+					this.upper = value == 0xF4 ? 0x8F : 0xBF;
+				} else if (value >= 0xE0) {
+					this.remaining = 2;
+					this.lower = value == 0xE0 ? 0xA0 : 0x80;
+					this.upper = value == 0xED ? 0x9F : 0xBF;
+				} else if (value >= 0xC2) {
+					this.remaining = 1;
+				}
+			}
+		}
+
+		/**
+		 * @return true if all content checked so far is text and ends with a complete character
+		 */
+		public boolean isText() {
+			return this.text && this.remaining == 0;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a directory tree and reports the files changed in bursts of events. Directories created while watching are
+ * registered as they appear.
+ */
+public class DirectoryWatcher implements Closeable {
+
+	private final Path root;
+
+	private final WatchService service;
+
+	private final Map<WatchKey, Path> directories = new HashMap<>();
+
+	/**
+	 * Start watching the given directory and all directories below it
+	 *
+	 * @param root
+	 * @throws IOException
+	 */
+	public DirectoryWatcher(Path root) throws IOException {
+		this.root = root;
+		this.service = root.getFileSystem().newWatchService();
+		register(root, null);
+	}
+
+	/**
+	 * Wait for changes and collect them until no further change happened for the given quiet period
+	 *
+	 * @param quiet milliseconds without events that end a burst
+	 * @return paths of created, modified or deleted files relative to the root using forward slashes
+	 * @throws InterruptedException
+	 * @throws IOException
+	 */
+	public Set<String> take(long quiet) throws InterruptedException, IOException {
+		Set<String> changed = new TreeSet<>();
+		WatchKey key = this.service.take();
+		while (key != null) {
+			process(key, changed);
+			key = this.service.poll(quiet, TimeUnit.MILLISECONDS);
+		}
+		return changed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.service.close();
+	}
+
+	private void process(WatchKey key, Set<String> changed) throws IOException {
+		Path directory = this.directories.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW || directory == null) {
+				// Events were lost, report everything
+				register(this.root, changed);
+				continue;
+			}
+			Path child = directory.resolve((Path) event.context());
+			if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+				// Files may have been created before the directory was registered
+				register(child, changed);
+			} else {
+				changed.add(relativize(child));
+			}
+		}
+		if (!key.reset()) {
+			this.directories.remove(key);
+		}
+	}
+
+	/**
+	 * Register the given directory and all directories below it
+	 *
+	 * @param start
+	 * @param files set to add all files found to, may be null
+	 * @throws IOException
+	 */
+	private void register(Path start, Set<String> files) throws IOException {
+		Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				// Registering a directory again returns its existing key
+				DirectoryWatcher.this.directories.put(
+						dir.register(DirectoryWatcher.this.service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (files != null) {
+					files.add(relativize(file));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private String relativize(Path path) {
+		return this.root.relativize(path).toString().replace(File.separatorChar, '/');
+	}
+}
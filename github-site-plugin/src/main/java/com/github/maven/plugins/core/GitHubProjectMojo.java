@@ -21,11 +21,19 @@
  */
 package com.github.maven.plugins.core;
 
-import java.net.InetSocketAddress;
+import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.PrivateKey;
 import java.text.MessageFormat;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -43,10 +51,11 @@ import org.codehaus.plexus.component.repository.exception.ComponentLookupExcepti
 import org.codehaus.plexus.context.Context;
 import org.codehaus.plexus.context.ContextException;
 import org.codehaus.plexus.personality.plexus.lifecycle.phase.Contextualizable;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.eclipse.egit.github.core.RepositoryId;
 import org.eclipse.egit.github.core.client.GitHubClient;
-import org.eclipse.egit.github.core.client.IGitHubConstants;
 
+import com.github.maven.plugins.core.egit.AppTokenProvider;
 import com.github.maven.plugins.core.egit.GitHubClientEgit;
 import com.google.common.annotations.VisibleForTesting;
 
@@ -56,8 +65,16 @@ import com.google.common.annotations.VisibleForTesting;
  * @author Kevin Sawicki (kevin@github.com)
  */
 public abstract class GitHubProjectMojo extends AbstractMojo implements Contextualizable {
-	private static final String HTTPS = "https".intern();
-	private static final String HTTP = "http".intern();
+	/**
+	 * Proxy selectors by settings and server id, settings are only weakly referenced
+	 */
+	private static final Map<Settings, Map<String, SettingsProxySelector>> PROXY_SELECTORS = new WeakHashMap<>();
+
+	private static final String APP_ID = "appId";
+
+	private static final String INSTALLATION_ID = "installationId";
+
+	private static final String CACHE_TOKEN = "cacheToken";
 
 	@Requirement
 	private PlexusContainer container;
@@ -150,29 +167,18 @@ public abstract class GitHubProjectMojo extends AbstractMojo implements Contextu
 			client = createClient();
 		}
 
-		Proxy proxy = getProxy(settings, serverId, host);
+		SettingsProxySelector proxySelector = getProxySelector(settings, serverId);
+		Proxy proxy = proxySelector.getProxy(host);
 		if (null != proxy) {
-			try {
-				SettingsDecrypter settingsDecrypter = this.container.lookup(SettingsDecrypter.class);
-				SettingsDecryptionResult result = settingsDecrypter
-						.decrypt(new DefaultSettingsDecryptionRequest(proxy));
-				proxy = result.getProxy();
-			} catch (ComponentLookupException cle) {
-				throw new MojoExecutionException("Unable to lookup SettingsDecrypter: " + cle.getMessage(), cle);
-			}
-		}
-
-		if (null != proxy) {
-			java.net.Proxy javaProxy = new java.net.Proxy(java.net.Proxy.Type.HTTP,
-					new InetSocketAddress(proxy.getHost(), proxy.getPort()));
 			if (isDebug()) {
 				debug(MessageFormat.format("Found Proxy {0}:{1}", proxy.getHost(), Integer.valueOf(proxy.getPort())));
 			}
 			if (client instanceof GitHubClientEgit clientEgit) {
 				if (isDebug()) {
-					debug(MessageFormat.format("Use Proxy for Egit {0}", javaProxy));
+					debug(MessageFormat.format("Use Proxy for Egit {0}", proxySelector.select(
+							URI.create(clientEgit.getBaseUri())).get(0)));
 				}
-				clientEgit.setProxy(javaProxy);
+				clientEgit.setProxySelector(proxySelector, proxySelector.getCredentials());
 			}
 		}
 
@@ -306,6 +312,11 @@ public abstract class GitHubProjectMojo extends AbstractMojo implements Contextu
 			throw new MojoExecutionException("Unable to lookup SettingsDecrypter: " + cle.getMessage(), cle);
 		}
 
+		if (server.getConfiguration() instanceof Xpp3Dom configuration && configuration.getChild(APP_ID) != null) {
+			configureAppCredentials(client, server, configuration);
+			return true;
+		}
+
 		serverUsername = server.getUsername();
 		serverPassword = server.getPassword();
 
@@ -332,8 +343,50 @@ public abstract class GitHubProjectMojo extends AbstractMojo implements Contextu
 		return false;
 	}
 
+	/**
+	 * Configure client with installation tokens of the GitHub App configured on the given server
+	 *
+	 * @param client
+	 * @param server        decrypted server
+	 * @param configuration configuration of the server
+	 * @throws MojoExecutionException
+	 */
+	private void configureAppCredentials(GitHubClient client, Server server, Xpp3Dom configuration)
+			throws MojoExecutionException {
+		String appId = getValue(configuration, APP_ID);
+		String installationId = getValue(configuration, INSTALLATION_ID);
+		if (StringUtils.isEmpty(appId, installationId, server.getPrivateKey())) {
+			throw new MojoExecutionException(MessageFormat.format(
+					"Server ''{0}'' needs an appId, an installationId and a privateKey to authenticate as GitHub App",
+					server.getId()));
+		}
+		if (!(client instanceof GitHubClientEgit clientEgit)) {
+			throw new MojoExecutionException("GitHub App authentication requires a "
+					+ GitHubClientEgit.class.getSimpleName());
+		}
+		if (isDebug()) {
+			debug(MessageFormat.format("Using installation {0} of GitHub App {1}", installationId, appId));
+		}
+		File cacheDirectory = null;
+		if (Boolean.parseBoolean(getValue(configuration, CACHE_TOKEN))) {
+			cacheDirectory = new File(System.getProperty("user.home"), ".m2/github-app-tokens");
+		}
+		try {
+			PrivateKey privateKey = AppTokenProvider.readPrivateKey(
+					new String(Files.readAllBytes(new File(server.getPrivateKey()).toPath()), StandardCharsets.UTF_8));
+			clientEgit.setAppTokens(new AppTokenProvider(appId, installationId, privateKey, cacheDirectory));
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error creating installation token: " + e.getMessage(), e);
+		}
+	}
+
 	// static helpers
 
+	private static String getValue(Xpp3Dom configuration, String name) {
+		Xpp3Dom child = configuration.getChild(name);
+		return child != null && child.getValue() != null ? child.getValue().trim() : null;
+	}
+
 	/**
 	 * Get server with given id
 	 *
@@ -366,46 +419,7 @@ public abstract class GitHubProjectMojo extends AbstractMojo implements Contextu
 	 */
 	@VisibleForTesting
 	static boolean matchNonProxy(Proxy proxy, String hostname) {
-		String host = hostname;
-
-		if (null == hostname) {
-			host = IGitHubConstants.HOST_DEFAULT;
-		}
-
-		// code from org.apache.maven.plugins.site.AbstractDeployMojo#getProxyInfo
-		String nonProxyHosts = proxy.getNonProxyHosts();
-		if (null != nonProxyHosts) {
-			String[] nonProxies = nonProxyHosts.split("(,)|(;)|(\\|)");
-			if (null != nonProxies) {
-				for (String nonProxyHost : nonProxies) {
-					if (null != nonProxyHost && nonProxyHost.contains("*")) {
-						// Handle wildcard at the end, beginning or middle of the nonProxyHost
-						int pos = nonProxyHost.indexOf('*');
-						String nonProxyHostPrefix = nonProxyHost.substring(0, pos);
-						String nonProxyHostSuffix = nonProxyHost.substring(pos + 1);
-						// prefix*
-						if (!StringUtils.isEmpty(nonProxyHostPrefix) && host.startsWith(nonProxyHostPrefix)
-								&& StringUtils.isEmpty(nonProxyHostSuffix)) {
-							return true;
-						}
-						// *suffix
-						if (StringUtils.isEmpty(nonProxyHostPrefix) && !StringUtils.isEmpty(nonProxyHostSuffix)
-								&& host.endsWith(nonProxyHostSuffix)) {
-							return true;
-						}
-						// prefix*suffix
-						if (!StringUtils.isEmpty(nonProxyHostPrefix) && host.startsWith(nonProxyHostPrefix)
-								&& !StringUtils.isEmpty(nonProxyHostSuffix) && host.endsWith(nonProxyHostSuffix)) {
-							return true;
-						}
-					} else if (host.equals(nonProxyHost)) {
-						return true;
-					}
-				}
-			}
-		}
-
-		return false;
+		return new SettingsProxySelector(proxy).isNonProxyHost(hostname);
 	}
 
 	/**
@@ -421,37 +435,43 @@ public abstract class GitHubProjectMojo extends AbstractMojo implements Contextu
 		if (settings == null) {
 			return null;
 		}
-		List<Proxy> proxies = settings.getProxies();
-		if (proxies == null || proxies.isEmpty()) {
-			return null;
+		return new SettingsProxySelector(SettingsProxySelector.choose(settings.getProxies(), serverId)).getProxy(host);
+	}
+
+	/**
+	 * Get the proxy selector of the given settings and server, choosing and decrypting the proxy only once per
+	 * settings and server
+	 *
+	 * @param settings may be null
+	 * @param serverId may be null
+	 * @return selector
+	 * @throws MojoExecutionException
+	 */
+	private SettingsProxySelector getProxySelector(Settings settings, String serverId) throws MojoExecutionException {
+		if (settings == null) {
+			return new SettingsProxySelector(null);
 		}
-		// search id match first
-		if (serverId != null && !serverId.isEmpty()) {
-			for (Proxy proxy : proxies) {
-				if (proxy.isActive()) {
-					String proxyId = proxy.getId();
-					if (proxyId != null && !proxyId.isEmpty() && proxyId.equalsIgnoreCase(serverId)
-							&& (HTTP.equalsIgnoreCase(proxy.getProtocol())
-									|| HTTPS.equalsIgnoreCase(proxy.getProtocol()))) {
-						if (matchNonProxy(proxy, host)) {
-							return null;
-						}
-						return proxy;
+		synchronized (PROXY_SELECTORS) {
+			Map<String, SettingsProxySelector> selectors = PROXY_SELECTORS.computeIfAbsent(settings,
+					key -> new HashMap<>());
+			SettingsProxySelector selector = selectors.get(String.valueOf(serverId));
+			if (selector == null) {
+				Proxy proxy = SettingsProxySelector.choose(settings.getProxies(), serverId);
+				if (null != proxy) {
+					try {
+						SettingsDecrypter settingsDecrypter = this.container.lookup(SettingsDecrypter.class);
+						SettingsDecryptionResult result = settingsDecrypter
+								.decrypt(new DefaultSettingsDecryptionRequest(proxy));
+						proxy = result.getProxy();
+					} catch (ComponentLookupException cle) {
+						throw new MojoExecutionException("Unable to lookup SettingsDecrypter: " + cle.getMessage(),
+								cle);
 					}
 				}
+				selector = new SettingsProxySelector(proxy);
+				selectors.put(String.valueOf(serverId), selector);
 			}
+			return selector;
 		}
-
-		// search active proxy
-		for (Proxy proxy : proxies) {
-			if (proxy.isActive()
-					&& (HTTP.equalsIgnoreCase(proxy.getProtocol()) || HTTPS.equalsIgnoreCase(proxy.getProtocol()))) {
-				if (matchNonProxy(proxy, host)) {
-					return null;
-				}
-				return proxy;
-			}
-		}
-		return null;
 	}
 }
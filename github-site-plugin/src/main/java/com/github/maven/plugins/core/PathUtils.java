@@ -21,7 +21,10 @@
  */
 package com.github.maven.plugins.core;
 
+import java.io.File;
+
 import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.SelectorUtils;
 
 /**
  * Path utilities
@@ -54,4 +57,49 @@ public final class PathUtils {
 		scanner.scan();
 		return scanner.getIncludedFiles();
 	}
+
+	/**
+	 * Does the given path match the includes and excludes the same way
+	 * {@link #getMatchingPaths(String[], String[], String)} does?
+	 *
+	 * @param includes
+	 * @param excludes
+	 * @param path     path relative to the base directory
+	 * @return true if included and not excluded, false otherwise
+	 */
+	public static boolean isMatchingPath(String[] includes, String[] excludes, String path) {
+		String name = path.replace('/', File.separatorChar);
+		boolean included = includes == null || includes.length == 0;
+		if (!included) {
+			for (String include : includes) {
+				if (SelectorUtils.matchPath(normalizePattern(include), name)) {
+					included = true;
+					break;
+				}
+			}
+		}
+		if (included && excludes != null) {
+			for (String exclude : excludes) {
+				if (SelectorUtils.matchPath(normalizePattern(exclude), name)) {
+					return false;
+				}
+			}
+		}
+		return included;
+	}
+
+	/**
+	 * Normalize a pattern like {@link DirectoryScanner} does: use the platform separator and match everything below
+	 * a trailing separator
+	 *
+	 * @param pattern
+	 * @return normalized pattern
+	 */
+	private static String normalizePattern(String pattern) {
+		String normalized = pattern.trim().replace('/', File.separatorChar).replace('\\', File.separatorChar);
+		if (normalized.endsWith(File.separator)) {
+			normalized += "**";
+		}
+		return normalized;
+	}
 }
@@ -3,9 +3,12 @@ package com.github.maven.plugins.core;
 import static java.lang.Math.max;
 import static java.lang.System.currentTimeMillis;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 
+import org.eclipse.egit.github.core.client.GitHubClient;
+
 import com.github.maven.plugins.core.egit.GitHubClientEgit;
 import com.google.common.util.concurrent.RateLimiter;
 
@@ -13,6 +16,8 @@ public class RateLimitedGitHubClient extends GitHubClientEgit {
 
 	private volatile RateLimiter rateLimiter; // NOSONAR
 
+	private volatile SharedRateLimit sharedLimit; // NOSONAR
+
 	public RateLimitedGitHubClient() {
 		super();
 	}
@@ -25,18 +30,57 @@ public class RateLimitedGitHubClient extends GitHubClientEgit {
 		super(hostname, port, scheme);
 	}
 
+	/**
+	 * Share the rate limit with all JVMs on this machine using the same host and credentials, so that concurrent
+	 * builds draw from one budget. Must be called once the credentials are configured.
+	 *
+	 * @param directory directory holding the shared state
+	 * @return this client
+	 * @throws IOException
+	 */
+	public RateLimitedGitHubClient shareRateLimit(File directory) throws IOException {
+		String key = String.join("\n", getBaseUri(), String.valueOf(getUser()), String.valueOf(getPassword()),
+				String.valueOf(getOAuth2Token()));
+		this.sharedLimit = SharedRateLimit.open(directory, key);
+		return this;
+	}
+
 	@Override
 	protected HttpURLConnection createPost(String uri) throws IOException {
-		rateLimiter().acquire();
+		acquire();
 		return super.createPost(uri);
 	}
 
 	@Override
 	protected HttpURLConnection createPut(String uri) throws IOException {
-		rateLimiter().acquire();
+		acquire();
 		return super.createPut(uri);
 	}
 
+	@Override
+	protected GitHubClient updateRateLimits(HttpURLConnection request) {
+		super.updateRateLimits(request);
+		SharedRateLimit shared = this.sharedLimit;
+		if (shared != null) {
+			try {
+				observe(shared, request);
+			} catch (IOException e) {
+				// The limit is only advisory, the response must not fail because of it
+			}
+		}
+		return this;
+	}
+
+	private void acquire() throws IOException {
+		RateLimiter limiter = rateLimiter();
+		SharedRateLimit shared = this.sharedLimit;
+		if (shared != null) {
+			shared.acquire(limiter.getRate());
+		} else {
+			limiter.acquire();
+		}
+	}
+
 	private RateLimiter rateLimiter() {
 		if (this.rateLimiter != null) {
 			return this.rateLimiter;
@@ -60,6 +104,11 @@ public class RateLimitedGitHubClient extends GitHubClientEgit {
 			int reset = connection.getHeaderFieldInt("X-RateLimit-Reset", -1);
 			int now = (int) (currentTimeMillis() / 1000);
 
+			SharedRateLimit shared = this.sharedLimit;
+			if (shared != null) {
+				observe(shared, connection);
+			}
+
 			// Calculate the sustained request rate until the limits are reset.
 			this.rateLimiter = RateLimiter.create((double) remaining / max(reset - now, 1));
 			return this.rateLimiter;
@@ -76,4 +125,9 @@ public class RateLimitedGitHubClient extends GitHubClientEgit {
 			}
 		}
 	}
+
+	private static void observe(SharedRateLimit shared, HttpURLConnection connection) throws IOException {
+		shared.observe(connection.getHeaderFieldLong("X-RateLimit-Remaining", -1),
+				connection.getHeaderFieldLong("X-RateLimit-Reset", -1));
+	}
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.settings.Proxy;
+import org.eclipse.egit.github.core.client.IGitHubConstants;
+
+/**
+ * {@link ProxySelector} for the HTTP proxy configured in the Maven settings. The non proxy hosts are compiled once and
+ * the decision for every host is cached, so selecting the proxy of a connection is a single map lookup.
+ */
+public class SettingsProxySelector extends ProxySelector {
+
+	private static final String HTTP = "http";
+
+	private static final String HTTPS = "https";
+
+	private final Proxy proxy;
+
+	private final java.net.Proxy address;
+
+	private final Set<String> nonProxyHosts = new HashSet<>();
+
+	private final List<String[]> nonProxyWildcards = new ArrayList<>();
+
+	private final Map<String, java.net.Proxy> selected = new ConcurrentHashMap<>();
+
+	/**
+	 * Create selector for the given proxy
+	 *
+	 * @param proxy Maven proxy, null to always connect directly
+	 */
+	public SettingsProxySelector(Proxy proxy) {
+		this.proxy = proxy;
+		if (proxy == null) {
+			this.address = null;
+			return;
+		}
+		this.address = new java.net.Proxy(java.net.Proxy.Type.HTTP,
+				InetSocketAddress.createUnresolved(proxy.getHost(), proxy.getPort()));
+		String hosts = proxy.getNonProxyHosts();
+		if (hosts == null) {
+			return;
+		}
+		// code from org.apache.maven.plugins.site.AbstractDeployMojo#getProxyInfo
+		for (String host : hosts.split("[,;|]")) {
+			host = host.trim();
+			int pos = host.indexOf('*');
+			if (pos == -1) {
+				this.nonProxyHosts.add(host);
+				continue;
+			}
+			// Handle wildcard at the end, beginning or middle of the host
+			String prefix = host.substring(0, pos);
+			String suffix = host.substring(pos + 1);
+			if (!prefix.isEmpty() || !suffix.isEmpty()) {
+				this.nonProxyWildcards.add(new String[] { prefix, suffix });
+			}
+		}
+	}
+
+	/**
+	 * Get the Maven proxy used for the given host
+	 *
+	 * @param host hostname, null for the default GitHub host
+	 * @return proxy or null if connecting directly
+	 */
+	public Proxy getProxy(String host) {
+		return getAddress(host) != java.net.Proxy.NO_PROXY ? this.proxy : null;
+	}
+
+	/**
+	 * Does the host match the non proxy hosts of the proxy?
+	 *
+	 * @param host hostname, null for the default GitHub host
+	 * @return true if connecting directly, false otherwise
+	 */
+	public boolean isNonProxyHost(String host) {
+		String name = host != null ? host : IGitHubConstants.HOST_DEFAULT;
+		if (this.nonProxyHosts.contains(name)) {
+			return true;
+		}
+		for (String[] wildcard : this.nonProxyWildcards) {
+			if (name.length() >= wildcard[0].length() + wildcard[1].length() && name.startsWith(wildcard[0])
+					&& name.endsWith(wildcard[1])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the credentials of the proxy
+	 *
+	 * @return credentials or null if the proxy doesn't require authentication
+	 */
+	public PasswordAuthentication getCredentials() {
+		if (this.proxy == null || StringUtils.isEmpty(this.proxy.getUsername())) {
+			return null;
+		}
+		String password = this.proxy.getPassword();
+		return new PasswordAuthentication(this.proxy.getUsername(),
+				password != null ? password.toCharArray() : new char[0]);
+	}
+
+	@Override
+	public List<java.net.Proxy> select(URI uri) {
+		if (uri == null) {
+			throw new IllegalArgumentException("URI must not be null");
+		}
+		return Collections.singletonList(getAddress(uri.getHost()));
+	}
+
+	@Override
+	public void connectFailed(URI uri, SocketAddress address, IOException e) {
+		// There is no other proxy to fall back to
+	}
+
+	private java.net.Proxy getAddress(String host) {
+		if (this.address == null) {
+			return java.net.Proxy.NO_PROXY;
+		}
+		String name = host != null ? host : IGitHubConstants.HOST_DEFAULT;
+		return this.selected.computeIfAbsent(name, key -> isNonProxyHost(key) ? java.net.Proxy.NO_PROXY : this.address);
+	}
+
+	// static helpers
+
+	/**
+	 * Choose the proxy of the given server: the active HTTP proxy with the server's id or else the first active HTTP
+	 * proxy
+	 *
+	 * @param proxies  proxies of the settings, may be null
+	 * @param serverId may be null
+	 * @return proxy or null if none configured
+	 */
+	public static Proxy choose(List<Proxy> proxies, String serverId) {
+		if (proxies == null || proxies.isEmpty()) {
+			return null;
+		}
+		if (!StringUtils.isEmpty(serverId)) {
+			for (Proxy proxy : proxies) {
+				if (isHttp(proxy) && serverId.equalsIgnoreCase(proxy.getId())) {
+					return proxy;
+				}
+			}
+		}
+		for (Proxy proxy : proxies) {
+			if (isHttp(proxy)) {
+				return proxy;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isHttp(Proxy proxy) {
+		return proxy.isActive() && (HTTP.equalsIgnoreCase(proxy.getProtocol())
+				|| HTTPS.equalsIgnoreCase(proxy.getProtocol()));
+	}
+}
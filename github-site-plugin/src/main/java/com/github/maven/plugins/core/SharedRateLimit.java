@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket shared by all JVMs on a machine that use the same host and credentials. Its state is a small memory
+ * mapped file, updated while holding a lock on it: the time the next request may be sent and the remaining requests
+ * and reset time last reported by GitHub. Requests are spread evenly over the time left until the reset, and when no
+ * requests remain they wait for the reset.
+ */
+public final class SharedRateLimit {
+
+	private static final int MAGIC = 0x47485254;
+
+	private static final int SIZE = 32;
+
+	private static final int NEXT_FREE = 8;
+
+	private static final int REMAINING = 16;
+
+	private static final int RESET = 24;
+
+	private static final long MICROS = 1000000;
+
+	private static final Map<File, SharedRateLimit> LIMITS = new HashMap<>();
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer state;
+
+	/**
+	 * Map state file
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	SharedRateLimit(File file) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), CREATE, READ, WRITE);
+		this.state = this.channel.map(READ_WRITE, 0, SIZE);
+	}
+
+	/**
+	 * Get the limit shared under the given key. The state file stays mapped until the JVM exits, all callers in one
+	 * JVM get the same instance.
+	 *
+	 * @param directory directory holding the state files
+	 * @param key       identifies host and credentials, only a hash of it is written to disk
+	 * @return limit
+	 * @throws IOException
+	 */
+	public static SharedRateLimit open(File directory, String key) throws IOException {
+		Files.createDirectories(directory.toPath());
+		File file = new File(directory, BlobUtils.toHex(sha256(key)) + ".limit");
+		synchronized (LIMITS) {
+			SharedRateLimit limit = LIMITS.get(file);
+			if (limit == null) {
+				limit = new SharedRateLimit(file);
+				LIMITS.put(file, limit);
+			}
+			return limit;
+		}
+	}
+
+	/**
+	 * Wait until the next request may be sent
+	 *
+	 * @param defaultRate requests per second used while GitHub's limit is unknown
+	 * @throws IOException
+	 */
+	public void acquire(double defaultRate) throws IOException {
+		long wait;
+		synchronized (this) {
+			try (FileLock lock = this.channel.lock(0, SIZE, false)) {
+				wait = reserve(System.currentTimeMillis() * 1000, defaultRate);
+			}
+		}
+		if (wait > 0) {
+			try {
+				TimeUnit.MICROSECONDS.sleep(wait);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for rate limit");
+			}
+		}
+	}
+
+	/**
+	 * Record the rate limit reported by GitHub, keeping the lowest number of remaining requests reported for the
+	 * current window
+	 *
+	 * @param remaining value of the X-RateLimit-Remaining header
+	 * @param reset     value of the X-RateLimit-Reset header, in seconds since the epoch
+	 * @throws IOException
+	 */
+	public void observe(long remaining, long reset) throws IOException {
+		if (remaining < 0 || reset <= 0) {
+			return;
+		}
+		synchronized (this) {
+			try (FileLock lock = this.channel.lock(0, SIZE, false)) {
+				merge(remaining, reset);
+			}
+		}
+	}
+
+	/**
+	 * Reserve the next free slot, the caller must hold the lock
+	 *
+	 * @param now         current time in microseconds since the epoch
+	 * @param defaultRate requests per second used while GitHub's limit is unknown
+	 * @return microseconds to wait before sending the request
+	 */
+	long reserve(long now, double defaultRate) {
+		initialize();
+		long slot = Math.max(now, this.state.getLong(NEXT_FREE));
+		long remaining = this.state.getLong(REMAINING);
+		long reset = this.state.getLong(RESET) * MICROS;
+		double rate = defaultRate;
+		if (reset > now) {
+			if (remaining > 0) {
+				rate = remaining / Math.max((double) (reset - now) / MICROS, 1);
+				// Count the request until GitHub reports the remaining requests again
+				this.state.putLong(REMAINING, remaining - 1);
+			} else {
+				slot = Math.max(slot, reset);
+			}
+		}
+		this.state.putLong(NEXT_FREE, slot + (long) (MICROS / rate));
+		return slot - now;
+	}
+
+	/**
+	 * Merge a reported rate limit into the state, the caller must hold the lock
+	 *
+	 * @param remaining
+	 * @param reset
+	 */
+	void merge(long remaining, long reset) {
+		initialize();
+		long current = this.state.getLong(RESET);
+		if (reset > current || reset == current && remaining < this.state.getLong(REMAINING)) {
+			this.state.putLong(REMAINING, remaining);
+			this.state.putLong(RESET, reset);
+		}
+	}
+
+	private void initialize() {
+		if (this.state.getInt(0) != MAGIC) {
+			for (int i = 0; i < SIZE; i += 8) {
+				this.state.putLong(i, 0);
+			}
+			this.state.putInt(0, MAGIC);
+		}
+	}
+
+	// static helpers
+
+	private static byte[] sha256(String key) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writer of gzip compressed tar archives in the POSIX ustar format. Names that don't fit into the ustar header are
+ * written as pax extended headers. File contents are copied with {@link FileChannel#transferTo(long, long,
+ * WritableByteChannel)} so they are never buffered as a whole.
+ */
+public class TarGzWriter implements Closeable {
+
+	private static final int BLOCK_SIZE = 512;
+
+	private static final int NAME_LENGTH = 100;
+
+	private static final int PREFIX_LENGTH = 155;
+
+	private static final byte TYPE_FILE = '0';
+
+	private static final byte TYPE_PAX = 'x';
+
+	private final OutputStream output;
+
+	private final WritableByteChannel channel;
+
+	/**
+	 * Create writer for the given archive file
+	 *
+	 * @param archive
+	 * @throws IOException
+	 */
+	public TarGzWriter(File archive) throws IOException {
+		this.output = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(archive), 65536), 65536);
+		this.channel = Channels.newChannel(this.output);
+	}
+
+	/**
+	 * Add file with the given name to the archive
+	 *
+	 * @param name path of the entry, using forward slashes
+	 * @param file
+	 * @throws IOException
+	 */
+	public void addFile(String name, File file) throws IOException {
+		try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = source.size();
+			writeHeader(name, size, file.lastModified() / 1000);
+			long position = 0;
+			while (position < size) {
+				position += source.transferTo(position, size - position, this.channel);
+			}
+			pad(size);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		// An archive ends with two empty blocks
+		this.output.write(new byte[BLOCK_SIZE * 2]);
+		this.output.close();
+	}
+
+	private void writeHeader(String name, long size, long modified) throws IOException {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		int split = split(bytes);
+		if (split < 0) {
+			writePaxHeader(name, modified);
+			bytes = truncate(bytes, NAME_LENGTH);
+			split = 0;
+		}
+
+		byte[] header = new byte[BLOCK_SIZE];
+		if (split > 0) {
+			System.arraycopy(bytes, split + 1, header, 0, bytes.length - split - 1);
+			System.arraycopy(bytes, 0, header, 345, split);
+		} else {
+			System.arraycopy(bytes, 0, header, 0, bytes.length);
+		}
+		writeHeader(header, TYPE_FILE, size, modified);
+	}
+
+	private void writePaxHeader(String name, long modified) throws IOException {
+		String record = " path=" + name + "\n";
+		int length = record.getBytes(StandardCharsets.UTF_8).length;
+		// The length prefix counts its own digits
+		int total = length + Integer.toString(length).length();
+		if (Integer.toString(total).length() != Integer.toString(length).length()) {
+			total++;
+		}
+		byte[] content = (total + record).getBytes(StandardCharsets.UTF_8);
+
+		byte[] header = new byte[BLOCK_SIZE];
+		byte[] paxName = "././@PaxHeader".getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(paxName, 0, header, 0, paxName.length);
+		writeHeader(header, TYPE_PAX, content.length, modified);
+		this.output.write(content);
+		pad(content.length);
+	}
+
+	private void writeHeader(byte[] header, byte type, long size, long modified) throws IOException {
+		octal(header, 100, 8, 0644);
+		octal(header, 108, 8, 0);
+		octal(header, 116, 8, 0);
+		octal(header, 124, 12, size);
+		octal(header, 136, 12, modified);
+		header[156] = type;
+		byte[] magic = "ustar\00000".getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(magic, 0, header, 257, magic.length);
+
+		// The checksum is computed with the checksum field set to spaces
+		for (int i = 148; i < 156; i++) {
+			header[i] = ' ';
+		}
+		long checksum = 0;
+		for (byte b : header) {
+			checksum += b & 0xff;
+		}
+		octal(header, 148, 7, checksum);
+		this.output.write(header);
+	}
+
+	private void pad(long size) throws IOException {
+		int remainder = (int) (size % BLOCK_SIZE);
+		if (remainder > 0) {
+			this.output.write(new byte[BLOCK_SIZE - remainder]);
+		}
+	}
+
+	// static helpers
+
+	/**
+	 * Find where to split the given name into ustar prefix and name
+	 *
+	 * @param name
+	 * @return 0 if the name fits as is, index of the separating slash, or -1 if the name doesn't fit at all
+	 */
+	private static int split(byte[] name) {
+		if (name.length <= NAME_LENGTH) {
+			return 0;
+		}
+		for (int i = Math.min(name.length - 2, PREFIX_LENGTH); i > 0; i--) {
+			if (name[i] == '/' && name.length - i - 1 <= NAME_LENGTH) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static byte[] truncate(byte[] bytes, int length) {
+		byte[] truncated = new byte[length];
+		System.arraycopy(bytes, 0, truncated, 0, length);
+		return truncated;
+	}
+
+	private static void octal(byte[] header, int offset, int length, long value) {
+		String digits = Long.toOctalString(value);
+		int start = offset + length - 1 - digits.length();
+		for (int i = offset; i < start; i++) {
+			header[i] = '0';
+		}
+		byte[] bytes = digits.getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(bytes, 0, header, start, bytes.length);
+		header[offset + length - 1] = 0;
+	}
+}
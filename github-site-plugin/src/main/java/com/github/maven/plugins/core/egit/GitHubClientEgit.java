@@ -21,12 +21,44 @@
  */
 package com.github.maven.plugins.core.egit;
 
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_BLOBS;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_GIT;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_TREES;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.Authenticator;
 import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
 import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.net.ssl.HttpsURLConnection;
 
+import org.eclipse.egit.github.core.Blob;
 import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
 
 /**
  * GitHubClient support proxy
@@ -35,8 +67,48 @@ import org.eclipse.egit.github.core.client.GitHubClient;
  */
 public class GitHubClientEgit extends GitHubClient {
 
+	private static final Gson JSON_ELEMENTS = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+
+	private static final String ENCODING_GZIP = "gzip";
+
+	private static final String PROBE_URI = "/markdown";
+
+	private static final String PROBE_TEXT = "gzip-probe";
+
+	/**
+	 * Whether compressed request bodies are accepted, by base URI
+	 */
+	private static final Map<String, Boolean> GZIP_HOSTS = new ConcurrentHashMap<>();
+
+	private boolean compressRequests;
+
 	private Proxy proxy;
 
+	private ProxySelector proxySelector;
+
+	private PasswordAuthentication proxyCredentials;
+
+	private String proxyAuthorization;
+
+	/**
+	 * Socket factories by proxy, shared so that tunneled connections are kept alive and reused
+	 */
+	private final Map<InetSocketAddress, TunnelSocketFactory> tunnels = new ConcurrentHashMap<>();
+
+	private String password;
+
+	private String oauth2Token;
+
+	private AppTokenProvider appTokens;
+
+	private final Map<Operation, int[]> timeouts = new EnumMap<>(Operation.class);
+
+	private final RequestHedger hedger = new RequestHedger();
+
+	private Gson requestGson;
+
+	private Gson requestGsonSource;
+
 	public GitHubClientEgit() {
 		super();
 	}
@@ -55,13 +127,516 @@ public class GitHubClientEgit extends GitHubClient {
 		return this;
 	}
 
+	/**
+	 * Select the proxy of every connection with the given selector. Proxy credentials are sent preemptively with plain
+	 * HTTP requests and with the CONNECT request opening the tunnel of HTTPS requests.
+	 *
+	 * @param proxySelector
+	 * @param proxyCredentials credentials of the selected proxies, may be null
+	 * @return this client
+	 */
+	public GitHubClientEgit setProxySelector(ProxySelector proxySelector, PasswordAuthentication proxyCredentials) {
+		this.proxySelector = proxySelector;
+		this.proxyCredentials = proxyCredentials;
+		this.proxyAuthorization = null;
+		this.tunnels.clear();
+		if (proxyCredentials != null) {
+			String credentials = proxyCredentials.getUserName() + ":" + new String(proxyCredentials.getPassword());
+			this.proxyAuthorization = "Basic "
+					+ Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+		}
+		return this;
+	}
+
+	/**
+	 * Get the proxy used for connections to the API host
+	 *
+	 * @return proxy or null if connecting directly
+	 */
+	public Proxy getProxy() {
+		return selectProxy(URI.create(this.baseUri));
+	}
+
+	/**
+	 * Get the proxy used for connections to the given URI
+	 *
+	 * @param uri
+	 * @return proxy or null if connecting directly
+	 */
+	public Proxy selectProxy(URI uri) {
+		if (this.proxy != null || this.proxySelector == null) {
+			return this.proxy;
+		}
+		Proxy selected = this.proxySelector.select(uri).get(0);
+		return selected.type() != Proxy.Type.DIRECT ? selected : null;
+	}
+
+	/**
+	 * Open a connection to the given URL through the selected proxy
+	 *
+	 * @param url
+	 * @return connection
+	 * @throws IOException
+	 */
+	public HttpURLConnection openConnection(URL url) throws IOException {
+		Proxy selected;
+		try {
+			selected = selectProxy(url.toURI());
+		} catch (URISyntaxException e) {
+			throw new IOException(e);
+		}
+		if (selected == null) {
+			return (HttpURLConnection) url.openConnection();
+		}
+		if (this.proxyCredentials != null && "https".equalsIgnoreCase(url.getProtocol())
+				&& selected.type() == Proxy.Type.HTTP) {
+			// The JDK doesn't send credentials with CONNECT, so the tunnel is opened by the socket factory instead
+			HttpsURLConnection connection = (HttpsURLConnection) url.openConnection(Proxy.NO_PROXY);
+			InetSocketAddress address = (InetSocketAddress) selected.address();
+			connection.setSSLSocketFactory(this.tunnels.computeIfAbsent(address,
+					key -> new TunnelSocketFactory(connection.getSSLSocketFactory(), key, this.proxyAuthorization)));
+			return connection;
+		}
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection(selected);
+		if (this.proxyCredentials != null) {
+			PasswordAuthentication credentials = this.proxyCredentials;
+			connection.setAuthenticator(new Authenticator() {
+
+				@Override
+				protected PasswordAuthentication getPasswordAuthentication() {
+					return getRequestorType() == RequestorType.PROXY ? credentials : null;
+				}
+			});
+			connection.setRequestProperty("Proxy-Authorization", this.proxyAuthorization);
+		}
+		return connection;
+	}
+
+	@Override
+	public GitHubClient setCredentials(String user, String password) {
+		this.appTokens = null;
+		this.password = password;
+		this.oauth2Token = null;
+		return super.setCredentials(user, password);
+	}
+
+	@Override
+	public GitHubClient setOAuth2Token(String token) {
+		this.password = null;
+		this.oauth2Token = token;
+		return super.setOAuth2Token(token);
+	}
+
+	/**
+	 * Get the password configured through {@link #setCredentials(String, String)}
+	 *
+	 * @return password or null if none configured
+	 */
+	public String getPassword() {
+		return this.password;
+	}
+
+	/**
+	 * Get the token configured through {@link #setOAuth2Token(String)}
+	 *
+	 * @return token or null if none configured
+	 */
+	public String getOAuth2Token() {
+		return this.oauth2Token;
+	}
+
+	/**
+	 * Authenticate with installation tokens of a GitHub App, renewed before they expire
+	 *
+	 * @param appTokens
+	 * @return this client
+	 * @throws IOException if no token could be created
+	 */
+	public GitHubClientEgit setAppTokens(AppTokenProvider appTokens) throws IOException {
+		this.appTokens = appTokens;
+		refreshAppToken();
+		return this;
+	}
+
+	private void refreshAppToken() throws IOException {
+		String token = this.appTokens.getToken(this);
+		if (!token.equals(this.oauth2Token)) {
+			setOAuth2Token(token);
+		}
+	}
+
+	/**
+	 * Create the URL of the given API path
+	 *
+	 * @param uri
+	 * @return URL including host and path prefix
+	 * @throws IOException
+	 */
+	URL createUrl(String uri) throws IOException {
+		return new URL(createUri(uri));
+	}
+
+	/**
+	 * Get the base URI (scheme, host and port) API requests are sent to
+	 *
+	 * @return base URI
+	 */
+	public String getBaseUri() {
+		return this.baseUri;
+	}
+
+	/**
+	 * Set the timeouts of requests of the given operation
+	 *
+	 * @param operation
+	 * @param connect   milliseconds to connect at most, 0 for no limit
+	 * @param read      milliseconds between bytes of the response at most, 0 for no limit
+	 * @param total     milliseconds to wait for a response at most, 0 for no limit. Not applied to streamed bodies.
+	 *                  Writes are never abandoned, their connect and read timeouts are capped to it instead.
+	 * @return this client
+	 */
+	public GitHubClientEgit setTimeouts(Operation operation, int connect, int read, int total) {
+		this.timeouts.put(operation, new int[] { connect, read, total });
+		return this;
+	}
+
+	/**
+	 * Send a duplicate of an idempotent request taking longer than the 95th percentile of the recent requests of its
+	 * operation, using the response arriving first
+	 *
+	 * @param hedging
+	 * @return this client
+	 */
+	public GitHubClientEgit setHedging(boolean hedging) {
+		this.hedger.setEnabled(hedging);
+		return this;
+	}
+
+	/**
+	 * @return number of duplicate requests sent by hedging
+	 */
+	public int getHedgedRequests() {
+		return this.hedger.getHedged();
+	}
+
+	/**
+	 * Send request bodies gzip compressed if the host accepts them. Whether it does is probed once per host.
+	 *
+	 * @param compressRequests
+	 * @return this client
+	 */
+	public GitHubClientEgit setCompressRequests(boolean compressRequests) {
+		this.compressRequests = compressRequests;
+		return this;
+	}
+
+	/**
+	 * Are request bodies sent to this host gzip compressed?
+	 *
+	 * @return true if enabled and accepted by the host, false otherwise
+	 */
+	public boolean isCompressingRequests() {
+		if (!this.compressRequests) {
+			return false;
+		}
+		Boolean accepted = GZIP_HOSTS.get(this.baseUri);
+		if (accepted == null) {
+			accepted = Boolean.valueOf(probeCompressedRequests());
+			GZIP_HOSTS.putIfAbsent(this.baseUri, accepted);
+		}
+		return accepted.booleanValue();
+	}
+
+	/**
+	 * Send a compressed request without side effects and check that it was understood
+	 *
+	 * @return true if compressed requests are accepted
+	 */
+	private boolean probeCompressedRequests() {
+		HttpURLConnection request = null;
+		try {
+			request = configureRequest(createConnection(PROBE_URI, METHOD_POST));
+			writeCompressed(request, "{\"text\":\"" + PROBE_TEXT + "\",\"mode\":\"markdown\"}");
+			if (request.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				return false;
+			}
+			try (InputStream stream = getStream(request)) {
+				return new String(stream.readAllBytes(), StandardCharsets.UTF_8).contains(PROBE_TEXT);
+			}
+		} catch (IOException e) {
+			return false;
+		} finally {
+			if (request != null) {
+				request.disconnect();
+			}
+		}
+	}
+
+	@Override
+	protected void sendParams(HttpURLConnection request, Object params) throws IOException {
+		if (params == null || !isCompressingRequests()) {
+			super.sendParams(request, params);
+			return;
+		}
+		writeCompressed(request, toJson(params));
+	}
+
+	private static void writeCompressed(HttpURLConnection request, String json) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (OutputStream output = new GZIPOutputStream(compressed)) {
+			output.write(json.getBytes(StandardCharsets.UTF_8));
+		}
+		request.setDoOutput(true);
+		request.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+		request.setRequestProperty("Content-Encoding", ENCODING_GZIP);
+		request.setFixedLengthStreamingMode(compressed.size());
+		try (OutputStream output = request.getOutputStream()) {
+			compressed.writeTo(output);
+		}
+	}
+
+	@Override
+	protected HttpURLConnection configureRequest(HttpURLConnection request) {
+		super.configureRequest(request);
+		request.setRequestProperty("Accept-Encoding", ENCODING_GZIP);
+		return request;
+	}
+
+	@Override
+	protected InputStream getStream(HttpURLConnection request) throws IOException {
+		InputStream stream = super.getStream(request);
+		if (stream != null && ENCODING_GZIP.equalsIgnoreCase(request.getContentEncoding())) {
+			return new GZIPInputStream(stream);
+		}
+		return stream;
+	}
+
+	/**
+	 * JSON elements are sent exactly as built, including explicit null values such as the SHA-1 of a tree entry to
+	 * delete. HTML characters are not escaped, so that the text blobs of a site aren't inflated by <em>\u003c</em>
+	 * sequences.
+	 */
+	@Override
+	protected String toJson(Object object) throws IOException {
+		if (object instanceof JsonElement element) {
+			return JSON_ELEMENTS.toJson(element);
+		}
+		try {
+			return getRequestGson().toJson(object);
+		} catch (JsonParseException e) {
+			throw new IOException("Parse exception converting object to JSON", e);
+		}
+	}
+
+	/**
+	 * Get the serializer of request bodies, rebuilt whenever the one of the client was replaced
+	 *
+	 * @return serializer configured like the client's but without HTML escaping
+	 */
+	private synchronized Gson getRequestGson() {
+		if (this.requestGsonSource != this.gson) {
+			this.requestGsonSource = this.gson;
+			this.requestGson = this.gson.newBuilder().disableHtmlEscaping().create();
+		}
+		return this.requestGson;
+	}
+
+	/**
+	 * Post a request body written straight to the connection, so that it is never held in memory as a whole. It is
+	 * compressed if requests are.
+	 *
+	 * @param uri
+	 * @param length number of bytes the writer writes, -1 if unknown
+	 * @param body   writer of the JSON body
+	 * @param type   type of the response
+	 * @return parsed response
+	 * @throws IOException
+	 */
+	public <V> V postStreaming(String uri, long length, BodyWriter body, Type type) throws IOException {
+		HttpURLConnection request = createPost(uri);
+		request.setDoOutput(true);
+		request.setRequestProperty(HEADER_CONTENT_TYPE, "application/json; charset=UTF-8");
+		boolean compress = isCompressingRequests();
+		if (compress) {
+			request.setRequestProperty("Content-Encoding", ENCODING_GZIP);
+		}
+		if (length >= 0 && !compress) {
+			request.setFixedLengthStreamingMode(length);
+		} else {
+			request.setChunkedStreamingMode(0);
+		}
+		try (OutputStream output = compress ? new GZIPOutputStream(request.getOutputStream())
+				: request.getOutputStream()) {
+			body.write(output);
+		}
+		int code = request.getResponseCode();
+		updateRateLimits(request);
+		if (!isOk(code)) {
+			throw createException(getStream(request), code, request.getResponseMessage());
+		}
+		try (InputStream response = getStream(request)) {
+			return parseJson(response, type);
+		}
+	}
+
+	/**
+	 * Writes the body of a request
+	 */
+	@FunctionalInterface
+	public interface BodyWriter {
+
+		/**
+		 * Write the body
+		 *
+		 * @param output stream of the request, closed by the caller
+		 * @throws IOException
+		 */
+		void write(OutputStream output) throws IOException;
+	}
+
+	/**
+	 * Does the resource exist? It is asked for with a HEAD request, so none of its content is transferred.
+	 *
+	 * @param uri
+	 * @return true if found, false if not
+	 * @throws IOException on any other response than 200 or 404
+	 */
+	public boolean exists(String uri) throws IOException {
+		HttpURLConnection request = createConnection(uri, "HEAD");
+		try {
+			int code = request.getResponseCode();
+			updateRateLimits(request);
+			if (isOk(code)) {
+				return true;
+			}
+			if (code == HttpURLConnection.HTTP_NOT_FOUND) {
+				return false;
+			}
+			throw new IOException(MessageFormat.format("Unexpected response {0} {1} to HEAD {2}", code,
+					request.getResponseMessage(), uri));
+		} finally {
+			request.disconnect();
+		}
+	}
+
+	/**
+	 * Deletions answered with a body, such as those of the Contents API returning the created commit, succeed as well
+	 */
+	@Override
+	public void delete(String uri, Object params) throws IOException {
+		HttpURLConnection request = createDelete(uri);
+		if (params != null) {
+			sendParams(request, params);
+		}
+		int code = request.getResponseCode();
+		updateRateLimits(request);
+		if (!isOk(code) && !isEmpty(code)) {
+			throw createException(getStream(request), code, request.getResponseMessage());
+		}
+		try (InputStream body = getStream(request)) {
+			// Drain the body so that the connection can be reused
+			if (body != null) {
+				body.transferTo(OutputStream.nullOutputStream());
+			}
+		}
+	}
+
+	@Override
+	public <V> V post(String uri, Object params, Type type) throws IOException {
+		Operation operation = Operation.of(METHOD_POST, uri);
+		long bytes = params instanceof Blob blob && blob.getContent() != null ? blob.getContent().length() : 0;
+		return this.hedger.execute(operation, bytes, getTotalTimeout(operation), () -> super.post(uri, params, type));
+	}
+
+	@Override
+	public GitHubResponse get(GitHubRequest request) throws IOException {
+		return this.hedger.execute(Operation.READ, 0, getTotalTimeout(Operation.READ), () -> super.get(request));
+	}
+
+	private int getTotalTimeout(Operation operation) {
+		int[] limits = this.timeouts.get(operation);
+		return limits != null ? limits[2] : 0;
+	}
+
+	@Override
+	protected HttpURLConnection createConnection(String uri, String method) throws IOException {
+		HttpURLConnection connection = super.createConnection(uri, method);
+		Operation operation = Operation.of(method, uri);
+		int[] limits = this.timeouts.get(operation);
+		if (limits != null) {
+			int connect = limits[0];
+			int read = limits[1];
+			if (!operation.isIdempotent() && limits[2] > 0) {
+				connect = connect > 0 ? Math.min(connect, limits[2]) : limits[2];
+				read = read > 0 ? Math.min(read, limits[2]) : limits[2];
+			}
+			connection.setConnectTimeout(connect);
+			connection.setReadTimeout(read);
+		}
+		return connection;
+	}
+
 	@Override
 	protected HttpURLConnection createConnection(String uri) throws IOException {
-		URL url = new URL(createUri(uri));
-		if (null == this.proxy) {
-			return (HttpURLConnection) url.openConnection();
+		if (this.appTokens != null) {
+			refreshAppToken();
 		}
-		return (HttpURLConnection) url.openConnection(this.proxy);
+		return openConnection(new URL(createUri(uri)));
 	}
 
+	/**
+	 * Types of requests with their own timeouts
+	 */
+	public enum Operation {
+
+		/**
+		 * GET and HEAD requests
+		 */
+		READ,
+
+		/**
+		 * Creation of a blob
+		 */
+		BLOB,
+
+		/**
+		 * Creation of a tree
+		 */
+		TREE,
+
+		/**
+		 * Any other request changing the repository
+		 */
+		WRITE;
+
+		/**
+		 * Get the operation of a request
+		 *
+		 * @param method
+		 * @param uri    path of the request, without host and query
+		 * @return operation
+		 */
+		public static Operation of(String method, String uri) {
+			if (METHOD_GET.equals(method) || "HEAD".equals(method)) {
+				return READ;
+			}
+			if (METHOD_POST.equals(method) && uri.endsWith(SEGMENT_GIT + SEGMENT_BLOBS)) {
+				return BLOB;
+			}
+			if (METHOD_POST.equals(method) && uri.endsWith(SEGMENT_GIT + SEGMENT_TREES)) {
+				return TREE;
+			}
+			return WRITE;
+		}
+
+		/**
+		 * Can a request of this operation be sent twice without changing the result? Blobs and trees are addressed
+		 * by their content, so creating them again yields the same object.
+		 *
+		 * @return true if idempotent
+		 */
+		public boolean isIdempotent() {
+			return this != WRITE;
+		}
+	}
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.maven.plugins.core.egit.GitHubClientEgit.Operation;
+
+/**
+ * Sends idempotent requests bounded by a total timeout and hedges them: when a request takes longer than the 95th
+ * percentile of the recent latencies of its operation, a duplicate is sent and whichever response arrives first is
+ * used. Latencies are judged per MiB of the request body, so large uploads aren't hedged for being large.
+ */
+class RequestHedger {
+
+	/**
+	 * Number of latencies kept per operation
+	 */
+	static final int WINDOW = 128;
+
+	/**
+	 * Number of latencies needed before requests are hedged
+	 */
+	static final int MIN_SAMPLES = 20;
+
+	/**
+	 * Percentile of the latencies after which a duplicate is sent
+	 */
+	static final double PERCENTILE = 0.95;
+
+	private static final long SIZE_UNIT = 1 << 20;
+
+	private static final AtomicInteger THREADS = new AtomicInteger();
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "github-request-" + THREADS.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Map<Operation, long[]> latencies = new EnumMap<>(Operation.class);
+
+	private final Map<Operation, Integer> counts = new EnumMap<>(Operation.class);
+
+	private final AtomicInteger hedged = new AtomicInteger();
+
+	private volatile boolean enabled;
+
+	/**
+	 * Hedge idempotent requests
+	 *
+	 * @param enabled
+	 * @return this hedger
+	 */
+	RequestHedger setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		return this;
+	}
+
+	/**
+	 * @return number of duplicate requests sent
+	 */
+	int getHedged() {
+		return this.hedged.get();
+	}
+
+	/**
+	 * Send the given request
+	 *
+	 * @param operation type of the request
+	 * @param bytes     size of the request body, 0 if unknown
+	 * @param total     milliseconds to wait for a response of an idempotent request at most, 0 to wait without limit
+	 * @param request
+	 * @return response
+	 * @throws IOException
+	 */
+	<V> V execute(Operation operation, long bytes, int total, Request<V> request) throws IOException {
+		// An abandoned write could still be applied later, so writes are only bounded by their connection timeouts
+		int limit = operation.isIdempotent() ? total : 0;
+		long delay = this.enabled && operation.isIdempotent() ? getHedgeDelay(operation, bytes) : -1;
+		if (delay < 0 && limit <= 0) {
+			long start = System.nanoTime();
+			V response = request.send();
+			record(operation, System.nanoTime() - start, bytes);
+			return response;
+		}
+
+		CompletionService<V> completion = new ExecutorCompletionService<>(EXECUTOR);
+		List<Future<V>> futures = new ArrayList<>(2);
+		List<Long> starts = new ArrayList<>(2);
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(limit);
+		futures.add(completion.submit(request::send));
+		starts.add(start);
+		int pending = 1;
+		IOException failure = null;
+		try {
+			while (pending > 0) {
+				boolean hedge = delay >= 0 && futures.size() == 1;
+				long wait;
+				if (hedge && (limit <= 0 || delay < deadline - start)) {
+					wait = start + delay - System.nanoTime();
+				} else {
+					hedge = false;
+					wait = limit > 0 ? deadline - System.nanoTime() : Long.MAX_VALUE;
+				}
+				Future<V> done = completion.poll(Math.max(wait, 0), TimeUnit.NANOSECONDS);
+				if (done == null) {
+					if (!hedge) {
+						throw new SocketTimeoutException(
+								MessageFormat.format("No response within total timeout of {0} ms", limit));
+					}
+					futures.add(completion.submit(request::send));
+					starts.add(System.nanoTime());
+					this.hedged.incrementAndGet();
+					pending++;
+					continue;
+				}
+				pending--;
+				try {
+					V response = done.get();
+					record(operation, System.nanoTime() - starts.get(futures.indexOf(done)), bytes);
+					return response;
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+					}
+				}
+			}
+			throw failure;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for response");
+		} finally {
+			for (Future<V> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Record the latency of a successful request
+	 *
+	 * @param operation
+	 * @param latency   nanoseconds
+	 * @param bytes     size of the request body
+	 */
+	synchronized void record(Operation operation, long latency, long bytes) {
+		long[] window = this.latencies.computeIfAbsent(operation, key -> new long[WINDOW]);
+		int count = this.counts.getOrDefault(operation, 0);
+		window[count % WINDOW] = latency / (1 + bytes / SIZE_UNIT);
+		this.counts.put(operation, count + 1);
+	}
+
+	/**
+	 * Get the time after which a duplicate of a request is sent
+	 *
+	 * @param operation
+	 * @param bytes     size of the request body
+	 * @return nanoseconds or -1 if too few latencies are known
+	 */
+	synchronized long getHedgeDelay(Operation operation, long bytes) {
+		int count = this.counts.getOrDefault(operation, 0);
+		if (count < MIN_SAMPLES) {
+			return -1;
+		}
+		long[] sorted = Arrays.copyOf(this.latencies.get(operation), Math.min(count, WINDOW));
+		Arrays.sort(sorted);
+		return sorted[(int) Math.ceil(sorted.length * PERCENTILE) - 1] * (1 + bytes / SIZE_UNIT);
+	}
+
+	/**
+	 * Request that may be sent more than once
+	 *
+	 * @param <V> response type
+	 */
+	@FunctionalInterface
+	interface Request<V> {
+
+		/**
+		 * @return response
+		 * @throws IOException
+		 */
+		V send() throws IOException;
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Factory of TLS sockets tunneled through an HTTP proxy with a CONNECT request that carries the proxy credentials
+ * preemptively. The JDK disables Basic authentication of tunnels by default through
+ * <em>jdk.http.auth.tunneling.disabledSchemes</em>, so it never answers the challenge of such a proxy itself.
+ */
+class TunnelSocketFactory extends SSLSocketFactory {
+
+	private final SSLSocketFactory delegate;
+
+	private final InetSocketAddress proxy;
+
+	private final String authorization;
+
+	/**
+	 * Create factory
+	 *
+	 * @param delegate      factory of the TLS sockets layered over the tunnels
+	 * @param proxy         address of the proxy
+	 * @param authorization value of the <em>Proxy-Authorization</em> header
+	 */
+	TunnelSocketFactory(SSLSocketFactory delegate, InetSocketAddress proxy, String authorization) {
+		this.delegate = delegate;
+		this.proxy = proxy;
+		this.authorization = authorization;
+	}
+
+	/**
+	 * Create an unconnected socket, connecting it opens a tunnel to the endpoint instead
+	 */
+	@Override
+	public Socket createSocket() {
+		return new TunnelSocket();
+	}
+
+	@Override
+	public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+		return this.delegate.createSocket(socket, host, port, autoClose);
+	}
+
+	@Override
+	public Socket createSocket(String host, int port) throws IOException {
+		Socket tunnel = createSocket();
+		tunnel.connect(InetSocketAddress.createUnresolved(host, port));
+		return createSocket(tunnel, host, port, true);
+	}
+
+	@Override
+	public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+		return createSocket(host, port);
+	}
+
+	@Override
+	public Socket createSocket(InetAddress host, int port) throws IOException {
+		return createSocket(host.getHostName(), port);
+	}
+
+	@Override
+	public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+			throws IOException {
+		return createSocket(address.getHostName(), port);
+	}
+
+	@Override
+	public String[] getDefaultCipherSuites() {
+		return this.delegate.getDefaultCipherSuites();
+	}
+
+	@Override
+	public String[] getSupportedCipherSuites() {
+		return this.delegate.getSupportedCipherSuites();
+	}
+
+	// static helpers
+
+	/**
+	 * Read the status line and headers of a response, but nothing beyond them
+	 *
+	 * @param input
+	 * @return response head without the empty line ending it
+	 * @throws IOException
+	 */
+	static String readHead(InputStream input) throws IOException {
+		ByteArrayOutputStream head = new ByteArrayOutputStream();
+		int matched = 0;
+		while (matched < 4) {
+			int read = input.read();
+			if (read == -1) {
+				throw new IOException("Proxy closed the connection before answering CONNECT");
+			}
+			head.write(read);
+			matched = read == "\r\n\r\n".charAt(matched) ? matched + 1 : read == '\r' ? 1 : 0;
+		}
+		String text = head.toString(StandardCharsets.ISO_8859_1);
+		return text.substring(0, text.length() - 4);
+	}
+
+	/**
+	 * Plain socket connected to the proxy, with a tunnel opened to the endpoint it is connected to
+	 */
+	private class TunnelSocket extends Socket {
+
+		@Override
+		public void connect(SocketAddress endpoint, int timeout) throws IOException {
+			InetSocketAddress target = (InetSocketAddress) endpoint;
+			InetSocketAddress address = TunnelSocketFactory.this.proxy;
+			if (address.isUnresolved()) {
+				address = new InetSocketAddress(address.getHostString(), address.getPort());
+			}
+			super.connect(address, timeout);
+
+			String authority = target.getHostString() + ":" + target.getPort();
+			OutputStream output = getOutputStream();
+			output.write(("CONNECT " + authority + " HTTP/1.1\r\nHost: " + authority + "\r\nProxy-Authorization: "
+					+ TunnelSocketFactory.this.authorization + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+			output.flush();
+
+			int soTimeout = getSoTimeout();
+			setSoTimeout(timeout);
+			String head;
+			try {
+				head = readHead(getInputStream());
+			} catch (IOException e) {
+				close();
+				throw e;
+			}
+			setSoTimeout(soTimeout);
+			String status = head.split("\r\n", 2)[0];
+			String[] parts = status.split(" ", 3);
+			if (parts.length < 2 || !"200".equals(parts[1])) {
+				close();
+				throw new IOException(MessageFormat.format("Proxy {0} refused the tunnel to {1}: {2}",
+						TunnelSocketFactory.this.proxy, authority, status));
+			}
+		}
+	}
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.net.SocketTimeoutException;
+import java.text.MessageFormat;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.egit.github.core.client.RequestException;
+
+/**
+ * Limit of concurrent uploads adapted by additive increase and multiplicative decrease: every healthy request raises
+ * the limit by one request per round trip of the current limit, every throttled request or latency spike halves it.
+ * Throttled requests are retried after a random delay. Decreases are only applied for requests started after the
+ * previous decrease, so a burst of failures caused by one overload halves the limit only once.
+ */
+class AdaptiveConcurrency {
+
+	/**
+	 * Factor the limit is multiplied with on throttling
+	 */
+	static final double DECREASE = 0.5;
+
+	/**
+	 * Latency relative to the baseline considered a spike
+	 */
+	static final double LATENCY_SPIKE = 3;
+
+	/**
+	 * Number of requests before the latency baseline is trusted
+	 */
+	static final int WARMUP_REQUESTS = 8;
+
+	/**
+	 * Weight of a request in the latency baseline
+	 */
+	static final double BASELINE_WEIGHT = 0.1;
+
+	/**
+	 * Number of times a request is attempted before a throttling failure is given up on
+	 */
+	static final int ATTEMPTS = 6;
+
+	/**
+	 * Base of the delay in milliseconds before a throttled request is retried
+	 */
+	static final long RETRY_DELAY = 1000;
+
+	private static final long SIZE_UNIT = 1 << 20;
+
+	private final int max;
+
+	private final Log log;
+
+	private double limit;
+
+	private int inFlight;
+
+	private double baseline;
+
+	private int samples;
+
+	private long lastDecrease = Long.MIN_VALUE;
+
+	private int decreases;
+
+	private int peak;
+
+	/**
+	 * Create concurrency limit
+	 *
+	 * @param initial number of concurrent requests to start with
+	 * @param max     highest number of concurrent requests
+	 * @param log
+	 */
+	AdaptiveConcurrency(int initial, int max, Log log) {
+		if (initial < 1 || max < initial) {
+			throw new IllegalArgumentException(
+					MessageFormat.format("Invalid concurrency {0} with maximum {1}", initial, max));
+		}
+		this.limit = initial;
+		this.peak = initial;
+		this.max = max;
+		this.log = log;
+	}
+
+	/**
+	 * Run the given request within the limit, retrying it while it is throttled
+	 *
+	 * @param bytes size of the request body, latency is judged per size
+	 * @param task
+	 * @return result of the task
+	 * @throws MojoExecutionException
+	 */
+	<T> T execute(long bytes, Task<T> task) throws MojoExecutionException {
+		for (int attempt = 1;; attempt++) {
+			long start;
+			try {
+				start = acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MojoExecutionException("Interrupted while waiting for upload slot", e);
+			}
+			T result;
+			try {
+				result = task.run();
+			} catch (MojoExecutionException e) {
+				if (!release(start, e) || attempt >= ATTEMPTS) {
+					throw e;
+				}
+				long delay = ThreadLocalRandom.current().nextLong(RETRY_DELAY << Math.min(attempt, 5));
+				this.log.info(MessageFormat.format("Request throttled, retrying in {0} ms", delay));
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+				continue;
+			} catch (RuntimeException e) {
+				release(start, e);
+				throw e;
+			}
+			release(start, bytes);
+			return result;
+		}
+	}
+
+	/**
+	 * Wait until a request may be started
+	 *
+	 * @return start time in nanoseconds, to be passed to one of the release methods
+	 * @throws InterruptedException
+	 */
+	synchronized long acquire() throws InterruptedException {
+		while (this.inFlight >= (int) this.limit) {
+			wait();
+		}
+		this.inFlight++;
+		return System.nanoTime();
+	}
+
+	/**
+	 * End a successful request started by {@link #acquire()}
+	 *
+	 * @param start
+	 * @param bytes size of the request body
+	 */
+	void release(long start, long bytes) {
+		succeeded(start, System.nanoTime() - start, bytes);
+	}
+
+	/**
+	 * End a failed request started by {@link #acquire()}, decreasing the limit if the failure is throttling
+	 *
+	 * @param start
+	 * @param failure
+	 * @return true if throttled and worth retrying, false otherwise
+	 */
+	synchronized boolean release(long start, Throwable failure) {
+		end();
+		String reason = getThrottling(failure);
+		if (reason == null) {
+			return false;
+		}
+		decrease(start, reason);
+		return true;
+	}
+
+	/**
+	 * End a successful request, increasing the limit unless its latency was a spike
+	 *
+	 * @param start   start time in nanoseconds
+	 * @param latency latency in nanoseconds
+	 * @param bytes   size of the request body
+	 */
+	synchronized void succeeded(long start, long latency, long bytes) {
+		end();
+		double normalized = (double) latency / (1 + bytes / SIZE_UNIT);
+		if (this.samples >= WARMUP_REQUESTS && normalized > this.baseline * LATENCY_SPIKE) {
+			decrease(start, MessageFormat.format("latency of {0} ms", latency / 1000000));
+			return;
+		}
+		this.baseline = this.samples == 0 ? normalized
+				: this.baseline + (normalized - this.baseline) * BASELINE_WEIGHT;
+		this.samples++;
+		if (this.limit < this.max) {
+			int before = (int) this.limit;
+			this.limit = Math.min(this.max, this.limit + 1 / this.limit);
+			if ((int) this.limit > before) {
+				this.peak = Math.max(this.peak, (int) this.limit);
+				changed(before, "requests healthy");
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * @return current number of concurrent requests allowed
+	 */
+	synchronized int getLimit() {
+		return (int) this.limit;
+	}
+
+	/**
+	 * @return highest number of concurrent requests allowed so far
+	 */
+	synchronized int getPeak() {
+		return this.peak;
+	}
+
+	/**
+	 * @return number of times the limit was decreased
+	 */
+	synchronized int getDecreases() {
+		return this.decreases;
+	}
+
+	private void end() {
+		this.inFlight--;
+		notifyAll();
+	}
+
+	private void decrease(long start, String reason) {
+		// Requests started before the last decrease were sent at the old limit
+		if (this.lastDecrease != Long.MIN_VALUE && start - this.lastDecrease <= 0) {
+			return;
+		}
+		int before = (int) this.limit;
+		this.limit = Math.max(1, this.limit * DECREASE);
+		this.lastDecrease = System.nanoTime();
+		this.decreases++;
+		changed(before, reason);
+	}
+
+	private void changed(int before, String reason) {
+		if (before != (int) this.limit) {
+			this.log.info(MessageFormat.format("Upload concurrency changed from {0} to {1}: {2}", before,
+					(int) this.limit, reason));
+		} else if (this.log.isDebugEnabled()) {
+			this.log.debug(MessageFormat.format("Upload concurrency stays at {0}: {1}", before, reason));
+		}
+	}
+
+	// static helpers
+
+	/**
+	 * Get the reason the given failure is throttling: a secondary rate limit, too many requests, a server error or a
+	 * timeout
+	 *
+	 * @param failure
+	 * @return reason or null if not throttling
+	 */
+	static String getThrottling(Throwable failure) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof RequestException e) {
+				int status = e.getStatus();
+				if (status == 429 || status >= 500) {
+					return "status " + status;
+				}
+				String message = String.valueOf(e.getMessage()).toLowerCase(Locale.ROOT);
+				if (status == 403 && (message.contains("secondary rate limit") || message.contains("abuse"))) {
+					return "secondary rate limit";
+				}
+				return null;
+			}
+			if (cause instanceof SocketTimeoutException) {
+				return "timeout";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Request run within the limit
+	 *
+	 * @param <T> result type
+	 */
+	interface Task<T> {
+
+		/**
+		 * @return result
+		 * @throws MojoExecutionException
+		 */
+		T run() throws MojoExecutionException;
+	}
+}
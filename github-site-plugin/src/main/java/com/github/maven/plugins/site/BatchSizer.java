@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+/**
+ * Groups consecutive entries into batches limited by entry count and payload bytes. The limits shrink whenever a
+ * batch turns out to be too large for the server so that later batches don't fail the same way.
+ */
+class BatchSizer {
+
+	private int maxEntries;
+
+	private long maxBytes;
+
+	/**
+	 * Create sizer
+	 *
+	 * @param maxEntries maximum number of entries per batch
+	 * @param maxBytes   maximum payload bytes per batch, a single larger entry still forms a batch of its own
+	 */
+	BatchSizer(int maxEntries, long maxBytes) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Maximum entries must be positive: " + maxEntries);
+		}
+		if (maxBytes < 1) {
+			throw new IllegalArgumentException("Maximum bytes must be positive: " + maxBytes);
+		}
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Get the end of the batch starting at the given index
+	 *
+	 * @param sizes payload bytes of all entries
+	 * @param start index of the first entry of the batch
+	 * @return index after the last entry of the batch, greater than start if start is a valid index
+	 */
+	int next(long[] sizes, int start) {
+		int end = start;
+		long bytes = 0;
+		while (end < sizes.length && end - start < this.maxEntries) {
+			bytes += sizes[end];
+			if (bytes > this.maxBytes && end > start) {
+				break;
+			}
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * Halve both limits, keeping at least one entry and one byte per batch
+	 */
+	void shrink() {
+		this.maxEntries = Math.max(1, this.maxEntries / 2);
+		this.maxBytes = Math.max(1, this.maxBytes / 2);
+	}
+
+	/**
+	 * @return current maximum number of entries per batch
+	 */
+	int getMaxEntries() {
+		return this.maxEntries;
+	}
+
+	/**
+	 * @return current maximum payload bytes per batch
+	 */
+	long getMaxBytes() {
+		return this.maxBytes;
+	}
+
+	// static helpers
+
+	/**
+	 * Get the number of bytes a blob of the given size takes up when sent base64 encoded
+	 *
+	 * @param size
+	 * @return encoded size
+	 */
+	static long encodedSize(long size) {
+		return (size + 2) / 3 * 4;
+	}
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact index of blob SHA-1s by path. SHA-1s are kept as 20 raw bytes, paths are front coded against the previously
+ * added path with a full path every {@value #RESTART_INTERVAL} entries, and lookups go through an open addressing
+ * table of entry numbers. A tree of half a million blobs takes some tens of MB instead of the hundreds a map of
+ * strings takes, while lookups stay constant time.
+ * <p>
+ * Lookups may run concurrently, changes must not run concurrently with anything else.
+ */
+class BlobIndex {
+
+	private static final int RESTART_INTERVAL = 16;
+
+	private static final int SHA_LENGTH = 20;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private byte[] paths = new byte[1024];
+
+	private int pathsLength;
+
+	/**
+	 * Offset of the encoded path of every entry
+	 */
+	private int[] offsets = new int[64];
+
+	/**
+	 * Hash code of the path of every entry
+	 */
+	private int[] hashes = new int[64];
+
+	private byte[] shas = new byte[64 * SHA_LENGTH];
+
+	private final BitSet removed = new BitSet();
+
+	/**
+	 * Entry number plus one by hash code, zero for empty slots
+	 */
+	private int[] slots = new int[128];
+
+	private int count;
+
+	private int size;
+
+	private byte[] previous = new byte[0];
+
+	private int maxPathLength;
+
+	/**
+	 * Get the SHA-1 of the blob at the given path
+	 *
+	 * @param path
+	 * @return SHA-1 or null if not present
+	 */
+	String get(String path) {
+		int entry = find(path);
+		if (entry < 0 || this.removed.get(entry)) {
+			return null;
+		}
+		char[] hex = new char[SHA_LENGTH * 2];
+		for (int i = 0; i < SHA_LENGTH; i++) {
+			int value = this.shas[entry * SHA_LENGTH + i];
+			hex[2 * i] = HEX[(value >> 4) & 0xf];
+			hex[2 * i + 1] = HEX[value & 0xf];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * @param path
+	 * @return true if a blob is present at the given path
+	 */
+	boolean contains(String path) {
+		int entry = find(path);
+		return entry >= 0 && !this.removed.get(entry);
+	}
+
+	/**
+	 * @return number of blobs
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return true if no blob is present
+	 */
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Set the SHA-1 of the blob at the given path. Paths are coded most compactly when added in sorted order, as they
+	 * appear in a recursive tree.
+	 *
+	 * @param path
+	 * @param sha  SHA-1 as 40 hexadecimal digits
+	 */
+	void put(String path, String sha) {
+		if (sha.length() != SHA_LENGTH * 2) {
+			throw new IllegalArgumentException("Invalid SHA-1: " + sha);
+		}
+		int entry = find(path);
+		if (entry < 0) {
+			entry = append(path);
+			this.size++;
+		} else if (this.removed.get(entry)) {
+			this.removed.clear(entry);
+			this.size++;
+		}
+		for (int i = 0; i < SHA_LENGTH; i++) {
+			int high = Character.digit(sha.charAt(2 * i), 16);
+			int low = Character.digit(sha.charAt(2 * i + 1), 16);
+			if (high < 0 || low < 0) {
+				throw new IllegalArgumentException("Invalid SHA-1: " + sha);
+			}
+			this.shas[entry * SHA_LENGTH + i] = (byte) ((high << 4) | low);
+		}
+	}
+
+	/**
+	 * Remove the blob at the given path
+	 *
+	 * @param path
+	 */
+	void remove(String path) {
+		int entry = find(path);
+		if (entry >= 0 && !this.removed.get(entry)) {
+			this.removed.set(entry);
+			this.size--;
+		}
+	}
+
+	/**
+	 * @return paths of all blobs in the order they were added
+	 */
+	Iterable<String> paths() {
+		return () -> new Iterator<String>() {
+
+			private final byte[] path = new byte[BlobIndex.this.maxPathLength];
+
+			private int entry = -1;
+
+			private int length;
+
+			private int next = advance();
+
+			private int advance() {
+				int candidate = this.entry + 1;
+				while (candidate < BlobIndex.this.count) {
+					this.length = decodeNext(candidate, this.path);
+					this.entry = candidate;
+					if (!BlobIndex.this.removed.get(candidate)) {
+						return candidate;
+					}
+					candidate++;
+				}
+				return -1;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return this.next >= 0;
+			}
+
+			@Override
+			public String next() {
+				if (this.next < 0) {
+					throw new NoSuchElementException();
+				}
+				String result = new String(this.path, 0, this.length, StandardCharsets.UTF_8);
+				this.next = advance();
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * Estimate the memory taken by the index
+	 *
+	 * @return bytes
+	 */
+	long getMemoryUsage() {
+		return this.paths.length + 4L * this.offsets.length + 4L * this.hashes.length + this.shas.length
+				+ 4L * this.slots.length + this.removed.size() / 8;
+	}
+
+	private int find(String path) {
+		int hash = path.hashCode();
+		int mask = this.slots.length - 1;
+		byte[] bytes = null;
+		byte[] decoded = null;
+		for (int slot = mix(hash) & mask;; slot = (slot + 1) & mask) {
+			int entry = this.slots[slot] - 1;
+			if (entry < 0) {
+				return -1;
+			}
+			if (this.hashes[entry] != hash) {
+				continue;
+			}
+			if (bytes == null) {
+				bytes = path.getBytes(StandardCharsets.UTF_8);
+				decoded = new byte[this.maxPathLength];
+			}
+			int length = decode(entry, decoded);
+			if (Arrays.equals(decoded, 0, length, bytes, 0, bytes.length)) {
+				return entry;
+			}
+		}
+	}
+
+	private int append(String path) {
+		byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+		int entry = this.count;
+		if (entry == this.offsets.length) {
+			int capacity = entry * 2;
+			this.offsets = Arrays.copyOf(this.offsets, capacity);
+			this.hashes = Arrays.copyOf(this.hashes, capacity);
+			this.shas = Arrays.copyOf(this.shas, capacity * SHA_LENGTH);
+		}
+
+		int shared = 0;
+		if (entry % RESTART_INTERVAL != 0) {
+			int limit = Math.min(bytes.length, this.previous.length);
+			while (shared < limit && bytes[shared] == this.previous[shared]) {
+				shared++;
+			}
+		}
+		int suffix = bytes.length - shared;
+		ensurePaths(10 + suffix);
+		this.offsets[entry] = this.pathsLength;
+		writeVarInt(shared);
+		writeVarInt(suffix);
+		System.arraycopy(bytes, shared, this.paths, this.pathsLength, suffix);
+		this.pathsLength += suffix;
+		this.previous = bytes;
+		this.maxPathLength = Math.max(this.maxPathLength, bytes.length);
+
+		this.hashes[entry] = path.hashCode();
+		this.count++;
+		// Keep the table at most half full
+		if (this.count * 2 > this.slots.length) {
+			rehash(this.slots.length * 2);
+		} else {
+			insert(entry);
+		}
+		return entry;
+	}
+
+	private void insert(int entry) {
+		int mask = this.slots.length - 1;
+		int slot = mix(this.hashes[entry]) & mask;
+		while (this.slots[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		this.slots[slot] = entry + 1;
+	}
+
+	private void rehash(int capacity) {
+		this.slots = new int[capacity];
+		for (int entry = 0; entry < this.count; entry++) {
+			insert(entry);
+		}
+	}
+
+	/**
+	 * Decode the path of the given entry, starting at the closest preceding full path
+	 *
+	 * @param entry
+	 * @param path  buffer of at least the maximum path length
+	 * @return length of the path
+	 */
+	private int decode(int entry, byte[] path) {
+		int length = 0;
+		for (int current = entry - entry % RESTART_INTERVAL; current <= entry; current++) {
+			length = decodeNext(current, path);
+		}
+		return length;
+	}
+
+	/**
+	 * Decode the path of the given entry from the path of the previous one
+	 *
+	 * @param entry
+	 * @param path  buffer holding the path of the previous entry
+	 * @return length of the path
+	 */
+	private int decodeNext(int entry, byte[] path) {
+		int position = this.offsets[entry];
+		int shared = 0;
+		int shift = 0;
+		byte value;
+		do {
+			value = this.paths[position++];
+			shared |= (value & 0x7f) << shift;
+			shift += 7;
+		} while (value < 0);
+		int suffix = 0;
+		shift = 0;
+		do {
+			value = this.paths[position++];
+			suffix |= (value & 0x7f) << shift;
+			shift += 7;
+		} while (value < 0);
+		System.arraycopy(this.paths, position, path, shared, suffix);
+		return shared + suffix;
+	}
+
+	private void writeVarInt(int value) {
+		int remaining = value;
+		while ((remaining & ~0x7f) != 0) {
+			this.paths[this.pathsLength++] = (byte) ((remaining & 0x7f) | 0x80);
+			remaining >>>= 7;
+		}
+		this.paths[this.pathsLength++] = (byte) remaining;
+	}
+
+	private void ensurePaths(int bytes) {
+		if (this.pathsLength + bytes > this.paths.length) {
+			this.paths = Arrays.copyOf(this.paths, Math.max(this.paths.length * 2, this.pathsLength + bytes));
+		}
+	}
+
+	// static helpers
+
+	private static int mix(int hash) {
+		int mixed = hash * 0x9e3779b9;
+		return mixed ^ (mixed >>> 16);
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+/**
+ * Semaphore over bytes bounding the memory held by concurrent uploads. Every upload acquires its working set before
+ * reading a file and releases it once the request is sent. A working set larger than the whole budget is reduced to
+ * the budget, so it runs alone instead of waiting forever.
+ */
+class ByteBudget {
+
+	private final long max;
+
+	private long used;
+
+	/**
+	 * Create budget
+	 *
+	 * @param max number of bytes that may be held at the same time
+	 */
+	ByteBudget(long max) {
+		if (max < 1) {
+			throw new IllegalArgumentException("Budget must be positive: " + max);
+		}
+		this.max = max;
+	}
+
+	/**
+	 * Wait until the given number of bytes is available and take them
+	 *
+	 * @param bytes
+	 * @return bytes taken, to be passed to {@link #release(long)}
+	 * @throws InterruptedException
+	 */
+	synchronized long acquire(long bytes) throws InterruptedException {
+		long taken = Math.min(Math.max(bytes, 0), this.max);
+		while (this.used + taken > this.max) {
+			wait();
+		}
+		this.used += taken;
+		return taken;
+	}
+
+	/**
+	 * Give back bytes taken by {@link #acquire(long)}
+	 *
+	 * @param taken
+	 */
+	synchronized void release(long taken) {
+		this.used -= taken;
+		notifyAll();
+	}
+
+	/**
+	 * @return number of bytes that may be held at the same time
+	 */
+	long getMax() {
+		return this.max;
+	}
+
+	/**
+	 * @return number of bytes currently held
+	 */
+	synchronized long getUsed() {
+		return this.used;
+	}
+}
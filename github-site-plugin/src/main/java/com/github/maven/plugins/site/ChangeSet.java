@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.eclipse.egit.github.core.TreeEntry.MODE_BLOB;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.egit.github.core.TreeEntry;
+
+/**
+ * Files to send and blobs to delete to bring the tree of a branch in line with the local files
+ */
+class ChangeSet {
+
+	private final String[] paths;
+
+	private final List<TreeEntry> deletions;
+
+	private final boolean createNoJekyll;
+
+	private ChangeSet(String[] paths, List<TreeEntry> deletions, boolean createNoJekyll) {
+		this.paths = paths;
+		this.deletions = deletions;
+		this.createNoJekyll = createNoJekyll;
+	}
+
+	/**
+	 * @return changed paths relative to the output directory
+	 */
+	String[] getPaths() {
+		return this.paths;
+	}
+
+	/**
+	 * @return deletion entries without SHA-1
+	 */
+	List<TreeEntry> getDeletions() {
+		return this.deletions;
+	}
+
+	/**
+	 * @return true if the {@link SiteMojo#NO_JEKYLL_FILE} is missing on the branch and has to be created
+	 */
+	boolean isCreateNoJekyll() {
+		return this.createNoJekyll;
+	}
+
+	// static helpers
+
+	/**
+	 * Compare the local files with the tree of a branch
+	 *
+	 * @param remote        tree of the branch
+	 * @param paths         paths relative to the output directory
+	 * @param prefix        path the files are placed below
+	 * @param removedPrefix prefix of the blobs to delete if not part of the local files, null to keep all blobs
+	 * @param noJekyll      true if a {@link SiteMojo#NO_JEKYLL_FILE} is created and kept
+	 * @param hasher
+	 * @return change set
+	 * @throws IOException
+	 */
+	static ChangeSet compute(RemoteTree remote, String[] paths, String prefix, String removedPrefix, boolean noJekyll,
+			Hasher hasher) throws IOException {
+		List<String> changed = new ArrayList<>(paths.length);
+		Set<String> local = new HashSet<>(paths.length * 2);
+		for (String path : paths) {
+			String remotePath = prefix + path.replace('\\', '/');
+			local.add(remotePath);
+			if (!hasher.hash(path).equals(remote.getBlobs().get(remotePath))) {
+				changed.add(path);
+			}
+		}
+
+		List<TreeEntry> deletions = new ArrayList<>();
+		if (removedPrefix != null) {
+			// The .nojekyll file created by this plugin is kept
+			if (noJekyll) {
+				local.add(SiteMojo.NO_JEKYLL_FILE);
+			}
+			for (String path : remote.getRemoved(removedPrefix, local)) {
+				TreeEntry entry = new TreeEntry();
+				entry.setPath(path);
+				entry.setType(TYPE_BLOB);
+				entry.setMode(MODE_BLOB);
+				deletions.add(entry);
+			}
+		}
+		return new ChangeSet(changed.toArray(new String[0]), deletions,
+				noJekyll && !remote.getBlobs().contains(SiteMojo.NO_JEKYLL_FILE));
+	}
+
+	/**
+	 * Source of the blob SHA-1 of a local file
+	 */
+	interface Hasher {
+
+		/**
+		 * @param path path relative to the output directory
+		 * @return blob SHA-1
+		 * @throws IOException
+		 */
+		String hash(String path) throws IOException;
+	}
+}
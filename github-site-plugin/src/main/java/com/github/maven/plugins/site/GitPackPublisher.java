@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.eclipse.egit.github.core.client.IGitHubConstants.HOST_API;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.HOST_DEFAULT;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SUFFIX_GIT;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Proxy;
+import java.net.URL;
+import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.HttpTransport;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.transport.Transport;
+import org.eclipse.jgit.transport.TransportHttp;
+import org.eclipse.jgit.transport.http.HttpConnection;
+import org.eclipse.jgit.transport.http.HttpConnectionFactory;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * Publisher that builds the tree and commit for a set of files in a local bare repository and pushes them to a branch
+ * as a single thin pack over the Git smart HTTP protocol. No working checkout is created, only the current head of the
+ * target branch is fetched so that the pack can be computed against it.
+ */
+class GitPackPublisher {
+
+	/**
+	 * User name sent along with an OAuth2 token when authenticating a push
+	 */
+	static final String TOKEN_USER = "x-access-token";
+
+	private static final String TRACKING_PREFIX = Constants.R_REMOTES + "site/";
+
+	private static final Map<File, Object> LOCKS = new ConcurrentHashMap<>();
+
+	private final File gitDirectory;
+
+	private final String remoteUrl;
+
+	private final CredentialsProvider credentials;
+
+	private final Proxy proxy;
+
+	private final Log log;
+
+	private boolean merge;
+
+	private boolean force;
+
+	private boolean noJekyll;
+
+	private boolean dryRun;
+
+	private boolean incremental;
+
+	private int attempts = 1;
+
+	/**
+	 * Create publisher
+	 *
+	 * @param gitDirectory directory of the local bare repository, created if missing
+	 * @param remoteUrl    URL of the remote repository
+	 * @param credentials  credentials used to authenticate, may be null
+	 * @param proxy        HTTP proxy to connect through, may be null
+	 * @param log
+	 */
+	GitPackPublisher(File gitDirectory, String remoteUrl, CredentialsProvider credentials, Proxy proxy, Log log) {
+		this.gitDirectory = gitDirectory;
+		this.remoteUrl = remoteUrl;
+		this.credentials = credentials;
+		this.proxy = proxy;
+		this.log = log;
+	}
+
+	/**
+	 * @param merge true to keep the entries of the current tree that are not overwritten
+	 * @return this publisher
+	 */
+	GitPackPublisher setMerge(boolean merge) {
+		this.merge = merge;
+		return this;
+	}
+
+	/**
+	 * @param force true to update the branch even if it is not a fast-forward
+	 * @return this publisher
+	 */
+	GitPackPublisher setForce(boolean force) {
+		this.force = force;
+		return this;
+	}
+
+	/**
+	 * @param noJekyll true to create an empty {@link SiteMojo#NO_JEKYLL_FILE} if one doesn't already exist
+	 * @return this publisher
+	 */
+	GitPackPublisher setNoJekyll(boolean noJekyll) {
+		this.noJekyll = noJekyll;
+		return this;
+	}
+
+	/**
+	 * @param dryRun true to build the commit without pushing it
+	 * @return this publisher
+	 */
+	GitPackPublisher setDryRun(boolean dryRun) {
+		this.dryRun = dryRun;
+		return this;
+	}
+
+	/**
+	 * @param incremental true to keep the entries of the current tree outside of the prefix and drop the ones below it
+	 *                    that are not overwritten
+	 * @return this publisher
+	 */
+	GitPackPublisher setIncremental(boolean incremental) {
+		this.incremental = incremental;
+		return this;
+	}
+
+	/**
+	 * @param attempts number of times the push is attempted when it is rejected because the branch moved
+	 * @return this publisher
+	 */
+	GitPackPublisher setAttempts(int attempts) {
+		this.attempts = attempts;
+		return this;
+	}
+
+	/**
+	 * Commit the given files and push the commit to the given branch
+	 *
+	 * @param baseDir directory the paths are relative to
+	 * @param paths   paths of the files to commit
+	 * @param prefix  path relative to the root of the repository that all files are placed below
+	 * @param branch  full name of the branch to update
+	 * @param message commit message
+	 * @param author  author and committer of the commit
+	 * @return SHA-1 of the created commit
+	 * @throws MojoExecutionException
+	 */
+	String publish(File baseDir, String[] paths, String prefix, String branch, String message, PersonIdent author)
+			throws MojoExecutionException {
+		// Only publishers sharing a local repository are serialized, the proxy is set per transport
+		synchronized (getLock(this.gitDirectory)) {
+			try (Repository repository = openRepository(); Git git = Git.wrap(repository)) {
+				ObjectId head = fetchHead(git, branch);
+				Map<String, ObjectId> blobs = insertBlobs(repository, baseDir, paths, prefix);
+				for (int attempt = 1;; attempt++) {
+					ObjectId commit = createCommit(repository, head, blobs, prefix, message, author);
+					if (head != null) {
+						this.log.info(MessageFormat.format("Updating reference {0} from {1} to {2}", branch,
+								head.name(), commit.name()));
+					} else {
+						this.log.info(MessageFormat.format("Creating reference {0} starting at commit {1}", branch,
+								commit.name()));
+					}
+					if (this.dryRun || push(git, commit, branch)) {
+						return commit.name();
+					}
+					if (attempt >= this.attempts) {
+						throw new IOException(
+								MessageFormat.format("Updating {0} was rejected {1} times", branch, attempt));
+					}
+					// Rebuild the commit on the new head, the blobs are already in the local repository
+					long delay = SiteMojo.getRetryDelay(attempt);
+					this.log.info(MessageFormat.format("Reference {0} was updated concurrently, retrying in {1} ms",
+							branch, delay));
+					Thread.sleep(delay);
+					head = fetchHead(git, branch);
+				}
+			} catch (IOException | GitAPIException e) {
+				throw new MojoExecutionException("Error pushing to " + this.remoteUrl + ": " + e.getMessage(), e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MojoExecutionException("Interrupted while pushing to " + this.remoteUrl, e);
+			}
+		}
+	}
+
+	/**
+	 * Connect the given transport through the configured proxy, if any
+	 *
+	 * @param transport
+	 */
+	private void configureTransport(Transport transport) {
+		if (this.proxy != null && transport instanceof TransportHttp http) {
+			http.setHttpConnectionFactory(new ProxyConnectionFactory(HttpTransport.getConnectionFactory(), this.proxy));
+		}
+	}
+
+	private Repository openRepository() throws IOException {
+		Repository repository = new FileRepositoryBuilder().setGitDir(this.gitDirectory).setBare().build();
+		if (!repository.getObjectDatabase().exists()) {
+			repository.create(true);
+		}
+		return repository;
+	}
+
+	/**
+	 * Fetch the current head commit of the branch unless it is already available locally
+	 *
+	 * @param git
+	 * @param branch
+	 * @return head commit or null if the branch doesn't exist yet
+	 * @throws GitAPIException
+	 * @throws IOException
+	 */
+	ObjectId fetchHead(Git git, String branch) throws GitAPIException, IOException {
+		Ref remote = git.lsRemote().setRemote(this.remoteUrl).setCredentialsProvider(this.credentials)
+				.setTransportConfigCallback(this::configureTransport).callAsMap()
+				.get(branch);
+		if (remote == null) {
+			return null;
+		}
+		ObjectId head = remote.getObjectId();
+		if (git.getRepository().getObjectDatabase().has(head)) {
+			if (this.log.isDebugEnabled()) {
+				this.log.debug(MessageFormat.format("Head {0} of {1} is already available locally", head.name(), branch));
+			}
+			return head;
+		}
+
+		String tracking = TRACKING_PREFIX + Repository.shortenRefName(branch);
+		if (this.log.isDebugEnabled()) {
+			this.log.debug(MessageFormat.format("Fetching head {0} of {1}", head.name(), branch));
+		}
+		git.fetch().setRemote(this.remoteUrl).setCredentialsProvider(this.credentials)
+				.setTransportConfigCallback(this::configureTransport).setDepth(1)
+				.setRefSpecs(new RefSpec("+" + branch + ":" + tracking)).call();
+		return head;
+	}
+
+	/**
+	 * Insert the given files and, if configured, an empty {@link SiteMojo#NO_JEKYLL_FILE} as blobs
+	 *
+	 * @param repository
+	 * @param baseDir
+	 * @param paths
+	 * @param prefix
+	 * @return blob ids by path in the tree
+	 * @throws IOException
+	 */
+	private Map<String, ObjectId> insertBlobs(Repository repository, File baseDir, String[] paths, String prefix)
+			throws IOException {
+		Map<String, ObjectId> blobs = new LinkedHashMap<>(paths.length);
+		try (ObjectInserter inserter = repository.newObjectInserter()) {
+			for (String path : paths) {
+				File file = new File(baseDir, path);
+				try (InputStream stream = new FileInputStream(file)) {
+					blobs.put(prefix + path.replace('\\', '/'),
+							inserter.insert(Constants.OBJ_BLOB, file.length(), stream));
+				}
+			}
+
+			if (this.noJekyll && !blobs.containsKey(SiteMojo.NO_JEKYLL_FILE)) {
+				if (this.log.isDebugEnabled()) {
+					this.log.debug("Creating empty .nojekyll blob at root of tree");
+				}
+				blobs.put(SiteMojo.NO_JEKYLL_FILE, inserter.insert(Constants.OBJ_BLOB, new byte[0]));
+			}
+			inserter.flush();
+		}
+		return blobs;
+	}
+
+	private ObjectId createCommit(Repository repository, ObjectId head, Map<String, ObjectId> blobs, String prefix,
+			String message, PersonIdent author) throws IOException {
+		DirCache index = DirCache.newInCore();
+		DirCacheBuilder builder = index.builder();
+
+		try (ObjectInserter inserter = repository.newObjectInserter()) {
+			for (Map.Entry<String, ObjectId> blob : blobs.entrySet()) {
+				DirCacheEntry entry = new DirCacheEntry(blob.getKey());
+				entry.setFileMode(FileMode.REGULAR_FILE);
+				entry.setObjectId(blob.getValue());
+				builder.add(entry);
+			}
+
+			if ((this.merge || this.incremental) && head != null) {
+				try (RevWalk walk = new RevWalk(repository); TreeWalk tree = new TreeWalk(repository)) {
+					RevCommit current = walk.parseCommit(head);
+					this.log.info(MessageFormat.format("Merging with tree {0}", current.getTree().name()));
+					tree.addTree(current.getTree());
+					tree.setRecursive(true);
+					while (tree.next()) {
+						String entryPath = tree.getPathString();
+						if (!blobs.containsKey(entryPath) && !isRemoved(entryPath, prefix)) {
+							DirCacheEntry entry = new DirCacheEntry(entryPath);
+							entry.setFileMode(tree.getFileMode(0));
+							entry.setObjectId(tree.getObjectId(0));
+							builder.add(entry);
+						}
+					}
+				}
+			}
+			builder.finish();
+
+			ObjectId tree = index.writeTree(inserter);
+			this.log.info(MessageFormat.format("Creating tree {0} with {1} entries", tree.name(),
+					Integer.valueOf(index.getEntryCount())));
+
+			CommitBuilder commit = new CommitBuilder();
+			commit.setTreeId(tree);
+			if (head != null) {
+				commit.setParentId(head);
+			}
+			commit.setAuthor(author);
+			commit.setCommitter(author);
+			commit.setMessage(message);
+			ObjectId created = inserter.insert(commit);
+			inserter.flush();
+			this.log.info(MessageFormat.format("Creating commit with SHA-1: {0}", created.name()));
+			return created;
+		}
+	}
+
+	/**
+	 * Is the given entry of the current tree removed when publishing incrementally?
+	 *
+	 * @param path
+	 * @param prefix
+	 * @return true if removed, false if kept
+	 */
+	private boolean isRemoved(String path, String prefix) {
+		return this.incremental && path.startsWith(prefix) && !(this.noJekyll && SiteMojo.NO_JEKYLL_FILE.equals(path));
+	}
+
+	/**
+	 * Push the commit to the branch
+	 *
+	 * @param git
+	 * @param commit
+	 * @param branch
+	 * @return true if pushed, false if rejected because the branch moved
+	 * @throws GitAPIException
+	 * @throws IOException
+	 */
+	private boolean push(Git git, ObjectId commit, String branch) throws GitAPIException, IOException {
+		RefSpec spec = new RefSpec(commit.name() + ":" + branch).setForceUpdate(this.force);
+		Iterable<PushResult> results = git.push().setRemote(this.remoteUrl).setCredentialsProvider(this.credentials)
+				.setTransportConfigCallback(this::configureTransport).setRefSpecs(spec).setThin(true).call();
+		for (PushResult result : results) {
+			for (RemoteRefUpdate update : result.getRemoteUpdates()) {
+				RemoteRefUpdate.Status status = update.getStatus();
+				if (status == RemoteRefUpdate.Status.REJECTED_NONFASTFORWARD
+						|| status == RemoteRefUpdate.Status.REJECTED_REMOTE_CHANGED) {
+					return false;
+				}
+				if (status != RemoteRefUpdate.Status.OK && status != RemoteRefUpdate.Status.UP_TO_DATE) {
+					String reason = update.getMessage() != null ? status + " (" + update.getMessage() + ")"
+							: status.toString();
+					throw new IOException(MessageFormat.format("Updating {0} was rejected: {1}",
+							update.getRemoteName(), reason));
+				}
+			}
+		}
+		return true;
+	}
+
+	// static helpers
+
+	/**
+	 * Get the URL to push to for the given API base URI and repository
+	 *
+	 * @param baseUri base URI of the API, e.g. <em>https://api.github.com</em>
+	 * @param repository
+	 * @return URL of the remote repository
+	 */
+	static String getRemoteUrl(String baseUri, RepositoryId repository) {
+		String base = baseUri;
+		if (base.endsWith("://" + HOST_API)) {
+			base = base.substring(0, base.length() - HOST_API.length()) + HOST_DEFAULT;
+		}
+		return base + "/" + repository.generateId() + SUFFIX_GIT;
+	}
+
+	/**
+	 * Get the lock guarding the local repository in the given directory
+	 *
+	 * @param gitDirectory
+	 * @return lock object shared by all publishers of the directory
+	 */
+	static Object getLock(File gitDirectory) {
+		return LOCKS.computeIfAbsent(gitDirectory.getAbsoluteFile().toPath().normalize().toFile(), key -> new Object());
+	}
+
+	/**
+	 * Connection factory which ignores the proxy selected by JGit and always connects through the configured one
+	 */
+	private static class ProxyConnectionFactory implements HttpConnectionFactory {
+
+		private final HttpConnectionFactory delegate;
+
+		private final Proxy proxy;
+
+		ProxyConnectionFactory(HttpConnectionFactory delegate, Proxy proxy) {
+			this.delegate = delegate;
+			this.proxy = proxy;
+		}
+
+		@Override
+		public HttpConnection create(URL url) throws IOException {
+			return this.delegate.create(url, this.proxy);
+		}
+
+		@Override
+		public HttpConnection create(URL url, Proxy ignored) throws IOException {
+			return this.delegate.create(url, this.proxy);
+		}
+	}
+}
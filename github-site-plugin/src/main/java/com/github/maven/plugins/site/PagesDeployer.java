@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_REPOS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+
+import com.github.maven.plugins.core.egit.GitHubClientEgit;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Deploys a site archive to GitHub Pages through the Pages deployment API: the archive is uploaded in one streamed
+ * request, a deployment is created for it and the deployment status is polled until it finishes.
+ */
+class PagesDeployer {
+
+	/**
+	 * Status of a successfully finished deployment
+	 */
+	static final String STATUS_SUCCEED = "succeed";
+
+	private static final Set<String> STATUS_FAILED = new HashSet<>(Arrays.asList("deployment_cancelled",
+			"deployment_failed", "deployment_content_failed", "deployment_attempt_error", "deployment_lost"));
+
+	private static final String SEGMENT_PAGES_DEPLOYMENTS = "/pages/deployments";
+
+	private final GitHubClientEgit client;
+
+	private final Log log;
+
+	/**
+	 * Create deployer
+	 *
+	 * @param client
+	 * @param log
+	 */
+	PagesDeployer(GitHubClientEgit client, Log log) {
+		this.client = client;
+		this.log = log;
+	}
+
+	/**
+	 * Upload the archive to the given URL in a single streamed PUT request. No GitHub credentials are sent, the URL
+	 * is expected to authorize the upload on its own.
+	 *
+	 * @param archive
+	 * @param uploadUrl
+	 * @throws IOException
+	 */
+	void upload(File archive, String uploadUrl) throws IOException {
+		HttpURLConnection connection = open(uploadUrl);
+		try (FileChannel source = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+			long size = source.size();
+			connection.setRequestMethod("PUT");
+			connection.setDoOutput(true);
+			connection.setFixedLengthStreamingMode(size);
+			connection.setRequestProperty("Content-Type", "application/gzip");
+			connection.setRequestProperty("x-ms-blob-type", "BlockBlob");
+			try (OutputStream output = connection.getOutputStream()) {
+				WritableByteChannel target = Channels.newChannel(output);
+				long position = 0;
+				while (position < size) {
+					position += source.transferTo(position, size - position, target);
+				}
+			}
+			int status = connection.getResponseCode();
+			if (status < 200 || status >= 300) {
+				throw new IOException(MessageFormat.format("Uploading archive failed with {0} {1}",
+						Integer.toString(status), connection.getResponseMessage()));
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Request an OIDC token from the GitHub Actions token service
+	 *
+	 * @param requestUrl   value of <em>ACTIONS_ID_TOKEN_REQUEST_URL</em>
+	 * @param requestToken value of <em>ACTIONS_ID_TOKEN_REQUEST_TOKEN</em>
+	 * @return token
+	 * @throws IOException
+	 */
+	String requestOidcToken(String requestUrl, String requestToken) throws IOException {
+		HttpURLConnection connection = open(requestUrl);
+		try {
+			connection.setRequestProperty("Authorization", "Bearer " + requestToken);
+			connection.setRequestProperty("Accept", "application/json");
+			int status = connection.getResponseCode();
+			if (status != HttpURLConnection.HTTP_OK) {
+				throw new IOException(MessageFormat.format("Requesting OIDC token failed with {0} {1}",
+						Integer.toString(status), connection.getResponseMessage()));
+			}
+			try (InputStream stream = connection.getInputStream();
+					Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+				JsonObject response = JsonParser.parseReader(reader).getAsJsonObject();
+				return response.get("value").getAsString();
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Create a Pages deployment of an uploaded artifact
+	 *
+	 * @param repository
+	 * @param artifactUrl
+	 * @param buildVersion SHA-1 of the commit the site was built from
+	 * @param oidcToken
+	 * @param environment  name of the environment to deploy to
+	 * @return created deployment
+	 * @throws IOException
+	 */
+	PagesDeployment createDeployment(RepositoryId repository, String artifactUrl, String buildVersion,
+			String oidcToken, String environment) throws IOException {
+		Map<String, Object> params = new HashMap<>();
+		params.put("artifact_url", artifactUrl);
+		params.put("pages_build_version", buildVersion);
+		params.put("oidc_token", oidcToken);
+		params.put("environment", environment);
+		return this.client.post(getDeploymentsUri(repository), params, PagesDeployment.class);
+	}
+
+	/**
+	 * Poll the status of a deployment until it succeeded, failed or the timeout elapsed
+	 *
+	 * @param repository
+	 * @param deployment
+	 * @param timeout    maximum time to wait in milliseconds
+	 * @param interval   time between status requests in milliseconds
+	 * @return last status reported
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	String waitForDeployment(RepositoryId repository, PagesDeployment deployment, long timeout, long interval)
+			throws IOException, InterruptedException {
+		GitHubRequest request = new GitHubRequest();
+		request.setUri(getDeploymentsUri(repository) + "/" + deployment.getId());
+		request.setType(PagesDeployment.class);
+
+		long deadline = System.currentTimeMillis() + timeout;
+		String status = null;
+		while (true) {
+			String current = ((PagesDeployment) this.client.get(request).getBody()).getStatus();
+			if (!Objects.equals(current, status)) {
+				this.log.info(MessageFormat.format("Pages deployment {0} is {1}", deployment.getId(), current));
+				status = current;
+			}
+			if (STATUS_SUCCEED.equals(status) || STATUS_FAILED.contains(status)
+					|| System.currentTimeMillis() + interval > deadline) {
+				return status;
+			}
+			Thread.sleep(interval);
+		}
+	}
+
+	private HttpURLConnection open(String url) throws IOException {
+		return this.client.openConnection(new URL(url));
+	}
+
+	private static String getDeploymentsUri(RepositoryId repository) {
+		return SEGMENT_REPOS + "/" + repository.generateId() + SEGMENT_PAGES_DEPLOYMENTS;
+	}
+
+	/**
+	 * Pages deployment as returned by the deployment API
+	 */
+	static class PagesDeployment {
+
+		private String id;
+
+		private String status;
+
+		private String statusUrl;
+
+		private String pageUrl;
+
+		/**
+		 * @return id
+		 */
+		String getId() {
+			return this.id;
+		}
+
+		/**
+		 * @return status, only set when the status was requested
+		 */
+		String getStatus() {
+			return this.status;
+		}
+
+		/**
+		 * @return URL of the deployment status
+		 */
+		String getStatusUrl() {
+			return this.statusUrl;
+		}
+
+		/**
+		 * @return URL the site is served from
+		 */
+		String getPageUrl() {
+			return this.pageUrl;
+		}
+	}
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.Arrays;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
+import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.egit.github.core.client.GitHubClient;
+
+import com.github.maven.plugins.core.GitHubProjectMojo;
+import com.github.maven.plugins.core.PathUtils;
+import com.github.maven.plugins.core.StringUtils;
+import com.github.maven.plugins.core.TarGzWriter;
+import com.github.maven.plugins.core.egit.GitHubClientEgit;
+import com.github.maven.plugins.site.PagesDeployer.PagesDeployment;
+
+/**
+ * Mojo which deploys files to GitHub Pages as a single archive through the Pages deployment API. Unlike the
+ * <em>site</em> goal no branch is updated, so no blobs, trees or commits are created.
+ */
+@Mojo(name = "pages")
+public class PagesMojo extends GitHubProjectMojo {
+
+	/**
+	 * The name of the repository. This setting must be set if the project's URL and scm metadata are not set.
+	 */
+	@Parameter(property = "github.pages.repositoryName")
+	private String repositoryName;
+
+	/**
+	 * The owner of repository. This setting must be set if the project's URL and scm metadata are not set.
+	 */
+	@Parameter(property = "github.pages.repositoryOwner")
+	private String repositoryOwner;
+
+	/**
+	 * The user name for authentication
+	 */
+	@Parameter(property = "github.pages.userName", defaultValue = "${github.global.userName}")
+	private String userName;
+
+	/**
+	 * The password for authentication
+	 */
+	@Parameter(property = "github.pages.password", defaultValue = "${github.global.password}")
+	private String password;
+
+	/**
+	 * The oauth2 token for authentication
+	 */
+	@Parameter(property = "github.pages.oauth2Token", defaultValue = "${github.global.oauth2Token}")
+	private String oauth2Token;
+
+	/**
+	 * The Host for API calls.
+	 */
+	@Parameter(property = "github.pages.host", defaultValue = "${github.global.host}")
+	private String host;
+
+	/**
+	 * The <em>id</em> of the server to use to retrieve the Github credentials. This id must identify a <em>server</em>
+	 * from your <em>setting.xml</em> file.
+	 */
+	@Parameter(property = "github.pages.server", defaultValue = "${github.global.server}")
+	private String server;
+
+	/**
+	 * Paths and patterns to include
+	 */
+	@Parameter
+	private String[] includes;
+
+	/**
+	 * Paths and patterns to exclude
+	 */
+	@Parameter
+	private String[] excludes;
+
+	/**
+	 * The base directory to deploy files from. <em>target/site</em> by default.
+	 */
+	@Parameter(property = "siteOutputDirectory", defaultValue = "${project.reporting.outputDirectory}", required = true)
+	private File outputDirectory;
+
+	/**
+	 * The gzip compressed tar archive the files are written to before uploading.
+	 */
+	@Parameter(property = "github.pages.archive", defaultValue = "${project.build.directory}/github-pages.tar.gz")
+	private File archive;
+
+	/**
+	 * URL the archive is uploaded to with a single PUT request, e.g. a pre-signed artifact upload URL.
+	 */
+	@Parameter(property = "github.pages.artifactUploadUrl")
+	private String artifactUploadUrl;
+
+	/**
+	 * URL of the uploaded artifact passed to the deployment. Defaults to the upload URL.
+	 */
+	@Parameter(property = "github.pages.artifactUrl")
+	private String artifactUrl;
+
+	/**
+	 * SHA-1 of the commit the site was built from.
+	 */
+	@Parameter(property = "github.pages.buildVersion", defaultValue = "${env.GITHUB_SHA}")
+	private String buildVersion;
+
+	/**
+	 * OIDC token authorizing the deployment. Requested from the GitHub Actions token service if not set.
+	 */
+	@Parameter(property = "github.pages.oidcToken")
+	private String oidcToken;
+
+	/**
+	 * The environment to deploy to.
+	 */
+	@Parameter(property = "github.pages.environment", defaultValue = "github-pages")
+	private String environment;
+
+	/**
+	 * Maximum number of seconds to wait for the deployment to finish.
+	 */
+	@Parameter(property = "github.pages.timeout", defaultValue = "600")
+	private int timeout;
+
+	/**
+	 * Number of seconds between two deployment status requests.
+	 */
+	@Parameter(property = "github.pages.pollInterval", defaultValue = "5")
+	private int pollInterval;
+
+	/**
+	 * The project being built
+	 */
+	@Parameter(defaultValue = "${project}", required = true, readonly = true)
+	private MavenProject project;
+
+	/**
+	 * The Maven settings
+	 */
+	@Parameter(defaultValue = "${settings}", required = true, readonly = true)
+	private Settings settings;
+
+	/**
+	 * Only create the archive but don't upload or deploy it.
+	 */
+	@Parameter(property = "github.pages.dryRun")
+	private boolean dryRun;
+
+	/**
+	 * Skip the deployment.
+	 */
+	@Parameter(property = "github.pages.skip", defaultValue = "false")
+	private boolean skip;
+
+	@Override
+	public void execute() throws MojoExecutionException {
+		if (this.skip) {
+			info("Github Pages deployment skipped");
+			return;
+		}
+
+		RepositoryId repository = getRepository(this.project, this.repositoryOwner, this.repositoryName);
+
+		String baseDir = this.outputDirectory.getAbsolutePath();
+		String[] includePaths = StringUtils.removeEmpties(this.includes);
+		String[] excludePaths = StringUtils.removeEmpties(this.excludes);
+		if (isDebug()) {
+			debug(MessageFormat.format("Scanning {0} and including {1} and exluding {2}", baseDir,
+					Arrays.toString(includePaths), Arrays.toString(excludePaths)));
+		}
+		String[] paths = PathUtils.getMatchingPaths(includePaths, excludePaths, baseDir);
+
+		info(MessageFormat.format("Creating archive {0} with {1} files", this.archive, paths.length));
+		createArchive(paths);
+
+		if (this.dryRun) {
+			info("Dry run mode, archive will not be deployed");
+			return;
+		}
+		if (StringUtils.isEmpty(this.artifactUploadUrl)) {
+			throw new MojoExecutionException("No artifact upload URL configured");
+		}
+		if (StringUtils.isEmpty(this.buildVersion)) {
+			throw new MojoExecutionException("No build version configured");
+		}
+
+		GitHubClient client = createClient(this.host, this.userName, this.password, this.oauth2Token, this.server,
+				this.settings);
+		if (!(client instanceof GitHubClientEgit clientEgit)) {
+			throw new MojoExecutionException("Pages deployments require a " + GitHubClientEgit.class.getSimpleName());
+		}
+		PagesDeployer deployer = new PagesDeployer(clientEgit, getLog());
+
+		try {
+			info(MessageFormat.format("Uploading archive with {0} bytes", this.archive.length()));
+			deployer.upload(this.archive, this.artifactUploadUrl);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error uploading archive: " + e.getMessage(), e);
+		}
+
+		String status;
+		try {
+			String token = getOidcToken(deployer);
+			String url = !StringUtils.isEmpty(this.artifactUrl) ? this.artifactUrl : this.artifactUploadUrl;
+			PagesDeployment deployment = deployer.createDeployment(repository, url, this.buildVersion, token,
+					this.environment);
+			info(MessageFormat.format("Created Pages deployment {0} for {1}", deployment.getId(),
+					deployment.getPageUrl()));
+			status = deployer.waitForDeployment(repository, deployment, this.timeout * 1000L,
+					this.pollInterval * 1000L);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error deploying archive: " + e.getMessage(), e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while waiting for deployment", e);
+		}
+
+		if (!PagesDeployer.STATUS_SUCCEED.equals(status)) {
+			throw new MojoExecutionException(MessageFormat.format("Pages deployment did not succeed: {0}", status));
+		}
+	}
+
+	private void createArchive(String[] paths) throws MojoExecutionException {
+		File parent = this.archive.getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+			throw new MojoExecutionException("Unable to create directory " + parent);
+		}
+		try (TarGzWriter writer = new TarGzWriter(this.archive)) {
+			for (String path : paths) {
+				writer.addFile(path.replace('\\', '/'), new File(this.outputDirectory, path));
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error creating archive: " + e.getMessage(), e);
+		}
+	}
+
+	private String getOidcToken(PagesDeployer deployer) throws IOException, MojoExecutionException {
+		if (!StringUtils.isEmpty(this.oidcToken)) {
+			return this.oidcToken;
+		}
+		String requestUrl = System.getenv("ACTIONS_ID_TOKEN_REQUEST_URL");
+		String requestToken = System.getenv("ACTIONS_ID_TOKEN_REQUEST_TOKEN");
+		if (StringUtils.isEmpty(requestUrl, requestToken)) {
+			throw new MojoExecutionException("No OIDC token configured and not running in GitHub Actions");
+		}
+		if (isDebug()) {
+			debug("Requesting OIDC token from GitHub Actions");
+		}
+		return deployer.requestOidcToken(requestUrl, requestToken);
+	}
+}
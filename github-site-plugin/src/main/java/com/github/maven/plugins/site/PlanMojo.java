@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Mojo which writes the plan of a site right after it was generated: the paths, sizes and blob SHA-1s of the files to
+ * deploy and the SHA-1s of the trees they form. The <em>site</em> goal configured with the same plan, possibly on
+ * another machine, then skips scanning and hashing the site and only reads the files it uploads.
+ */
+@Mojo(name = "plan", threadSafe = true)
+public class PlanMojo extends SiteMojo {
+
+	/**
+	 * Name of the plan file written to the build directory if no plan is configured
+	 */
+	static final String DEFAULT_PLAN = "github-site.plan";
+
+	@Override
+	public void execute() throws MojoExecutionException {
+		if (isSkip()) {
+			info("Github Site Plugin execution skipped");
+			return;
+		}
+
+		String[] paths = getMatchingPaths();
+		// Taken before hashing, so a file changed meanwhile is hashed again when deploying
+		Map<String, Long> modified = new HashMap<>(paths.length * 2);
+		for (String path : paths) {
+			modified.put(path.replace('\\', '/'), getModified(path));
+		}
+		Map<String, String> shas = hash(paths);
+		SitePlan plan = SitePlan.create(paths, shas, this::getSize, modified::get);
+
+		File file = getPlan();
+		if (file == null) {
+			file = new File(getProject().getBuild().getDirectory(), DEFAULT_PLAN);
+		}
+		try {
+			plan.write(file);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error writing plan: " + e.getMessage(), e);
+		}
+		info(MessageFormat.format("Wrote plan of {0} files in {1} trees with root tree {2} to {3}", plan.size(),
+				plan.getTreeCount(), plan.getTree(""), file));
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Planner choosing the cheapest way to publish a change set. The cost of every strategy is estimated as the number of
+ * requests it makes plus one request per mebibyte sent, so that a few large requests compare fairly with many small
+ * ones:
+ * <ul>
+ * <li><em>contents</em>: one Contents API request per changed or removed file, each creating a commit of its own</li>
+ * <li><em>data</em>: one request per blob and six per batch for the user, reference, commit, tree, new commit and
+ * reference update</li>
+ * <li><em>git</em>: five requests for the user, fetching the branch and pushing a single pack, plus fetching the
+ * head of the branch which grows with the size of the remote tree</li>
+ * </ul>
+ */
+class PublishPlanner {
+
+	/**
+	 * Strategy to publish a change set with
+	 */
+	enum Strategy {
+
+		/**
+		 * One Contents API request per file
+		 */
+		CONTENTS,
+
+		/**
+		 * Blobs, trees and commits through the git data API
+		 */
+		DATA,
+
+		/**
+		 * A single pack pushed over the Git smart HTTP protocol
+		 */
+		GIT;
+
+		@Override
+		public String toString() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	/**
+	 * Estimated cost of publishing with one strategy
+	 */
+	static class Plan {
+
+		private final Strategy strategy;
+
+		private final long requests;
+
+		private final long bytes;
+
+		Plan(Strategy strategy, long requests, long bytes) {
+			this.strategy = strategy;
+			this.requests = requests;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * @return strategy
+		 */
+		Strategy getStrategy() {
+			return this.strategy;
+		}
+
+		/**
+		 * @return predicted number of requests
+		 */
+		long getRequests() {
+			return this.requests;
+		}
+
+		/**
+		 * @return predicted number of bytes sent
+		 */
+		long getBytes() {
+			return this.bytes;
+		}
+
+		/**
+		 * @return requests plus one request per mebibyte sent
+		 */
+		long getCost() {
+			return this.requests + (this.bytes >> 20);
+		}
+
+		@Override
+		public String toString() {
+			return MessageFormat.format("{0} ({1} requests, {2} bytes)", this.strategy, this.requests, this.bytes);
+		}
+	}
+
+	/**
+	 * Largest file sent through the Contents API
+	 */
+	static final long CONTENTS_MAX_BYTES = 1 << 20;
+
+	/**
+	 * Requests made by every batch of the data API besides the blobs
+	 */
+	static final int DATA_BATCH_REQUESTS = 6;
+
+	/**
+	 * Requests made by a git push including fetching the head of the branch
+	 */
+	static final int GIT_REQUESTS = 5;
+
+	/**
+	 * Number of remote files whose fetch is estimated to cost as much as one request
+	 */
+	static final int GIT_FETCH_ENTRIES = 100;
+
+	private final int maxBatchEntries;
+
+	private final long maxBatchBytes;
+
+	private int maxContentsFiles;
+
+	private boolean git;
+
+	/**
+	 * Create planner
+	 *
+	 * @param maxBatchEntries maximum number of files committed per batch of the data API
+	 * @param maxBatchBytes   maximum number of encoded bytes committed per batch of the data API
+	 */
+	PublishPlanner(int maxBatchEntries, long maxBatchBytes) {
+		this.maxBatchEntries = maxBatchEntries;
+		this.maxBatchBytes = maxBatchBytes;
+	}
+
+	/**
+	 * @param maxContentsFiles maximum number of changed and removed files published through the Contents API, 0 to
+	 *                         never use it
+	 * @return this planner
+	 */
+	PublishPlanner setMaxContentsFiles(int maxContentsFiles) {
+		this.maxContentsFiles = maxContentsFiles;
+		return this;
+	}
+
+	/**
+	 * @param git true if the change set may be pushed as a pack
+	 * @return this planner
+	 */
+	PublishPlanner setGit(boolean git) {
+		this.git = git;
+		return this;
+	}
+
+	/**
+	 * Estimate the cost of all strategies applicable to the change set
+	 *
+	 * @param sizes          sizes of the changed files
+	 * @param deletions      number of removed files
+	 * @param createNoJekyll true if an empty {@link SiteMojo#NO_JEKYLL_FILE} has to be created
+	 * @param remoteFiles    number of files on the branch, -1 if the branch doesn't exist
+	 * @return plans ordered by cost, cheapest first
+	 */
+	List<Plan> estimate(long[] sizes, int deletions, boolean createNoJekyll, int remoteFiles) {
+		int files = sizes.length + (createNoJekyll ? 1 : 0);
+		long bytes = 0;
+		long encodedBytes = 0;
+		boolean small = true;
+		for (long size : sizes) {
+			bytes += size;
+			encodedBytes += BatchSizer.encodedSize(size);
+			small &= size <= CONTENTS_MAX_BYTES;
+		}
+
+		List<Plan> plans = new ArrayList<>(3);
+		// Every file is committed on its own, which only pays off for tiny change sets on an existing branch
+		if (small && remoteFiles >= 0 && files + deletions <= this.maxContentsFiles) {
+			plans.add(new Plan(Strategy.CONTENTS, files + deletions, encodedBytes));
+		}
+		plans.add(new Plan(Strategy.DATA, files + (long) countBatches(sizes) * DATA_BATCH_REQUESTS, encodedBytes));
+		if (this.git) {
+			plans.add(new Plan(Strategy.GIT, GIT_REQUESTS + Math.max(remoteFiles, 0) / GIT_FETCH_ENTRIES, bytes));
+		}
+		plans.sort(Comparator.comparingLong(Plan::getCost));
+		return plans;
+	}
+
+	/**
+	 * Choose the cheapest strategy for the change set
+	 *
+	 * @param sizes          sizes of the changed files
+	 * @param deletions      number of removed files
+	 * @param createNoJekyll true if an empty {@link SiteMojo#NO_JEKYLL_FILE} has to be created
+	 * @param remoteFiles    number of files on the branch, -1 if the branch doesn't exist
+	 * @return cheapest plan
+	 */
+	Plan plan(long[] sizes, int deletions, boolean createNoJekyll, int remoteFiles) {
+		return estimate(sizes, deletions, createNoJekyll, remoteFiles).get(0);
+	}
+
+	/**
+	 * Count the batches the data API commits the files in
+	 *
+	 * @param sizes
+	 * @return number of batches, at least one
+	 */
+	private int countBatches(long[] sizes) {
+		long[] encoded = new long[sizes.length];
+		for (int i = 0; i < sizes.length; i++) {
+			encoded[i] = BatchSizer.encodedSize(sizes[i]);
+		}
+		BatchSizer batches = new BatchSizer(this.maxBatchEntries, this.maxBatchBytes);
+		int count = 0;
+		int start = 0;
+		do {
+			start = batches.next(encoded, start);
+			count++;
+		} while (start < encoded.length);
+		return count;
+	}
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.eclipse.egit.github.core.TypedResource.TYPE_COMMIT;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_BLOBS;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_CONTENTS;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_GIT;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_REPOS;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_TREES;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.eclipse.egit.github.core.Commit;
+import org.eclipse.egit.github.core.Reference;
+import org.eclipse.egit.github.core.ShaResource;
+import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.egit.github.core.Tree;
+import org.eclipse.egit.github.core.TreeEntry;
+import org.eclipse.egit.github.core.client.RequestException;
+import org.eclipse.egit.github.core.service.DataService;
+import org.eclipse.egit.github.core.util.EncodingUtils;
+
+import com.github.maven.plugins.core.egit.GitHubClientEgit;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+/**
+ * Head commit of a branch together with the SHA-1s of all blobs in its tree
+ */
+class RemoteTree {
+
+	private final String commit;
+
+	private final String tree;
+
+	private final BlobIndex blobs;
+
+	/**
+	 * Create remote tree
+	 *
+	 * @param commit SHA-1 of the head commit, null if the branch doesn't exist
+	 * @param tree   SHA-1 of the tree of the head commit, null if the branch doesn't exist
+	 * @param blobs  blob SHA-1s by path
+	 */
+	RemoteTree(String commit, String tree, BlobIndex blobs) {
+		this.commit = commit;
+		this.tree = tree;
+		this.blobs = blobs;
+	}
+
+	/**
+	 * @return SHA-1 of the head commit, null if the branch doesn't exist
+	 */
+	String getCommit() {
+		return this.commit;
+	}
+
+	/**
+	 * @return SHA-1 of the tree of the head commit, null if the branch doesn't exist
+	 */
+	String getTree() {
+		return this.tree;
+	}
+
+	/**
+	 * @return blob SHA-1s by path
+	 */
+	BlobIndex getBlobs() {
+		return this.blobs;
+	}
+
+	/**
+	 * Get the paths below the given prefix that are not part of the given paths
+	 *
+	 * @param prefix empty or ending with a slash
+	 * @param paths  paths to keep, including the prefix
+	 * @return sorted paths to delete
+	 */
+	List<String> getRemoved(String prefix, Set<String> paths) {
+		List<String> removed = new ArrayList<>();
+		for (String path : this.blobs.paths()) {
+			if (path.startsWith(prefix) && !paths.contains(path)) {
+				removed.add(path);
+			}
+		}
+		Collections.sort(removed);
+		return removed;
+	}
+
+	// static helpers
+
+	/**
+	 * Load the head commit of the branch and the blobs of its tree
+	 *
+	 * @param service
+	 * @param repository
+	 * @param branch     full name of the branch
+	 * @param executor   executor subtrees of trees too large to read at once are read with
+	 * @return remote tree, empty if the branch doesn't exist
+	 * @throws IOException
+	 */
+	static RemoteTree load(DataService service, RepositoryId repository, String branch, Executor executor)
+			throws IOException {
+		Reference ref;
+		try {
+			ref = service.getReference(repository, branch);
+		} catch (RequestException e) {
+			if (404 != e.getStatus()) {
+				throw e;
+			}
+			return new RemoteTree(null, null, new BlobIndex());
+		}
+		if (!TYPE_COMMIT.equals(ref.getObject().getType())) {
+			throw new IOException(
+					MessageFormat.format("Existing ref {0} points to a {1} ({2}) instead of a commmit", ref.getRef(),
+							ref.getObject().getType(), ref.getObject().getSha()));
+		}
+
+		String commit = ref.getObject().getSha();
+		String tree = service.getCommit(repository, commit).getTree().getSha();
+		BlobIndex blobs = new TreeReader(service, repository, executor).read(tree);
+		return new RemoteTree(commit, tree, blobs);
+	}
+
+	/**
+	 * Recreate the latest commits of the given head on top of a new root commit if its history is longer
+	 *
+	 * @param service
+	 * @param repository
+	 * @param head       SHA-1 of the current head commit
+	 * @param count      number of commits to keep
+	 * @return SHA-1 of the commit to use as parent, the given head if its history is not longer
+	 * @throws IOException
+	 */
+	static String retainHistory(DataService service, RepositoryId repository, String head, int count)
+			throws IOException {
+		List<Commit> retained = new ArrayList<>(count);
+		Commit current = service.getCommit(repository, head);
+		retained.add(current);
+		while (retained.size() < count) {
+			if (current.getParents() == null || current.getParents().isEmpty()) {
+				return head;
+			}
+			current = service.getCommit(repository, current.getParents().get(0).getSha());
+			retained.add(current);
+		}
+		if (current.getParents() == null || current.getParents().isEmpty()) {
+			return head;
+		}
+
+		// The oldest retained commit becomes the root, merged branches are dropped
+		String parent = null;
+		for (int i = retained.size() - 1; i >= 0; i--) {
+			Commit original = retained.get(i);
+			Commit copy = new Commit();
+			copy.setMessage(original.getMessage());
+			copy.setTree(original.getTree());
+			copy.setAuthor(original.getAuthor());
+			copy.setCommitter(original.getCommitter());
+			if (parent != null) {
+				copy.setParents(Collections.singletonList(new Commit().setSha(parent)));
+			}
+			parent = service.createCommit(repository, copy).getSha();
+		}
+		return parent;
+	}
+
+	/**
+	 * Create a tree from the given entries. Unlike {@link DataService#createTree(RepositoryId, java.util.Collection,
+	 * String)} entries without SHA-1 are sent with an explicit null SHA-1, which deletes the path from the base tree.
+	 *
+	 * @param service
+	 * @param repository
+	 * @param entries
+	 * @param baseTree   SHA-1 of the tree to apply the entries to, may be null
+	 * @return created tree
+	 * @throws IOException
+	 */
+	static Tree createTree(DataService service, RepositoryId repository, List<TreeEntry> entries, String baseTree)
+			throws IOException {
+		JsonArray tree = new JsonArray();
+		for (TreeEntry entry : entries) {
+			JsonObject json = new JsonObject();
+			json.addProperty("path", entry.getPath());
+			json.addProperty("mode", entry.getMode());
+			json.addProperty("type", entry.getType());
+			if (entry.getSha() != null) {
+				json.addProperty("sha", entry.getSha());
+			} else {
+				json.add("sha", JsonNull.INSTANCE);
+			}
+			tree.add(json);
+		}
+		JsonObject params = new JsonObject();
+		params.add("tree", tree);
+		if (baseTree != null) {
+			params.addProperty("base_tree", baseTree);
+		}
+		String uri = SEGMENT_REPOS + "/" + repository.generateId() + SEGMENT_GIT + SEGMENT_TREES;
+		return service.getClient().post(uri, params, Tree.class);
+	}
+
+	/**
+	 * Commit a single file through the Contents API. The SHA-1 of the current blob makes the request fail with 409 if
+	 * the file was changed in the meantime.
+	 *
+	 * @param service
+	 * @param repository
+	 * @param branch     name of the branch without <em>refs/heads/</em>
+	 * @param path       path in the tree
+	 * @param content    new content, null to delete the file
+	 * @param sha        SHA-1 of the blob currently at the path, null if there is none
+	 * @param message    commit message
+	 * @throws IOException
+	 */
+	static void putContents(DataService service, RepositoryId repository, String branch, String path, byte[] content,
+			String sha, String message) throws IOException {
+		JsonObject params = new JsonObject();
+		params.addProperty("message", message);
+		params.addProperty("branch", branch);
+		if (sha != null) {
+			params.addProperty("sha", sha);
+		}
+		StringBuilder uri = new StringBuilder(SEGMENT_REPOS).append('/').append(repository.generateId())
+				.append(SEGMENT_CONTENTS);
+		for (String segment : path.split("/")) {
+			uri.append('/').append(URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20"));
+		}
+		if (content != null) {
+			params.addProperty("content", EncodingUtils.toBase64(content));
+			service.getClient().put(uri.toString(), params, JsonObject.class);
+		} else {
+			service.getClient().delete(uri.toString(), params);
+		}
+	}
+
+	/**
+	 * Does the repository have the blob? Asked without transferring its content.
+	 *
+	 * @param client
+	 * @param repository
+	 * @param sha
+	 * @return true if the blob exists
+	 * @throws IOException
+	 */
+	static boolean hasBlob(GitHubClientEgit client, RepositoryId repository, String sha) throws IOException {
+		return client.exists(SEGMENT_REPOS + "/" + repository.generateId() + SEGMENT_GIT + SEGMENT_BLOBS + "/" + sha);
+	}
+
+	/**
+	 * Create a blob from a stream, encoding it on the fly so that its content is never held in memory
+	 *
+	 * @param client
+	 * @param repository
+	 * @param content    stream to read to its end, not closed
+	 * @param length     number of bytes the stream provides
+	 * @return SHA-1 of the created blob
+	 * @throws IOException
+	 */
+	static String createBlob(GitHubClientEgit client, RepositoryId repository, InputStream content, long length)
+			throws IOException {
+		byte[] head = "{\"encoding\":\"base64\",\"content\":\"".getBytes(StandardCharsets.US_ASCII);
+		byte[] tail = "\"}".getBytes(StandardCharsets.US_ASCII);
+		long encoded = (length + 2) / 3 * 4;
+		String uri = SEGMENT_REPOS + "/" + repository.generateId() + SEGMENT_GIT + SEGMENT_BLOBS;
+		ShaResource created = client.postStreaming(uri, head.length + encoded + tail.length, output -> {
+			output.write(head);
+			// Closing the encoder writes the padding but must leave the request open
+			try (OutputStream base64 = Base64.getEncoder().wrap(new FilterOutputStream(output) {
+
+				@Override
+				public void write(byte[] bytes, int offset, int count) throws IOException {
+					this.out.write(bytes, offset, count);
+				}
+
+				@Override
+				public void close() throws IOException {
+					flush();
+				}
+			})) {
+				long copied = content.transferTo(base64);
+				if (copied != length) {
+					throw new IOException("Read " + copied + " bytes instead of " + length);
+				}
+			}
+			output.write(tail);
+		}, ShaResource.class);
+		return created.getSha();
+	}
+}
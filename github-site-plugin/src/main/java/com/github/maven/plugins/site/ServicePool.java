@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.util.List;
+
+import org.eclipse.egit.github.core.service.DataService;
+
+/**
+ * Services of the same host authenticated with different credentials. Every request is routed to the service whose
+ * credentials have the most requests left in the current rate limit window, counting the requests still in flight.
+ * Each service keeps its own rate limiter.
+ */
+class ServicePool {
+
+	private final List<DataService> services;
+
+	private final int[] inFlight;
+
+	/**
+	 * Create pool
+	 *
+	 * @param services non-empty, the first one is the primary service
+	 */
+	ServicePool(List<DataService> services) {
+		if (services.isEmpty()) {
+			throw new IllegalArgumentException("No services");
+		}
+		this.services = services;
+		this.inFlight = new int[services.size()];
+	}
+
+	/**
+	 * @return service used for requests that need to stay on one set of credentials
+	 */
+	DataService getPrimary() {
+		return this.services.get(0);
+	}
+
+	/**
+	 * @return number of pooled services
+	 */
+	int size() {
+		return this.services.size();
+	}
+
+	/**
+	 * Send a request through the service with the largest remaining budget
+	 *
+	 * @param request
+	 * @return result of the request
+	 * @throws E
+	 */
+	<T, E extends Exception> T execute(Request<T, E> request) throws E {
+		int index = acquire();
+		try {
+			return request.send(this.services.get(index));
+		} finally {
+			release(index);
+		}
+	}
+
+	/**
+	 * Choose the service with the most requests left. A service whose budget is not known yet is preferred so every
+	 * one reports its budget early.
+	 *
+	 * @return index of the service
+	 */
+	synchronized int acquire() {
+		int best = 0;
+		long bestBudget = Long.MIN_VALUE;
+		for (int i = 0; i < this.services.size(); i++) {
+			int remaining = this.services.get(i).getClient().getRemainingRequests();
+			long budget = (remaining < 0 ? Integer.MAX_VALUE : remaining) - (long) this.inFlight[i];
+			if (budget > bestBudget) {
+				best = i;
+				bestBudget = budget;
+			}
+		}
+		this.inFlight[best]++;
+		return best;
+	}
+
+	/**
+	 * Mark a request sent through the given service as finished
+	 *
+	 * @param index
+	 */
+	synchronized void release(int index) {
+		this.inFlight[index]--;
+	}
+
+	/**
+	 * Request sent through one of the pooled services
+	 *
+	 * @param <T> result
+	 * @param <E> exception thrown on failures
+	 */
+	interface Request<T, E extends Exception> {
+
+		/**
+		 * @param service
+		 * @return result
+		 * @throws E
+		 */
+		T send(DataService service) throws E;
+	}
+}
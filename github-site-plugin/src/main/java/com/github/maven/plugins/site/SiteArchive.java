@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.github.maven.plugins.core.PathUtils;
+
+/**
+ * Site packaged as zip or jar archive, such as a <em>-site.jar</em>. Entries are read straight from the archive, so
+ * the site never has to be extracted.
+ */
+class SiteArchive implements Closeable {
+
+	/**
+	 * Entries added by the archiver rather than the site, never published
+	 */
+	static final String[] DEFAULT_EXCLUDES = { "META-INF/**" };
+
+	private final File file;
+
+	private final ZipFile zip;
+
+	/**
+	 * Open archive
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	SiteArchive(File file) throws IOException {
+		this.file = file;
+		this.zip = new ZipFile(file);
+	}
+
+	/**
+	 * Find the files matching the given patterns
+	 *
+	 * @param includes
+	 * @param excludes excluded in addition to the {@link #DEFAULT_EXCLUDES}
+	 * @return entry names of all files included and not excluded, in the order of the archive
+	 */
+	String[] getMatchingPaths(String[] includes, String[] excludes) {
+		List<String> excluded = new ArrayList<>(Arrays.asList(DEFAULT_EXCLUDES));
+		if (excludes != null) {
+			excluded.addAll(Arrays.asList(excludes));
+		}
+		String[] allExcludes = excluded.toArray(new String[0]);
+		List<String> paths = new ArrayList<>();
+		Enumeration<? extends ZipEntry> entries = this.zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			if (!entry.isDirectory() && PathUtils.isMatchingPath(includes, allExcludes, entry.getName())) {
+				paths.add(entry.getName());
+			}
+		}
+		return paths.toArray(new String[0]);
+	}
+
+	/**
+	 * @param path entry name
+	 * @return uncompressed size of the entry
+	 * @throws FileNotFoundException if there is no such entry
+	 */
+	long getSize(String path) throws FileNotFoundException {
+		return getEntry(path).getSize();
+	}
+
+	/**
+	 * Open an entry for reading its uncompressed content
+	 *
+	 * @param path entry name
+	 * @return stream
+	 * @throws IOException
+	 */
+	InputStream open(String path) throws IOException {
+		return this.zip.getInputStream(getEntry(path));
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.zip.close();
+	}
+
+	@Override
+	public String toString() {
+		return this.file.toString();
+	}
+
+	private ZipEntry getEntry(String path) throws FileNotFoundException {
+		ZipEntry entry = this.zip.getEntry(path);
+		if (entry == null || entry.isDirectory()) {
+			throw new FileNotFoundException(path + " not found in " + this.file);
+		}
+		return entry;
+	}
+}
@@ -22,6 +22,7 @@
 package com.github.maven.plugins.site;
 
 import static org.eclipse.egit.github.core.Blob.ENCODING_BASE64;
+import static org.eclipse.egit.github.core.Blob.ENCODING_UTF8;
 import static org.eclipse.egit.github.core.TreeEntry.MODE_BLOB;
 import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
 import static org.eclipse.egit.github.core.TypedResource.TYPE_COMMIT;
@@ -30,12 +31,26 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -43,6 +58,9 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.settings.Settings;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.LocalRepositoryManager;
 import org.eclipse.egit.github.core.Blob;
 import org.eclipse.egit.github.core.Commit;
 import org.eclipse.egit.github.core.CommitUser;
@@ -52,14 +70,24 @@ import org.eclipse.egit.github.core.Tree;
 import org.eclipse.egit.github.core.TreeEntry;
 import org.eclipse.egit.github.core.TypedResource;
 import org.eclipse.egit.github.core.User;
+import org.eclipse.egit.github.core.client.GitHubClient;
 import org.eclipse.egit.github.core.client.RequestException;
 import org.eclipse.egit.github.core.service.DataService;
 import org.eclipse.egit.github.core.service.UserService;
 import org.eclipse.egit.github.core.util.EncodingUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 
+import com.github.maven.plugins.core.BlobUtils;
+import com.github.maven.plugins.core.BlobUtils.TextDetector;
 import com.github.maven.plugins.core.GitHubProjectMojo;
 import com.github.maven.plugins.core.PathUtils;
+import com.github.maven.plugins.core.RateLimitedGitHubClient;
 import com.github.maven.plugins.core.StringUtils;
+import com.github.maven.plugins.core.egit.GitHubClientEgit;
+import com.github.maven.plugins.core.egit.GitHubClientEgit.Operation;
 
 /**
  * Mojo which copies files to a GitHub repository branch. This directly uses the GitHub data API to upload blobs, make
@@ -67,7 +95,7 @@ import com.github.maven.plugins.core.StringUtils;
  *
  * @author Kevin Sawicki (kevin@github.com)
  */
-@Mojo(name = "site")
+@Mojo(name = "site", threadSafe = true)
 public class SiteMojo extends GitHubProjectMojo {
 
 	/**
@@ -75,6 +103,42 @@ public class SiteMojo extends GitHubProjectMojo {
 	 */
 	public static final String NO_JEKYLL_FILE = ".nojekyll";
 
+	/**
+	 * Backend creating blobs, trees and commits through the GitHub data API
+	 */
+	public static final String BACKEND_DATA = "data";
+
+	/**
+	 * Backend pushing a single pack over the Git smart HTTP protocol
+	 */
+	public static final String BACKEND_GIT = "git";
+
+	/**
+	 * Backend choosing the cheapest way to publish every change set
+	 */
+	public static final String BACKEND_AUTO = "auto";
+
+	/**
+	 * Base delay in milliseconds before a rejected reference update is retried, doubled with every attempt
+	 */
+	private static final long REFERENCE_RETRY_DELAY = 100;
+
+	/**
+	 * Size from which files are always streamed instead of read into memory
+	 */
+	private static final long STREAMING_THRESHOLD = 8 << 20;
+
+	/**
+	 * Memory held while streaming a file
+	 */
+	private static final long STREAMING_BUFFER = 64 << 10;
+
+	/**
+	 * Memory held while encoding a file in memory relative to its size: the content, the decoded text or base64
+	 * string, the JSON string and its bytes
+	 */
+	private static final int WORKING_SET_FACTOR = 6;
+
 	/**
 	 * Branch to update
 	 */
@@ -88,9 +152,10 @@ public class SiteMojo extends GitHubProjectMojo {
 	private String path;
 
 	/**
-	 * The commit message used when committing the site.
+	 * The commit message used when committing the site. Required by all goals committing, but not by the <em>plan</em>
+	 * goal inheriting the parameters.
 	 */
-	@Parameter(required = true)
+	@Parameter
 	private String message;
 
 	/**
@@ -136,6 +201,15 @@ public class SiteMojo extends GitHubProjectMojo {
 	@Parameter(property = "github.site.server", defaultValue = "${github.global.server}")
 	private String server;
 
+	/**
+	 * Ids of further servers from your <em>settings.xml</em> whose credentials are pooled with the configured ones to
+	 * multiply the available rate limit. Every blob is uploaded with the credentials that have the most requests left,
+	 * each credential keeping its own rate limiter. Trees, commits and reference updates always use the configured
+	 * credentials. All credentials need write access to the repository.
+	 */
+	@Parameter
+	private String[] servers;
+
 	/**
 	 * Paths and patterns to include
 	 */
@@ -198,36 +272,246 @@ public class SiteMojo extends GitHubProjectMojo {
 	@Parameter(property = "github.site.dryRun")
 	private boolean dryRun;
 
+	/**
+	 * Maximum number of files committed per batch. Batches are reduced automatically when GitHub rejects a request as
+	 * too large.
+	 */
+	@Parameter(property = "github.site.maxBatchEntries", defaultValue = "500")
+	private int maxBatchEntries;
+
+	/**
+	 * Maximum number of encoded blob bytes committed per batch. A single larger file still forms a batch of its own.
+	 */
+	@Parameter(property = "github.site.maxBatchBytes", defaultValue = "52428800")
+	private long maxBatchBytes;
+
+	/**
+	 * How to publish the files: <em>data</em> creates every blob through the GitHub data API, <em>git</em> builds the
+	 * commit locally and pushes it as a single pack over the Git smart HTTP protocol, which is much faster for very
+	 * large sites. <em>auto</em> diffs the files against the branch and picks whichever of the two or the Contents API
+	 * is predicted to be cheapest for the change set.
+	 */
+	@Parameter(property = "github.site.backend", defaultValue = BACKEND_DATA)
+	private String backend;
+
+	/**
+	 * Size in bytes from which a file is only uploaded if the repository doesn't have its blob yet, which is checked
+	 * with a request not transferring any content. 0 to always upload.
+	 */
+	@Parameter(property = "github.site.probeThreshold", defaultValue = "1048576")
+	private long probeThreshold;
+
+	/**
+	 * Maximum number of changed and removed files the <em>auto</em> backend publishes through the Contents API, which
+	 * creates one commit per file. 0 to never use it.
+	 */
+	@Parameter(property = "github.site.maxContentsFiles", defaultValue = "1")
+	private int maxContentsFiles;
+
+	/**
+	 * URL of the repository to push to when using the <em>git</em> backend. Derived from the host and repository by
+	 * default.
+	 */
+	@Parameter(property = "github.site.gitUrl")
+	private String gitUrl;
+
+	/**
+	 * Local bare repository used by the <em>git</em> backend to build the commit. It is kept between builds so that
+	 * only new remote commits have to be fetched.
+	 */
+	@Parameter(property = "github.site.gitDirectory", defaultValue = "${project.build.directory}/github-site-git")
+	private File gitDirectory;
+
+	/**
+	 * Number of times a reference update is attempted. An update is rejected when the branch was moved by another
+	 * deployment in the meantime, it is then retried on top of the new head without uploading any blob again.
+	 */
+	@Parameter(property = "github.site.referenceAttempts", defaultValue = "5")
+	private int referenceAttempts;
+
+	/**
+	 * Only send what changed: files are compared with the blobs on the branch below <em>path</em>, unchanged files are
+	 * skipped and files no longer present locally are deleted from the branch. The tree request then scales with the
+	 * size of the change instead of the size of the site.
+	 */
+	@Parameter(property = "github.site.incremental")
+	private boolean incremental;
+
+	/**
+	 * Repositories, branches and paths to deploy to instead of the single one configured on the goal. Values not set
+	 * on a target are taken from the goal. The files are scanned and hashed once and pushed to all targets
+	 * concurrently, each one diffed against its own branch so only changed files are uploaded.
+	 */
+	@Parameter
+	private SiteTarget[] targets;
+
+	/**
+	 * Connect, read and total timeouts in milliseconds by operation: <em>read</em>, <em>blob</em>, <em>tree</em> or
+	 * <em>write</em>. By default connecting times out after 30 seconds and responses after 60 seconds without data,
+	 * 5 minutes for blobs and trees, without total timeout.
+	 */
+	@Parameter
+	private SiteTimeout[] timeouts;
+
+	/**
+	 * Directories deployed instead of the output directory, each below its own path relative to <em>path</em> and
+	 * with its own includes and excludes. The directories are scanned concurrently and their files committed
+	 * together, with one tree and one reference update.
+	 */
+	@Parameter
+	private SiteSource[] sources;
+
+	/**
+	 * Hedge idempotent requests: reads and the creation of blobs and trees taking longer than 95 percent of the
+	 * recent requests of their kind are sent a second time, and whichever response arrives first is used.
+	 */
+	@Parameter(property = "github.site.hedgeRequests")
+	private boolean hedgeRequests;
+
+	/**
+	 * Number of commits the branch keeps, including the new one: <em>1</em> publishes an orphan commit without parent,
+	 * a larger number keeps the latest commits by recreating them on top of a new root commit, so the size of the
+	 * branch stays proportional to the current site. <em>0</em> keeps the full history. Rewriting the history force
+	 * updates the branch, overwriting whatever was pushed concurrently, so it requires <em>force</em>.
+	 */
+	@Parameter(property = "github.site.keepCommits", defaultValue = "0")
+	private int keepCommits;
+
+	/**
+	 * Number of bytes all concurrent uploads of the session may hold in memory. Files are read and encoded in memory
+	 * only if their working set, six times their size, fits into it and they are smaller than 8 MiB, larger files are
+	 * streamed.
+	 */
+	@Parameter(property = "github.site.maxInFlightBytes", defaultValue = "67108864")
+	private long maxInFlightBytes;
+
+	/**
+	 * Number of blobs uploaded concurrently. The upload threads are shared by all modules of a parallel build.
+	 */
+	@Parameter(property = "github.site.threads", defaultValue = "4")
+	private int threads;
+
+	/**
+	 * Highest number of blobs uploaded concurrently. Starting at the number of threads, the concurrency of the uploads
+	 * to a host grows by one while requests stay fast and is halved when GitHub throttles them or their latency
+	 * spikes. Throttled uploads are retried. Defaults to the number of threads, so the concurrency is only reduced.
+	 */
+	@Parameter(property = "github.site.maxThreads", defaultValue = "0")
+	private int maxThreads;
+
+	/**
+	 * Send request bodies gzip compressed. Whether the host accepts compressed requests is probed once per host, if it
+	 * doesn't they are sent uncompressed. Mostly useful for large trees sent over slow links.
+	 */
+	@Parameter(property = "github.site.compressRequests")
+	private boolean compressRequests;
+
+	/**
+	 * Share the rate limit of each host and credentials with all builds running on this machine, through a state
+	 * file in ~/.m2/github-rate-limits. Concurrent builds using the same token then draw from one budget instead of
+	 * each pacing its requests as if it was alone.
+	 */
+	@Parameter(property = "github.site.shareRateLimit")
+	private boolean shareRateLimit;
+
 	/**
 	 * Skip the site upload.
 	 */
 	@Parameter(property = "github.site.skip", defaultValue = "false")
 	private boolean skip;
 
+	/**
+	 * Plan written by the <em>plan</em> goal. The files, their sizes and blob SHA-1s are then taken from it instead of
+	 * scanning and hashing the output directory, so only the files that need to be uploaded are read.
+	 */
+	@Parameter(property = "github.site.plan")
+	private File plan;
+
+	/**
+	 * Zip or jar archive of the site, such as a <em>-site.jar</em>, to deploy instead of the output directory. The
+	 * includes and excludes apply to the names of its entries, which are read without extracting the archive.
+	 */
+	@Parameter(property = "github.site.archive")
+	private File archive;
+
+	/**
+	 * Coordinates of a site archive in the local repository to deploy instead of the output directory, as
+	 * <em>groupId:artifactId[:extension[:classifier]]:version</em>, e.g. <em>com.example:app:jar:site:1.0</em>.
+	 */
+	@Parameter(property = "github.site.archiveArtifact")
+	private String archiveArtifact;
+
+	private SiteArchive siteArchive;
+
+	/**
+	 * Scanned sources, null until scanned
+	 */
+	private SiteSources siteSources;
+
+	/**
+	 * SHA-1 of the root tree of the plan, null without plan or if files changed since it was written
+	 */
+	private String plannedTree;
+
 	@Override
 	public void execute() throws MojoExecutionException {
 		if (this.skip) {
 			info("Github Site Plugin execution skipped");
 			return;
 		}
-
-		RepositoryId repository = getRepository(this.project, this.repositoryOwner, this.repositoryName);
+		checkMessage();
 
 		if (this.dryRun) {
 			info("Dry run mode, repository will not be modified");
 		}
 
-		// Find files to include
-		String baseDir = this.outputDirectory.getAbsolutePath();
-		String[] includePaths = StringUtils.removeEmpties(this.includes);
-		String[] excludePaths = StringUtils.removeEmpties(this.excludes);
-
-		if (isDebug()) {
-			debug(MessageFormat.format("Scanning {0} and including {1} and exluding {2}", baseDir,
-					Arrays.toString(includePaths), Arrays.toString(excludePaths)));
+		File archiveFile = getArchive();
+		if (archiveFile == null) {
+			deploySite();
+			return;
+		}
+		if (BACKEND_GIT.equals(this.backend)) {
+			throw new MojoExecutionException("Archives are only supported by the data backend");
 		}
+		if (hasSources()) {
+			throw new MojoExecutionException("Sources can't be deployed together with an archive");
+		}
+		if (this.plan != null) {
+			throw new MojoExecutionException("A plan can't be deployed from an archive");
+		}
+		info(MessageFormat.format("Deploying archive {0}", archiveFile));
+		try (SiteArchive opened = new SiteArchive(archiveFile)) {
+			this.siteArchive = opened;
+			deploySite();
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error reading archive: " + e.getMessage(), e);
+		} finally {
+			this.siteArchive = null;
+		}
+	}
 
-		String[] paths = PathUtils.getMatchingPaths(includePaths, excludePaths, baseDir);
+	/**
+	 * Deploy the files of the plan, the archive or the output directory
+	 *
+	 * @throws MojoExecutionException
+	 */
+	private void deploySite() throws MojoExecutionException {
+		String[] paths;
+		Map<String, String> shas = null;
+		if (this.plan != null) {
+			SitePlan sitePlan;
+			try {
+				sitePlan = SitePlan.read(this.plan);
+			} catch (IOException e) {
+				throw new MojoExecutionException("Error reading plan: " + e.getMessage(), e);
+			}
+			info(MessageFormat.format("Using plan {0} of {1} files", this.plan, sitePlan.size()));
+			paths = sitePlan.getPaths();
+			this.plannedTree = sitePlan.getTree("");
+			shas = getPlannedShas(sitePlan);
+		} else {
+			paths = getMatchingPaths();
+		}
 
 		if (paths.length != 1) {
 			info(MessageFormat.format("Creating {0} blobs", paths.length));
@@ -235,219 +519,1295 @@ public class SiteMojo extends GitHubProjectMojo {
 			info("Creating 1 blob");
 		}
 
-		if (isDebug()) {
-			debug(MessageFormat.format("Scanned files to include: {0}", Arrays.toString(paths)));
+		boolean fanOut = this.targets != null && this.targets.length > 0;
+		if (BACKEND_GIT.equals(this.backend)) {
+			if (fanOut) {
+				throw new MojoExecutionException("Multiple targets are only supported by the data backend");
+			}
+			if (this.keepCommits > 0) {
+				throw new MojoExecutionException("Retaining history is only supported by the data backend");
+			}
+			if (hasSources()) {
+				throw new MojoExecutionException("Sources are only supported by the data backend");
+			}
+			pushPack(getTargetRepository(), paths);
+			return;
 		}
-
-		// Push updates in multiple passes
-		final int capacity = 500;
-		int start = 0;
-		int end = Math.min(capacity, paths.length);
-		while (start < paths.length) {
-			info("Sending batch: [" + start + " - " + end + ")");
-			String[] subpaths = copyOfRange(paths, start, end);
-			doExecute(repository, subpaths);
-			start = end;
-			end = end + capacity < paths.length ? end + capacity : paths.length;
+		if (!BACKEND_DATA.equals(this.backend) && !BACKEND_AUTO.equals(this.backend)) {
+			throw new MojoExecutionException(MessageFormat.format("Unknown backend ''{0}''", this.backend));
 		}
-	}
-
-	private void doExecute(RepositoryId repository, String[] subpaths) throws MojoExecutionException {
-		DataService service = new DataService(
-				createClient(this.host, this.userName, this.password, this.oauth2Token, this.server, this.settings));
 
-		// Write blobs and build tree entries
-		List<TreeEntry> entries = new ArrayList<>(subpaths.length);
-		String prefix = this.path != null ? this.path : "";
-		if (prefix.length() > 0 && !prefix.endsWith("/")) {
-			prefix += "/";
+		// Push updates in multiple passes, sized by entry count and payload bytes
+		if (this.maxBatchEntries < 1 || this.maxBatchBytes < 1) {
+			throw new MojoExecutionException("Batch limits must be positive");
 		}
-
-		// Convert separator to forward slash '/'
-		if ('\\' == File.separatorChar) {
-			for (int i = 0; i < subpaths.length; i++) {
-				subpaths[i] = subpaths[i].replace('\\', '/');
-			}
+		if (this.threads < 1 || this.referenceAttempts < 1) {
+			throw new MojoExecutionException("Number of threads and reference attempts must be positive");
 		}
-
-		boolean createNoJekyll = this.noJekyll;
-
-		for (String subpath : subpaths) {
-			TreeEntry entry = new TreeEntry();
-			entry.setPath(prefix + subpath);
-			// Only create a .nojekyll file if it doesn't already exist
-			if (createNoJekyll && NO_JEKYLL_FILE.equals(entry.getPath())) {
-				createNoJekyll = false;
-			}
-			entry.setType(TYPE_BLOB);
-			entry.setMode(MODE_BLOB);
-			entry.setSha(createBlob(service, repository, subpath));
-			entries.add(entry);
+		if (this.keepCommits < 0) {
+			throw new MojoExecutionException("Number of commits to keep must not be negative");
 		}
+		if (this.keepCommits > 0 && !this.force) {
+			throw new MojoExecutionException(
+					"Keeping only the latest commits force updates the branch and requires force to be set");
+		}
+		if (this.maxInFlightBytes < 1) {
+			throw new MojoExecutionException("Number of bytes in flight must be positive");
+		}
+		if (this.maxThreads != 0 && this.maxThreads < this.threads) {
+			throw new MojoExecutionException("Maximum number of threads must not be less than the number of threads");
+		}
+		if (this.probeThreshold < 0) {
+			throw new MojoExecutionException("Probe threshold must not be negative");
+		}
+		if (this.maxContentsFiles < 0) {
+			throw new MojoExecutionException("Maximum number of files committed one by one must not be negative");
+		}
+		SiteTarget defaults = getDefaultTarget();
+		if (!fanOut) {
+			deploy(defaults, paths, shas);
+			return;
+		}
+		deployAll(defaults, paths, shas != null ? shas : hash(paths));
+	}
 
-		if (createNoJekyll) {
-			TreeEntry entry = new TreeEntry();
-			entry.setPath(NO_JEKYLL_FILE);
-			entry.setType(TYPE_BLOB);
-			entry.setMode(MODE_BLOB);
-
-			if (isDebug()) {
-				debug("Creating empty .nojekyll blob at root of tree");
+	/**
+	 * Get the blob SHA-1s of the planned files, hashing only the files whose size or modification time changed since
+	 * the plan was written. The planned tree is discarded if any did.
+	 *
+	 * @param sitePlan
+	 * @return SHA-1s by path
+	 * @throws MojoExecutionException
+	 */
+	private Map<String, String> getPlannedShas(SitePlan sitePlan) throws MojoExecutionException {
+		Map<String, String> shas = new HashMap<>(sitePlan.size() * 2);
+		for (int i = 0; i < sitePlan.size(); i++) {
+			String path = sitePlan.getPath(i);
+			File file;
+			try {
+				file = getFile(path);
+			} catch (IOException e) {
+				throw new MojoExecutionException("Error reading plan: " + e.getMessage(), e);
 			}
-
-			if (!this.dryRun) {
+			if (!file.isFile()) {
+				throw new MojoExecutionException(MessageFormat.format("File {0} of the plan is missing", file));
+			}
+			String sha = sitePlan.getSha(i);
+			if (file.length() != sitePlan.getSize(i) || file.lastModified() != sitePlan.getModified(i)) {
+				info(MessageFormat.format("File {0} changed since the plan was written", path));
+				this.plannedTree = null;
 				try {
-					entry.setSha(
-							service.createBlob(repository, new Blob().setEncoding(ENCODING_BASE64).setContent("")));
+					sha = BlobUtils.sha1(file);
 				} catch (IOException e) {
-					throw new MojoExecutionException("Error creating .nojekyll empty blob: " + e.getMessage(), e);
+					throw new MojoExecutionException("Error reading file: " + e.getMessage(), e);
 				}
 			}
-			entries.add(entry);
+			shas.put(path, sha);
 		}
+		return shas;
+	}
 
-		Reference ref = null;
+	/**
+	 * Deploy to all targets concurrently. The files are hashed once and every target is diffed against its own branch.
+	 *
+	 * @param defaults
+	 * @param paths
+	 * @param shas     blob SHA-1s by path
+	 * @throws MojoExecutionException
+	 */
+	private void deployAll(SiteTarget defaults, String[] paths, Map<String, String> shas)
+			throws MojoExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(this.targets.length);
 		try {
-			ref = service.getReference(repository, this.branch);
-		} catch (RequestException e) {
-			if (404 != e.getStatus()) {
-				throw new MojoExecutionException("Error getting reference: " + e.getMessage(), e);
+			Map<SiteTarget, Future<Void>> deployments = new LinkedHashMap<>();
+			for (SiteTarget target : this.targets) {
+				SiteTarget resolved = target.withDefaults(defaults);
+				deployments.put(resolved, executor.submit(() -> {
+					deploy(resolved, paths, shas);
+					return null;
+				}));
 			}
-		} catch (IOException e) {
-			throw new MojoExecutionException("Error getting reference: " + e.getMessage(), e);
-		}
-
-		if (ref != null && !TYPE_COMMIT.equals(ref.getObject().getType())) {
-			throw new MojoExecutionException(
-					MessageFormat.format("Existing ref {0} points to a {1} ({2}) instead of a commmit", ref.getRef(),
-							ref.getObject().getType(), ref.getObject().getSha()));
-		}
 
-		// Write tree
-		Tree tree;
-		try {
-			int size = entries.size();
-			if (size != 1) {
-				info(MessageFormat.format("Creating tree with {0} blob entries", size));
-			} else {
-				info("Creating tree with 1 blob entry");
-			}
-			String baseTree = null;
-			if (this.merge && ref != null) {
-				Tree currentTree = service.getCommit(repository, ref.getObject().getSha()).getTree();
-				if (currentTree != null) {
-					baseTree = currentTree.getSha();
+			// Let every deployment finish and report the first failure
+			MojoExecutionException failure = null;
+			for (Map.Entry<SiteTarget, Future<Void>> deployment : deployments.entrySet()) {
+				try {
+					deployment.getValue().get();
+				} catch (ExecutionException e) {
+					getLog().error(MessageFormat.format("Deploying to {0} failed: {1}", deployment.getKey(),
+							e.getCause().getMessage()));
+					if (failure == null) {
+						failure = e.getCause() instanceof MojoExecutionException cause ? cause
+								: new MojoExecutionException("Error deploying: " + e.getCause().getMessage(),
+										e.getCause());
+					}
 				}
-				info(MessageFormat.format("Merging with tree {0}", baseTree));
 			}
-			if (!this.dryRun) {
-				tree = service.createTree(repository, entries, baseTree);
-			} else {
-				tree = new Tree();
+			if (failure != null) {
+				throw failure;
 			}
-		} catch (IOException e) {
-			throw new MojoExecutionException("Error creating tree: " + e.getMessage(), e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while deploying", e);
+		} finally {
+			executor.shutdownNow();
 		}
+	}
 
-		// Build commit
-		Commit commit = new Commit();
-		commit.setMessage(this.message);
-		commit.setTree(tree);
-
+	/**
+	 * Compute the blob SHA-1s of the given files concurrently
+	 *
+	 * @param paths
+	 * @return SHA-1s by path
+	 * @throws MojoExecutionException
+	 */
+	Map<String, String> hash(String[] paths) throws MojoExecutionException {
+		ExecutorService executor = getExecutor();
+		List<Future<String>> futures = new ArrayList<>(paths.length);
+		for (String path : paths) {
+			futures.add(executor.submit(() -> hashFile(path)));
+		}
+		Map<String, String> shas = new HashMap<>(paths.length * 2);
 		try {
-			UserService userService = new UserService(service.getClient());
-			User user = userService.getUser();
+			for (int i = 0; i < paths.length; i++) {
+				shas.put(paths[i], futures.get(i).get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			futures.forEach(future -> future.cancel(true));
+			throw new MojoExecutionException("Interrupted while reading files", e);
+		} catch (ExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
+			throw new MojoExecutionException("Error reading file: " + e.getCause().getMessage(), e.getCause());
+		}
+		return shas;
+	}
 
-			CommitUser author = new CommitUser();
-			author.setName(user.getName());
-			author.setEmail(user.getEmail());
-			author.setDate(new GregorianCalendar().getTime());
+	/**
+	 * Deploy the files to one target
+	 *
+	 * @param target
+	 * @param paths  paths relative to the output directory
+	 * @param shas   blob SHA-1s by path to diff against the branch, null to diff only if incremental
+	 * @throws MojoExecutionException
+	 */
+	private void deploy(SiteTarget target, String[] paths, Map<String, String> shas) throws MojoExecutionException {
+		RepositoryId repository = getRepository(this.project, target.getRepositoryOwner(), target.getRepositoryName());
+		DataService service = createService(target);
+		ServicePool services = createPool(target, service);
+		String prefix = target.getPrefix();
+		String name = repository.generateId() + " " + target.getBranch();
 
-			commit.setAuthor(author);
-			commit.setCommitter(author);
-		} catch (IOException e) {
-			throw new MojoExecutionException("Error retrieving user info: " + e.getMessage(), e);
+		// Only send changed files and deletions of removed files when diffing against the branch
+		boolean auto = BACKEND_AUTO.equals(this.backend);
+		String[] allPaths = paths;
+		Map<String, String> hashes = shas != null ? new HashMap<>(shas) : new HashMap<>();
+		RemoteTree remote = null;
+		List<TreeEntry> deletions = Collections.emptyList();
+		boolean createNoJekyll = this.noJekyll;
+		boolean mergeTree = this.merge;
+		if (this.incremental || shas != null || auto) {
+			remote = loadTree(service, repository, target);
+			createNoJekyll = this.noJekyll && !remote.getBlobs().contains(NO_JEKYLL_FILE);
+			// A site planned with the same tree as the branch has neither changes nor removals
+			if (prefix.isEmpty() && !createNoJekyll && this.plannedTree != null
+					&& this.plannedTree.equals(remote.getTree())) {
+				info(MessageFormat.format("{0}: tree {1} of the plan is already on the branch, nothing to commit", name,
+						remote.getTree()));
+				return;
+			}
+			ChangeSet changes = getChanges(remote, allPaths, prefix, hashes);
+			paths = changes.getPaths();
+			deletions = changes.getDeletions();
+			createNoJekyll = changes.isCreateNoJekyll();
+			mergeTree = true;
+			info(MessageFormat.format("{0}: {1} of {2} files changed, {3} removed", name, paths.length,
+					allPaths.length, deletions.size()));
 		}
-
-		// Set parent commit SHA-1 if reference exists
-		if (ref != null) {
-			commit.setParents(Collections.singletonList(new Commit().setSha(ref.getObject().getSha())));
+		if (paths.length == 0 && deletions.isEmpty()) {
+			info(MessageFormat.format("{0}: nothing to commit", name));
+			return;
 		}
 
-		Commit created;
-		try {
+		long[] lengths = getFileSizes(paths);
+		if (auto) {
+			// Pushing a pack and rewriting history are only done for the goal's own target and directory
+			boolean single = shas == null && this.keepCommits == 0 && this.siteArchive == null && !hasSources();
+			PublishPlanner.Plan plan = new PublishPlanner(this.maxBatchEntries, this.maxBatchBytes)
+					.setMaxContentsFiles(this.keepCommits == 0 && target.getBranch().startsWith(Constants.R_HEADS)
+							? this.maxContentsFiles
+							: 0)
+					.setGit(single).plan(lengths, deletions.size(), createNoJekyll,
+							remote.getCommit() != null ? remote.getBlobs().size() : -1);
+			info(MessageFormat.format("{0}: publishing through {1}, {2} requests predicted", name, plan.getStrategy(),
+					plan.getRequests()));
+			if (plan.getStrategy() == PublishPlanner.Strategy.GIT) {
+				pushPack(repository, allPaths);
+				return;
+			}
+			if (plan.getStrategy() == PublishPlanner.Strategy.CONTENTS) {
+				if (putContents(service, repository, target, remote, paths, deletions, createNoJekyll)) {
+					return;
+				}
+				// Files committed before the conflict are already on the branch, diff against it again
+				remote = loadTree(service, repository, target);
+				ChangeSet changes = getChanges(remote, allPaths, prefix, hashes);
+				paths = changes.getPaths();
+				deletions = changes.getDeletions();
+				createNoJekyll = changes.isCreateNoJekyll();
+				info(MessageFormat.format("{0}: {1} of {2} files still changed, {3} removed", name, paths.length,
+						allPaths.length, deletions.size()));
+				if (paths.length == 0 && deletions.isEmpty()) {
+					info(MessageFormat.format("{0}: nothing to commit", name));
+					return;
+				}
+				lengths = getFileSizes(paths);
+			}
+		}
+
+		long[] sizes = new long[paths.length];
+		for (int i = 0; i < paths.length; i++) {
+			sizes[i] = BatchSizer.encodedSize(lengths[i]);
+		}
+		// SHA-1s already planned or hashed for the diff spare hashing large files again when probing
+		String[] known = new String[paths.length];
+		for (int i = 0; i < paths.length; i++) {
+			known[i] = hashes.get(paths[i]);
+		}
+		BatchSizer batches = new BatchSizer(this.maxBatchEntries, this.maxBatchBytes);
+		KeptHistory history = new KeptHistory();
+		int start = 0;
+		do {
+			int end = batches.next(sizes, start);
+			info("Sending batch: [" + start + " - " + end + ")");
+			String[] subpaths = copyOfRange(paths, start, end);
+			String[] subshas = copyOfRange(known, start, end);
+			// Later batches always build on the tree of the previous one
+			if (start == 0) {
+				doExecute(services, repository, target, subpaths, subshas, batches, createNoJekyll, mergeTree,
+						deletions, history);
+			} else {
+				doExecute(services, repository, target, subpaths, subshas, batches, false, true,
+						Collections.emptyList(), history);
+			}
+			start = end;
+		} while (start < paths.length);
+	}
+
+	/**
+	 * Load the tree of the target branch
+	 *
+	 * @param service
+	 * @param repository
+	 * @param target
+	 * @return remote tree
+	 * @throws MojoExecutionException
+	 */
+	private RemoteTree loadTree(DataService service, RepositoryId repository, SiteTarget target)
+			throws MojoExecutionException {
+		RemoteTree remote;
+		try {
+			remote = RemoteTree.load(service, repository, target.getBranch(), getExecutor());
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error getting tree: " + e.getMessage(), e);
+		}
+		if (isDebug()) {
+			debug(MessageFormat.format("Loaded {0} blobs of {1}, indexed in about {2} bytes", remote.getBlobs().size(),
+					target.getBranch(), remote.getBlobs().getMemoryUsage()));
+		}
+		return remote;
+	}
+
+	/**
+	 * Get the changed files and the removed blobs relative to the branch. Replacing the tree is expressed as deleting
+	 * everything else.
+	 *
+	 * @param remote
+	 * @param paths  paths relative to the output directory
+	 * @param prefix
+	 * @param hashes known SHA-1s by path, completed with the ones hashed
+	 * @return change set
+	 * @throws MojoExecutionException
+	 */
+	private ChangeSet getChanges(RemoteTree remote, String[] paths, String prefix, Map<String, String> hashes)
+			throws MojoExecutionException {
+		String removedPrefix = this.incremental ? prefix : !this.merge ? "" : null;
+		try {
+			return ChangeSet.compute(remote, paths, prefix, removedPrefix, this.noJekyll, path -> {
+				String sha = hashes.get(path);
+				if (sha == null) {
+					sha = hashFile(path);
+					hashes.put(path, sha);
+				}
+				return sha;
+			});
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error reading file: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param paths paths relative to the output directory
+	 * @return sizes of the files
+	 * @throws MojoExecutionException
+	 */
+	private long[] getFileSizes(String[] paths) throws MojoExecutionException {
+		long[] lengths = new long[paths.length];
+		try {
+			for (int i = 0; i < paths.length; i++) {
+				lengths[i] = getFileSize(paths[i]);
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error reading file: " + e.getMessage(), e);
+		}
+		return lengths;
+	}
+
+	/**
+	 * Publish a tiny change set through the Contents API, committing every changed or removed file on its own
+	 *
+	 * @param service
+	 * @param repository
+	 * @param target
+	 * @param remote         tree of the branch the change set was computed against
+	 * @param paths          changed paths relative to the output directory
+	 * @param deletions
+	 * @param createNoJekyll
+	 * @return true if published, false if a file was changed concurrently and the data API has to be used instead
+	 * @throws MojoExecutionException
+	 */
+	private boolean putContents(DataService service, RepositoryId repository, SiteTarget target, RemoteTree remote,
+			String[] paths, List<TreeEntry> deletions, boolean createNoJekyll) throws MojoExecutionException {
+		String prefix = target.getPrefix();
+		Map<String, byte[]> contents = new LinkedHashMap<>();
+		try {
+			for (String path : paths) {
+				try (InputStream stream = openFile(path)) {
+					contents.put(prefix + path.replace('\\', '/'), stream.readAllBytes());
+				}
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error reading file: " + e.getMessage(), e);
+		}
+		if (createNoJekyll) {
+			contents.putIfAbsent(NO_JEKYLL_FILE, new byte[0]);
+		}
+		for (TreeEntry deletion : deletions) {
+			contents.put(deletion.getPath(), null);
+		}
+
+		String branch = target.getBranch().substring(Constants.R_HEADS.length());
+		Lock lock = getReferenceLock(repository, target);
+		lock.lock();
+		try {
+			for (Map.Entry<String, byte[]> content : contents.entrySet()) {
+				info(MessageFormat.format("{0} {1} through the Contents API",
+						content.getValue() != null ? "Committing" : "Deleting", content.getKey()));
+				if (!this.dryRun) {
+					RemoteTree.putContents(service, repository, branch, content.getKey(), content.getValue(),
+							remote.getBlobs().get(content.getKey()), this.message);
+				}
+			}
+			return true;
+		} catch (RequestException e) {
+			if (e.getStatus() != 409 && e.getStatus() != 422) {
+				throw new MojoExecutionException("Error updating contents: " + e.getMessage(), e);
+			}
+			info(MessageFormat.format("Contents of {0} changed concurrently ({1}), using the data API instead",
+					target.getBranch(), e.getMessage()));
+			return false;
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error updating contents: " + e.getMessage(), e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void doExecute(ServicePool services, RepositoryId repository, SiteTarget target, String[] subpaths,
+			String[] shas, BatchSizer batches, boolean createNoJekyll, boolean mergeTree, List<TreeEntry> deletions,
+			KeptHistory history) throws MojoExecutionException {
+		DataService service = services.getPrimary();
+		// Write blobs and build tree entries
+		List<TreeEntry> entries = new ArrayList<>(subpaths.length);
+		String prefix = target.getPrefix();
+
+		// Convert separator to forward slash '/'
+		if ('\\' == File.separatorChar) {
+			for (int i = 0; i < subpaths.length; i++) {
+				subpaths[i] = subpaths[i].replace('\\', '/');
+			}
+		}
+
+		ExecutorService executor = getExecutor();
+		AdaptiveConcurrency concurrency = SiteSession.get(this.session).getConcurrency(target.getHost(),
+				() -> new AdaptiveConcurrency(this.threads, getMaxThreads(), getLog()));
+		AtomicInteger probed = new AtomicInteger();
+		List<Future<String>> blobs = new ArrayList<>(subpaths.length);
+		for (int i = 0; i < subpaths.length; i++) {
+			String subpath = subpaths[i];
+			String sha = shas[i];
+			TreeEntry entry = new TreeEntry();
+			entry.setPath(prefix + subpath);
+			// Only create a .nojekyll file if it doesn't already exist
+			if (createNoJekyll && NO_JEKYLL_FILE.equals(entry.getPath())) {
+				createNoJekyll = false;
+			}
+			entry.setType(TYPE_BLOB);
+			entry.setMode(MODE_BLOB);
+			blobs.add(executor.submit(() -> concurrency.execute(getUploadSize(subpath),
+					() -> services.execute(pooled -> uploadBlob(pooled, repository, subpath, sha, probed)))));
+			entries.add(entry);
+		}
+		awaitBlobs(blobs, entries);
+		if (probed.get() > 0) {
+			info(MessageFormat.format("Skipped uploading {0} large blobs the repository already has", probed.get()));
+		}
+		if (service.getClient() instanceof GitHubClientEgit client && client.getHedgedRequests() > 0) {
+			info(MessageFormat.format("Hedged {0} slow requests so far", client.getHedgedRequests()));
+		}
+		if (concurrency.getDecreases() > 0 || concurrency.getPeak() > this.threads) {
+			info(MessageFormat.format("Upload concurrency is {0}, peaked at {1} and was reduced {2} times",
+					concurrency.getLimit(), concurrency.getPeak(), concurrency.getDecreases()));
+		}
+
+		if (createNoJekyll) {
+			TreeEntry entry = new TreeEntry();
+			entry.setPath(NO_JEKYLL_FILE);
+			entry.setType(TYPE_BLOB);
+			entry.setMode(MODE_BLOB);
+
+			if (isDebug()) {
+				debug("Creating empty .nojekyll blob at root of tree");
+			}
+
+			if (!this.dryRun) {
+				try {
+					entry.setSha(
+							service.createBlob(repository, new Blob().setEncoding(ENCODING_BASE64).setContent("")));
+				} catch (IOException e) {
+					throw new MojoExecutionException("Error creating .nojekyll empty blob: " + e.getMessage(), e);
+				}
+			}
+			entries.add(entry);
+		}
+
+		if (!deletions.isEmpty()) {
+			info(MessageFormat.format("Deleting {0} removed files", deletions.size()));
+			entries.addAll(deletions);
+		}
+
+		Lock lock = getReferenceLock(repository, target);
+		lock.lock();
+		try {
+			// A non-forced update is rejected if the branch moved: rebuild tree and commit on the new head
+			CommitUser author = createAuthor(service.getClient());
+			Map<String, Tree> trees = new HashMap<>();
+			for (int attempt = 1; !commit(service, repository, target.getBranch(), entries, mergeTree, batches, author,
+					trees, history); attempt++) {
+				if (attempt >= this.referenceAttempts) {
+					throw new MojoExecutionException(MessageFormat.format(
+							"Error updating reference {0}: rejected {1} times", target.getBranch(), attempt));
+				}
+				long delay = getRetryDelay(attempt);
+				info(MessageFormat.format("Reference {0} was updated concurrently, retrying in {1} ms",
+						target.getBranch(), delay));
+				Thread.sleep(delay);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while updating reference", e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the lock serializing the updates of the target's branch, so only one execution of this session updates the
+	 * reference at a time
+	 *
+	 * @param repository
+	 * @param target
+	 * @return lock
+	 */
+	private Lock getReferenceLock(RepositoryId repository, SiteTarget target) {
+		return SiteSession.get(this.session).getReferenceLock(
+				MessageFormat.format("{0}/{1}:{2}", target.getHost(), repository.generateId(), target.getBranch()));
+	}
+
+	/**
+	 * Wait for all blobs to be created and set their SHA-1s on the entries
+	 *
+	 * @param blobs   blob SHA-1s in the order of the entries
+	 * @param entries
+	 * @throws MojoExecutionException
+	 */
+	private static void awaitBlobs(List<Future<String>> blobs, List<TreeEntry> entries)
+			throws MojoExecutionException {
+		try {
+			for (int i = 0; i < blobs.size(); i++) {
+				entries.get(i).setSha(blobs.get(i).get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			blobs.forEach(blob -> blob.cancel(true));
+			throw new MojoExecutionException("Interrupted while creating blobs", e);
+		} catch (ExecutionException e) {
+			blobs.forEach(blob -> blob.cancel(true));
+			if (e.getCause() instanceof MojoExecutionException cause) {
+				throw cause;
+			}
+			throw new MojoExecutionException("Error creating blob: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * Create tree and commit on top of the current head of the branch and move the branch to the commit
+	 *
+	 * @param service
+	 * @param repository
+	 * @param branch
+	 * @param entries
+	 * @param mergeTree  true to merge the entries into the tree of the current head
+	 * @param batches
+	 * @param author
+	 * @param trees      trees created by earlier attempts by SHA-1 of their base tree
+	 * @param history    commits of the deploy so far
+	 * @return true if updated, false if the reference moved in the meantime
+	 * @throws MojoExecutionException
+	 */
+	private boolean commit(DataService service, RepositoryId repository, String branch, List<TreeEntry> entries,
+			boolean mergeTree, BatchSizer batches, CommitUser author, Map<String, Tree> trees, KeptHistory history)
+			throws MojoExecutionException {
+		Reference ref = null;
+		try {
+			ref = service.getReference(repository, branch);
+		} catch (RequestException e) {
+			if (404 != e.getStatus()) {
+				throw new MojoExecutionException("Error getting reference: " + e.getMessage(), e);
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error getting reference: " + e.getMessage(), e);
+		}
+
+		if (ref != null && !TYPE_COMMIT.equals(ref.getObject().getType())) {
+			throw new MojoExecutionException(
+					MessageFormat.format("Existing ref {0} points to a {1} ({2}) instead of a commmit", ref.getRef(),
+							ref.getObject().getType(), ref.getObject().getSha()));
+		}
+
+		// Write tree
+		Tree tree;
+		try {
+			int size = entries.size();
+			if (size != 1) {
+				info(MessageFormat.format("Creating tree with {0} blob entries", size));
+			} else {
+				info("Creating tree with 1 blob entry");
+			}
+			String baseTree = null;
+			if (mergeTree && ref != null) {
+				Tree currentTree = service.getCommit(repository, ref.getObject().getSha()).getTree();
+				if (currentTree != null) {
+					baseTree = currentTree.getSha();
+				}
+				info(MessageFormat.format("Merging with tree {0}", baseTree));
+			}
+			if (trees.containsKey(baseTree)) {
+				tree = trees.get(baseTree);
+			} else if (!this.dryRun) {
+				tree = createTree(service, repository, entries, baseTree, batches);
+				trees.put(baseTree, tree);
+			} else {
+				tree = new Tree();
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error creating tree: " + e.getMessage(), e);
+		}
+
+		// Build commit
+		Commit commit = new Commit();
+		commit.setMessage(this.message);
+		commit.setTree(tree);
+		commit.setAuthor(author);
+		commit.setCommitter(author);
+
+		// Set parent commit SHA-1 if reference exists, unless only the latest commits are kept
+		String head = ref != null ? ref.getObject().getSha() : null;
+		String parent = head;
+		if (ref != null && this.keepCommits > 0 && history.last != null) {
+			// Later batches replace the commit of the previous one, so the deploy adds a single commit
+			if (!head.equals(history.last)) {
+				throw new MojoExecutionException(MessageFormat.format(
+						"Reference {0} was moved to {1} by another deployment between batches", branch, head));
+			}
+			parent = history.parent;
+		} else if (ref != null && this.keepCommits == 1) {
+			parent = null;
+		} else if (ref != null && this.keepCommits > 1 && !this.dryRun) {
+			try {
+				parent = RemoteTree.retainHistory(service, repository, head, this.keepCommits - 1);
+				if (!head.equals(parent)) {
+					info(MessageFormat.format("Keeping the latest {0} commits of {1}", this.keepCommits, branch));
+				}
+			} catch (IOException e) {
+				throw new MojoExecutionException("Error rewriting history: " + e.getMessage(), e);
+			}
+		}
+		if (parent != null) {
+			commit.setParents(Collections.singletonList(new Commit().setSha(parent)));
+		}
+
+		Commit created;
+		try {
 			if (!this.dryRun) {
 				created = service.createCommit(repository, commit);
 			} else {
 				created = new Commit();
 			}
-			info(MessageFormat.format("Creating commit with SHA-1: {0}", created.getSha()));
+			info(MessageFormat.format("Creating commit with SHA-1: {0}", created.getSha()));
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error creating commit: " + e.getMessage(), e);
+		}
+
+		TypedResource object = new TypedResource();
+		object.setType(TYPE_COMMIT).setSha(created.getSha());
+		if (ref != null) {
+			// Update existing reference
+			ref.setObject(object);
+			try {
+				info(MessageFormat.format("Updating reference {0} from {1} to {2}", branch, head, created.getSha()));
+				if (!this.dryRun) {
+					service.editReference(repository, ref, this.force);
+				}
+			} catch (RequestException e) {
+				if (isRejected(e)) {
+					return false;
+				}
+				throw new MojoExecutionException("Error editing reference: " + e.getMessage(), e);
+			} catch (IOException e) {
+				throw new MojoExecutionException("Error editing reference: " + e.getMessage(), e);
+			}
+		} else {
+			// Create new reference
+			ref = new Reference().setObject(object).setRef(branch);
+			try {
+				info(MessageFormat.format("Creating reference {0} starting at commit {1}", branch,
+						created.getSha()));
+				if (!this.dryRun) {
+					service.createReference(repository, ref);
+				}
+			} catch (RequestException e) {
+				if (isRejected(e)) {
+					return false;
+				}
+				throw new MojoExecutionException("Error creating reference: " + e.getMessage(), e);
+			} catch (IOException e) {
+				throw new MojoExecutionException("Error creating reference: " + e.getMessage(), e);
+			}
+		}
+		if (history.last == null) {
+			history.parent = parent;
+		}
+		history.last = created.getSha();
+		return true;
+	}
+
+	/**
+	 * Get the repository to commit to
+	 *
+	 * @return non-null repository id
+	 * @throws MojoExecutionException
+	 */
+	RepositoryId getTargetRepository() throws MojoExecutionException {
+		return getRepository(this.project, this.repositoryOwner, this.repositoryName);
+	}
+
+	/**
+	 * Create data service with an authenticated client
+	 *
+	 * @return data service
+	 * @throws MojoExecutionException
+	 */
+	DataService createService() throws MojoExecutionException {
+		return createService(getDefaultTarget());
+	}
+
+	/**
+	 * Create data service with a client authenticated for the given target
+	 *
+	 * @param target
+	 * @return data service
+	 * @throws MojoExecutionException
+	 */
+	private DataService createService(SiteTarget target) throws MojoExecutionException {
+		// Executions with the same host and credentials share a client and with it its rate limit
+		String key = String.join("\n", String.valueOf(target.getHost()), String.valueOf(target.getUserName()),
+				String.valueOf(target.getPassword()), String.valueOf(target.getOAuth2Token()),
+				String.valueOf(target.getServer()));
+		return SiteSession.get(this.session).getService(key, () -> {
+			GitHubClient client = createClient(target.getHost(), target.getUserName(), target.getPassword(),
+					target.getOAuth2Token(), target.getServer(), this.settings);
+			if (client instanceof GitHubClientEgit clientEgit) {
+				clientEgit.setCompressRequests(this.compressRequests);
+				configureTimeouts(clientEgit);
+			}
+			if (this.shareRateLimit && client instanceof RateLimitedGitHubClient limited) {
+				try {
+					limited.shareRateLimit(new File(System.getProperty("user.home"), ".m2/github-rate-limits"));
+				} catch (IOException e) {
+					throw new MojoExecutionException("Error sharing rate limit: " + e.getMessage(), e);
+				}
+			}
+			return new DataService(client);
+		});
+	}
+
+	/**
+	 * Apply the configured timeouts and hedging to the given client
+	 *
+	 * @param client
+	 * @throws MojoExecutionException
+	 */
+	private void configureTimeouts(GitHubClientEgit client) throws MojoExecutionException {
+		try {
+			for (Operation operation : Operation.values()) {
+				int[] values = SiteTimeout.get(this.timeouts, operation);
+				client.setTimeouts(operation, values[0], values[1], values[2]);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new MojoExecutionException(e.getMessage(), e);
+		}
+		client.setHedging(this.hedgeRequests);
+	}
+
+	/**
+	 * Create the pool of the given service and the services of the further configured servers
+	 *
+	 * @param target
+	 * @param service service of the target's own credentials
+	 * @return pool with the given service as primary
+	 * @throws MojoExecutionException
+	 */
+	private ServicePool createPool(SiteTarget target, DataService service) throws MojoExecutionException {
+		List<DataService> pooled = new ArrayList<>();
+		pooled.add(service);
+		if (this.servers != null) {
+			for (String id : this.servers) {
+				DataService other = createService(new SiteTarget(target.getRepositoryOwner(),
+						target.getRepositoryName(), target.getHost(), id, null, null, null, target.getBranch(), null));
+				if (!pooled.contains(other)) {
+					pooled.add(other);
+				}
+			}
+			info(MessageFormat.format("Uploading blobs with {0} credentials", pooled.size()));
+		}
+		return new ServicePool(pooled);
+	}
+
+	/**
+	 * Get the archive to deploy, resolving the configured coordinates in the local repository
+	 *
+	 * @return archive or null to deploy the output directory
+	 * @throws MojoExecutionException
+	 */
+	private File getArchive() throws MojoExecutionException {
+		if (StringUtils.isEmpty(this.archiveArtifact)) {
+			return this.archive;
+		}
+		if (this.archive != null) {
+			throw new MojoExecutionException("Either an archive or the coordinates of an archive can be configured");
+		}
+		Artifact artifact;
+		try {
+			artifact = new DefaultArtifact(this.archiveArtifact);
+		} catch (IllegalArgumentException e) {
+			throw new MojoExecutionException("Invalid archive coordinates: " + e.getMessage(), e);
+		}
+		LocalRepositoryManager repository = this.session.getRepositorySession().getLocalRepositoryManager();
+		File file = new File(repository.getRepository().getBasedir(), repository.getPathForLocalArtifact(artifact));
+		if (!file.isFile()) {
+			throw new MojoExecutionException(
+					MessageFormat.format("Archive {0} not found in the local repository: {1}", artifact, file));
+		}
+		return file;
+	}
+
+	/**
+	 * Get the target configured on the goal itself
+	 *
+	 * @return target
+	 */
+	private SiteTarget getDefaultTarget() {
+		return new SiteTarget(this.repositoryOwner, this.repositoryName, this.host, this.server, this.userName,
+				this.password, this.oauth2Token, this.branch, this.path);
+	}
+
+	/**
+	 * Find the files to commit
+	 *
+	 * @return paths relative to the output directory
+	 * @throws MojoExecutionException
+	 */
+	String[] getMatchingPaths() throws MojoExecutionException {
+		String baseDir = this.outputDirectory.getAbsolutePath();
+		String[] includePaths = StringUtils.removeEmpties(this.includes);
+		String[] excludePaths = StringUtils.removeEmpties(this.excludes);
+		if (this.siteArchive != null) {
+			return this.siteArchive.getMatchingPaths(includePaths, excludePaths);
+		}
+		if (hasSources()) {
+			String[] paths;
+			try {
+				paths = getSiteSources().getPaths();
+			} catch (IOException e) {
+				throw new MojoExecutionException("Error scanning sources: " + e.getMessage(), e);
+			}
+			info(MessageFormat.format("Found {0} files in {1} sources", paths.length, this.sources.length));
+			return paths;
+		}
+
+		if (isDebug()) {
+			debug(MessageFormat.format("Scanning {0} and including {1} and exluding {2}", baseDir,
+					Arrays.toString(includePaths), Arrays.toString(excludePaths)));
+		}
+
+		String[] paths = PathUtils.getMatchingPaths(includePaths, excludePaths, baseDir);
+
+		if (isDebug()) {
+			debug(MessageFormat.format("Scanned files to include: {0}", Arrays.toString(paths)));
+		}
+		return paths;
+	}
+
+	/**
+	 * Is the given path matched by the configured includes and excludes?
+	 *
+	 * @param subpath path relative to the output directory
+	 * @return true if matching, false otherwise
+	 */
+	boolean isMatchingPath(String subpath) {
+		return PathUtils.isMatchingPath(StringUtils.removeEmpties(this.includes),
+				StringUtils.removeEmpties(this.excludes), subpath);
+	}
+
+	/**
+	 * Get the path all blobs are placed below
+	 *
+	 * @return empty string or path ending with a slash
+	 */
+	String getPrefix() {
+		return getDefaultTarget().getPrefix();
+	}
+
+	/**
+	 * @return full name of the branch to update
+	 */
+	String getBranch() {
+		return this.branch;
+	}
+
+	/**
+	 * @return number of times a rejected reference update is attempted
+	 */
+	int getReferenceAttempts() {
+		return this.referenceAttempts;
+	}
+
+	/**
+	 * @return commit message
+	 */
+	String getMessage() {
+		return this.message;
+	}
+
+	/**
+	 * @return base directory files are committed from
+	 */
+	File getOutputDirectory() {
+		return this.outputDirectory;
+	}
+
+	/**
+	 * Fail unless a commit message is configured
+	 *
+	 * @throws MojoExecutionException
+	 */
+	void checkMessage() throws MojoExecutionException {
+		if (StringUtils.isEmpty(this.message)) {
+			throw new MojoExecutionException("The parameter 'message' is required to commit the site");
+		}
+	}
+
+	/**
+	 * @return true if source directories are deployed instead of the output directory
+	 */
+	boolean hasSources() {
+		return this.sources != null && this.sources.length > 0;
+	}
+
+	/**
+	 * @return true if several targets are deployed to instead of the one configured on the goal
+	 */
+	boolean hasTargets() {
+		return this.targets != null && this.targets.length > 0;
+	}
+
+	/**
+	 * @return true if an archive is deployed instead of the output directory
+	 */
+	boolean hasArchive() {
+		return this.archive != null || !StringUtils.isEmpty(this.archiveArtifact);
+	}
+
+	/**
+	 * @return number of latest commits kept on the branch, 0 to keep all
+	 */
+	int getKeepCommits() {
+		return this.keepCommits;
+	}
+
+	/**
+	 * @return how the files are published
+	 */
+	String getBackend() {
+		return this.backend;
+	}
+
+	/**
+	 * Get the size of a file of the site
+	 *
+	 * @param path
+	 * @return size in bytes, 0 if unreadable
+	 */
+	long getSize(String path) {
+		try {
+			return getFileSize(path);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Get the last modification time of a file of the site
+	 *
+	 * @param path
+	 * @return milliseconds since the epoch, 0 if unknown or read from an archive
+	 */
+	long getModified(String path) {
+		if (this.siteArchive != null) {
+			return 0;
+		}
+		try {
+			return getFile(path).lastModified();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * @return true to delete files removed locally and skip unchanged files
+	 */
+	boolean isIncremental() {
+		return this.incremental;
+	}
+
+	/**
+	 * @return true to force reference updates
+	 */
+	boolean isForce() {
+		return this.force;
+	}
+
+	/**
+	 * @return true to create a .nojekyll file if one doesn't already exist
+	 */
+	boolean isNoJekyll() {
+		return this.noJekyll;
+	}
+
+	/**
+	 * @return true if no changes should be made to the repository
+	 */
+	boolean isDryRun() {
+		return this.dryRun;
+	}
+
+	/**
+	 * @return executor shared by all executions of the session
+	 */
+	ExecutorService getExecutor() {
+		return SiteSession.get(this.session).getExecutor(getMaxThreads());
+	}
+
+	/**
+	 * @return highest number of blobs uploaded concurrently
+	 */
+	private int getMaxThreads() {
+		return Math.max(this.threads, this.maxThreads);
+	}
+
+	/**
+	 * @return plan file configured for the goal, may be null
+	 */
+	File getPlan() {
+		return this.plan;
+	}
+
+	/**
+	 * @return project being built
+	 */
+	MavenProject getProject() {
+		return this.project;
+	}
+
+	/**
+	 * @return true if execution should be skipped
+	 */
+	boolean isSkip() {
+		return this.skip;
+	}
+
+	/**
+	 * Create tree, splitting the entries in halves and chaining the resulting trees if the request is rejected as too
+	 * large or times out
+	 *
+	 * @param service
+	 * @param repository
+	 * @param entries
+	 * @param baseTree
+	 * @param batches    sizer to shrink when splitting
+	 * @return created tree
+	 * @throws IOException
+	 */
+	private Tree createTree(DataService service, RepositoryId repository, List<TreeEntry> entries, String baseTree,
+			BatchSizer batches) throws IOException {
+		try {
+			return RemoteTree.createTree(service, repository, entries, baseTree);
+		} catch (IOException e) {
+			if (entries.size() < 2 || !isTooLarge(e)) {
+				throw e;
+			}
+			batches.shrink();
+			int middle = entries.size() / 2;
+			info(MessageFormat.format(
+					"Tree with {0} entries was rejected ({1}), splitting it and reducing batches to {2} entries / {3} bytes",
+					entries.size(), e.getMessage(), batches.getMaxEntries(), batches.getMaxBytes()));
+			Tree first = createTree(service, repository, entries.subList(0, middle), baseTree, batches);
+			return createTree(service, repository, entries.subList(middle, entries.size()), first.getSha(), batches);
+		}
+	}
+
+	/**
+	 * Commit all paths locally and push them as a single pack
+	 *
+	 * @param repository
+	 * @param paths
+	 * @throws MojoExecutionException
+	 */
+	private void pushPack(RepositoryId repository, String[] paths) throws MojoExecutionException {
+		GitHubClient client = createClient(this.host, this.userName, this.password, this.oauth2Token, this.server,
+				this.settings);
+		if (!(client instanceof GitHubClientEgit clientEgit)) {
+			throw new MojoExecutionException("The git backend requires a " + GitHubClientEgit.class.getSimpleName());
+		}
+
+		String url = this.gitUrl;
+		if (StringUtils.isEmpty(url)) {
+			url = GitPackPublisher.getRemoteUrl(clientEgit.getBaseUri(), repository);
+		}
+		info(MessageFormat.format("Pushing {0} files to {1}", paths.length, url));
+
+		CredentialsProvider credentials = null;
+		if (!StringUtils.isEmpty(clientEgit.getOAuth2Token())) {
+			credentials = new UsernamePasswordCredentialsProvider(GitPackPublisher.TOKEN_USER,
+					clientEgit.getOAuth2Token());
+		} else if (!StringUtils.isEmpty(clientEgit.getUser(), clientEgit.getPassword())) {
+			credentials = new UsernamePasswordCredentialsProvider(clientEgit.getUser(), clientEgit.getPassword());
+		}
+
+		CommitUser user = createAuthor(client);
+		PersonIdent author = new PersonIdent(user.getName(), user.getEmail());
+
+		new GitPackPublisher(this.gitDirectory, url, credentials, clientEgit.selectProxy(URI.create(url)), getLog()) //
+				.setMerge(this.merge).setForce(this.force).setNoJekyll(this.noJekyll).setDryRun(this.dryRun) //
+				.setIncremental(this.incremental).setAttempts(this.referenceAttempts) //
+				.publish(this.outputDirectory, paths, getPrefix(), this.branch, this.message, author);
+	}
+
+	/**
+	 * Create the author of a commit from the authenticated user
+	 *
+	 * @param client
+	 * @return author with name, email and current date
+	 * @throws MojoExecutionException
+	 */
+	static CommitUser createAuthor(GitHubClient client) throws MojoExecutionException {
+		User user;
+		try {
+			user = new UserService(client).getUser();
 		} catch (IOException e) {
-			throw new MojoExecutionException("Error creating commit: " + e.getMessage(), e);
+			throw new MojoExecutionException("Error retrieving user info: " + e.getMessage(), e);
 		}
 
-		TypedResource object = new TypedResource();
-		object.setType(TYPE_COMMIT).setSha(created.getSha());
-		if (ref != null) {
-			// Update existing reference
-			ref.setObject(object);
+		CommitUser author = new CommitUser();
+		author.setName(user.getName() != null ? user.getName() : user.getLogin());
+		author.setEmail(user.getEmail() != null ? user.getEmail() : user.getLogin() + "@users.noreply.github.com");
+		author.setDate(new GregorianCalendar().getTime());
+		return author;
+	}
+
+	/**
+	 * Get the number of bytes uploaded for a file, judging the latency of its upload
+	 *
+	 * @param subpath
+	 * @return size of the file
+	 * @throws MojoExecutionException
+	 */
+	private long getUploadSize(String subpath) throws MojoExecutionException {
+		try {
+			return getFileSize(subpath);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error reading file: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Create the blob of a file unless the repository already has it: files of at least the probe threshold are
+	 * hashed locally and only uploaded if the blob isn't found
+	 *
+	 * @param service
+	 * @param repository
+	 * @param subpath
+	 * @param knownSha   blob SHA-1 of the file if already known, null to hash it
+	 * @param probed     counter of blobs found
+	 * @return blob SHA-1
+	 * @throws MojoExecutionException
+	 */
+	private String uploadBlob(DataService service, RepositoryId repository, String subpath, String knownSha,
+			AtomicInteger probed) throws MojoExecutionException {
+		if (this.probeThreshold > 0 && !this.dryRun && service.getClient() instanceof GitHubClientEgit client) {
 			try {
-				info(MessageFormat.format("Updating reference {0} from {1} to {2}", this.branch,
-						commit.getParents().get(0).getSha(), created.getSha()));
-				if (!this.dryRun) {
-					service.editReference(repository, ref, this.force);
+				if (getFileSize(subpath) >= this.probeThreshold) {
+					String sha = knownSha != null ? knownSha : hashFile(subpath);
+					if (RemoteTree.hasBlob(client, repository, sha)) {
+						if (isDebug()) {
+							debug(MessageFormat.format("Blob {0} of {1} already exists", sha, subpath));
+						}
+						probed.incrementAndGet();
+						return sha;
+					}
 				}
 			} catch (IOException e) {
-				throw new MojoExecutionException("Error editing reference: " + e.getMessage(), e);
+				throw new MojoExecutionException("Error probing blob: " + e.getMessage(), e);
 			}
-		} else {
-			// Create new reference
-			ref = new Reference().setObject(object).setRef(this.branch);
-			try {
-				info(MessageFormat.format("Creating reference {0} starting at commit {1}", this.branch,
-						created.getSha()));
-				if (!this.dryRun) {
-					service.createReference(repository, ref);
-				}
-			} catch (IOException e) {
-				throw new MojoExecutionException("Error creating reference: " + e.getMessage(), e);
+		}
+		return createBlob(service, repository, subpath);
+	}
+
+	/**
+	 * Create blob within the memory budget. Large files are streamed, others read and encoded in memory.
+	 *
+	 * @param service
+	 * @param repository
+	 * @param subpath
+	 * @return blob SHA-1
+	 * @throws MojoExecutionException
+	 */
+	String createBlob(DataService service, RepositoryId repository, String subpath)
+			throws MojoExecutionException {
+		long length;
+		try {
+			length = getFileSize(subpath);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error reading file: " + e.getMessage(), e);
+		}
+		ByteBudget budget = SiteSession.get(this.session).getBudget(this.maxInFlightBytes);
+		boolean streaming = service.getClient() instanceof GitHubClientEgit
+				&& (length >= STREAMING_THRESHOLD || length * WORKING_SET_FACTOR > budget.getMax());
+		long taken;
+		try {
+			taken = budget.acquire(streaming ? STREAMING_BUFFER : length * WORKING_SET_FACTOR);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while waiting for memory", e);
+		}
+		if (isDebug()) {
+			debug(MessageFormat.format("Reading {0} with {1} of {2} bytes of the memory budget in use", subpath,
+					budget.getUsed(), budget.getMax()));
+		}
+		try {
+			if (streaming) {
+				return streamBlob((GitHubClientEgit) service.getClient(), repository, subpath, length);
 			}
+			return bufferBlob(service, repository, subpath, length);
+		} finally {
+			budget.release(taken);
+		}
+	}
+
+	/**
+	 * Create blob from the file encoded on the fly
+	 *
+	 * @param client
+	 * @param repository
+	 * @param subpath
+	 * @param length     size of the file
+	 * @return blob SHA-1
+	 * @throws MojoExecutionException
+	 */
+	private String streamBlob(GitHubClientEgit client, RepositoryId repository, String subpath, long length)
+			throws MojoExecutionException {
+		if (isDebug()) {
+			debug(MessageFormat.format("Streaming blob from {0}", subpath));
+		}
+		if (this.dryRun) {
+			return null;
+		}
+		try (InputStream stream = openFile(subpath)) {
+			return RemoteTree.createBlob(client, repository, stream, length);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error creating blob: " + e.getMessage(), e);
 		}
 	}
 
 	/**
-	 * Create blob
+	 * Create blob from the file read into memory
 	 *
 	 * @param service
 	 * @param repository
 	 * @param subpath
+	 * @param length     size of the file
 	 * @return blob SHA-1
 	 * @throws MojoExecutionException
 	 */
-	private String createBlob(DataService service, RepositoryId repository, String subpath)
+	private String bufferBlob(DataService service, RepositoryId repository, String subpath, long length)
 			throws MojoExecutionException {
-		File file = new File(this.outputDirectory, subpath);
-		long length = file.length();
-		int size = length > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) length;
-		ByteArrayOutputStream output = new ByteArrayOutputStream(size);
+		ByteArrayOutputStream output;
+		TextDetector detector = new TextDetector();
 
-		try (FileInputStream stream = new FileInputStream(file)) {
+		try (InputStream stream = openFile(subpath)) {
+			output = new ByteArrayOutputStream(length > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) length);
 			byte[] buffer = new byte[8192];
 			int read;
 			while ((read = stream.read(buffer)) != -1) {
 				output.write(buffer, 0, read);
+				detector.update(buffer, 0, read);
 			}
 		} catch (IOException e) {
 			throw new MojoExecutionException("Error reading file: " + e.getMessage(), e);
 		}
 
-		Blob blob = new Blob().setEncoding(ENCODING_BASE64);
-		String encoded = EncodingUtils.toBase64(output.toByteArray());
-		blob.setContent(encoded);
+		// Text is sent as is, only binary content is inflated by base64
+		Blob blob = new Blob();
+		if (detector.isText()) {
+			blob.setEncoding(ENCODING_UTF8).setContent(new String(output.toByteArray(), StandardCharsets.UTF_8));
+		} else {
+			blob.setEncoding(ENCODING_BASE64).setContent(EncodingUtils.toBase64(output.toByteArray()));
+		}
 
 		try {
 			if (isDebug()) {
-				debug(MessageFormat.format("Creating blob from {0}", file.getAbsolutePath()));
+				debug(MessageFormat.format("Creating blob from {0}", subpath));
 			}
 			if (!this.dryRun) {
 				return service.createBlob(repository, blob);
@@ -458,8 +1818,118 @@ public class SiteMojo extends GitHubProjectMojo {
 		}
 	}
 
+	/**
+	 * Open a file of the site, read from the archive if one is deployed
+	 *
+	 * @param path path relative to the output directory or entry name
+	 * @return stream
+	 * @throws IOException
+	 */
+	private InputStream openFile(String path) throws IOException {
+		if (this.siteArchive != null) {
+			return this.siteArchive.open(path);
+		}
+		return new FileInputStream(getFile(path));
+	}
+
+	/**
+	 * Get the size of a file of the site
+	 *
+	 * @param path path relative to the output directory or entry name
+	 * @return size in bytes
+	 * @throws IOException
+	 */
+	private long getFileSize(String path) throws IOException {
+		if (this.siteArchive != null) {
+			return this.siteArchive.getSize(path);
+		}
+		return getFile(path).length();
+	}
+
+	/**
+	 * Get the file of the site at the given path
+	 *
+	 * @param path path relative to the output directory or below the path of a source
+	 * @return file
+	 * @throws IOException
+	 */
+	private File getFile(String path) throws IOException {
+		if (hasSources()) {
+			return getSiteSources().getFile(path);
+		}
+		return new File(this.outputDirectory, path);
+	}
+
+	/**
+	 * Scan the sources on first use
+	 *
+	 * @return scanned sources
+	 * @throws IOException
+	 */
+	private synchronized SiteSources getSiteSources() throws IOException {
+		if (this.siteSources == null) {
+			try {
+				this.siteSources = SiteSources.scan(this.sources, this.includes, this.excludes, getExecutor());
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+		return this.siteSources;
+	}
+
+	/**
+	 * Compute the blob SHA-1 of a file of the site
+	 *
+	 * @param path path relative to the output directory or entry name
+	 * @return SHA-1
+	 * @throws IOException
+	 */
+	private String hashFile(String path) throws IOException {
+		if (this.siteArchive == null) {
+			return BlobUtils.sha1(getFile(path));
+		}
+		try (InputStream stream = this.siteArchive.open(path)) {
+			return BlobUtils.sha1(stream, this.siteArchive.getSize(path));
+		}
+	}
+
 	// static helpers
 
+	/**
+	 * Is the given failure caused by a request that was too large to be processed? GitHub also answers 422 for
+	 * invalid entries, which splitting the tree would only repeat, so those aren't.
+	 *
+	 * @param e
+	 * @return true for 413 responses and timeouts, false otherwise
+	 */
+	private static boolean isTooLarge(IOException e) {
+		if (e instanceof RequestException requestException) {
+			return requestException.getStatus() == 413;
+		}
+		return e instanceof SocketTimeoutException;
+	}
+
+	/**
+	 * Get a random delay before retrying a rejected reference update, growing exponentially with the attempts so that
+	 * concurrent deployments spread out
+	 *
+	 * @param attempt number of attempts made so far
+	 * @return delay in milliseconds
+	 */
+	static long getRetryDelay(int attempt) {
+		return ThreadLocalRandom.current().nextLong(REFERENCE_RETRY_DELAY << Math.min(attempt, 6));
+	}
+
+	/**
+	 * Was the reference update rejected because the reference was changed or created concurrently?
+	 *
+	 * @param e
+	 * @return true if rejected, false otherwise
+	 */
+	private static boolean isRejected(RequestException e) {
+		return e.getStatus() == 422;
+	}
+
 	private static String[] copyOfRange(String[] original, int from, int to) {
 		int newLength = to - from;
 		if (newLength < 0) {
@@ -471,4 +1941,20 @@ public class SiteMojo extends GitHubProjectMojo {
 		return copy;
 	}
 
+	/**
+	 * Commits of one deploy. When only the latest commits are kept, the history is rewritten for the first batch only
+	 * and every later batch commit replaces the previous one, so each deploy counts as one commit.
+	 */
+	private static final class KeptHistory {
+
+		/**
+		 * Parent of the commits of the deploy
+		 */
+		private String parent;
+
+		/**
+		 * Latest commit of the deploy, null before the first one
+		 */
+		private String last;
+	}
 }
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.TreeFormatter;
+
+/**
+ * Index of the files of a site written ahead of the deployment: their paths, sizes, modification times and blob
+ * SHA-1s together with the SHA-1s of the trees they form. A deployment reading it doesn't have to scan and hash the
+ * site again and only reads the files that need to be uploaded.
+ */
+class SitePlan {
+
+	/**
+	 * Marks a plan file, followed by the version of its format
+	 */
+	private static final int MAGIC = 0x47485350;
+
+	private static final int VERSION = 2;
+
+	/**
+	 * Orders names like git does in trees, bytewise with a slash appended to the names of trees
+	 */
+	private static final Comparator<String> GIT_ORDER = (a, b) -> Arrays
+			.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+
+	private final String[] paths;
+
+	private final long[] sizes;
+
+	private final long[] modified;
+
+	private final String[] shas;
+
+	private final Map<String, String> trees;
+
+	/**
+	 * Create plan
+	 *
+	 * @param paths paths relative to the site with forward slashes, sorted
+	 * @param sizes    file sizes in the order of the paths
+	 * @param modified modification times in the order of the paths
+	 * @param shas     blob SHA-1s in the order of the paths
+	 * @param trees    tree SHA-1s by directory, the empty string for the root
+	 */
+	SitePlan(String[] paths, long[] sizes, long[] modified, String[] shas, Map<String, String> trees) {
+		this.paths = paths;
+		this.sizes = sizes;
+		this.modified = modified;
+		this.shas = shas;
+		this.trees = trees;
+	}
+
+	/**
+	 * @return paths relative to the site with forward slashes
+	 */
+	String[] getPaths() {
+		return this.paths.clone();
+	}
+
+	/**
+	 * @param index
+	 * @return path of the file relative to the site with forward slashes
+	 */
+	String getPath(int index) {
+		return this.paths[index];
+	}
+
+	/**
+	 * @return number of files
+	 */
+	int size() {
+		return this.paths.length;
+	}
+
+	/**
+	 * @param index
+	 * @return size of the file in bytes
+	 */
+	long getSize(int index) {
+		return this.sizes[index];
+	}
+
+	/**
+	 * @param index
+	 * @return last modification time of the file in milliseconds since the epoch, 0 if unknown
+	 */
+	long getModified(int index) {
+		return this.modified[index];
+	}
+
+	/**
+	 * @param index
+	 * @return blob SHA-1 of the file
+	 */
+	String getSha(int index) {
+		return this.shas[index];
+	}
+
+	/**
+	 * Get the SHA-1 of the tree of a directory
+	 *
+	 * @param directory path relative to the site without trailing slash, the empty string for the root
+	 * @return SHA-1 or null if the directory doesn't contain any file
+	 */
+	String getTree(String directory) {
+		return this.trees.get(directory);
+	}
+
+	/**
+	 * @return number of trees
+	 */
+	int getTreeCount() {
+		return this.trees.size();
+	}
+
+	/**
+	 * Write the plan to the given file, creating its parent directory if needed
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	void write(File file) throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Unable to create directory " + parent);
+		}
+		try (DataOutputStream output = new DataOutputStream(
+				new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file))))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(this.paths.length);
+			for (int i = 0; i < this.paths.length; i++) {
+				output.writeUTF(this.paths[i]);
+				output.writeLong(this.sizes[i]);
+				output.writeLong(this.modified[i]);
+				ObjectId.fromString(this.shas[i]).copyRawTo(output);
+			}
+			output.writeInt(this.trees.size());
+			for (Map.Entry<String, String> tree : this.trees.entrySet()) {
+				output.writeUTF(tree.getKey());
+				ObjectId.fromString(tree.getValue()).copyRawTo(output);
+			}
+		}
+	}
+
+	// static helpers
+
+	/**
+	 * Read a plan written by {@link #write(File)}
+	 *
+	 * @param file
+	 * @return plan
+	 * @throws IOException
+	 */
+	static SitePlan read(File file) throws IOException {
+		try (DataInputStream input = new DataInputStream(
+				new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))))) {
+			if (input.readInt() != MAGIC) {
+				throw new IOException(file + " is not a site plan");
+			}
+			int version = input.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported version " + version + " of site plan " + file);
+			}
+			byte[] raw = new byte[20];
+			int count = input.readInt();
+			String[] paths = new String[count];
+			long[] sizes = new long[count];
+			long[] modified = new long[count];
+			String[] shas = new String[count];
+			for (int i = 0; i < count; i++) {
+				paths[i] = input.readUTF();
+				sizes[i] = input.readLong();
+				modified[i] = input.readLong();
+				input.readFully(raw);
+				shas[i] = ObjectId.fromRaw(raw).name();
+			}
+			int treeCount = input.readInt();
+			Map<String, String> trees = new LinkedHashMap<>(treeCount * 2);
+			for (int i = 0; i < treeCount; i++) {
+				String directory = input.readUTF();
+				input.readFully(raw);
+				trees.put(directory, ObjectId.fromRaw(raw).name());
+			}
+			return new SitePlan(paths, sizes, modified, shas, trees);
+		}
+	}
+
+	/**
+	 * Create the plan of the given files
+	 *
+	 * @param paths    paths of the files
+	 * @param shas     blob SHA-1s by path
+	 * @param sizes    gets the size of a file by its path with forward slashes
+	 * @param modified gets the modification time of a file by its path with forward slashes
+	 * @return plan
+	 */
+	static SitePlan create(String[] paths, Map<String, String> shas, ToLongFunction<String> sizes,
+			ToLongFunction<String> modified) {
+		TreeMap<String, String> blobs = new TreeMap<>();
+		for (String path : paths) {
+			blobs.put(path.replace('\\', '/'), shas.get(path));
+		}
+		String[] sorted = blobs.keySet().toArray(new String[0]);
+		long[] lengths = new long[sorted.length];
+		long[] times = new long[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			lengths[i] = sizes.applyAsLong(sorted[i]);
+			times[i] = modified.applyAsLong(sorted[i]);
+		}
+		return new SitePlan(sorted, lengths, times, blobs.values().toArray(new String[0]), computeTrees(blobs));
+	}
+
+	/**
+	 * Compute the SHA-1s of the trees formed by the given blobs as git would
+	 *
+	 * @param blobs blob SHA-1s by path with forward slashes
+	 * @return tree SHA-1s by directory, the empty string for the root
+	 */
+	static Map<String, String> computeTrees(Map<String, String> blobs) {
+		// Entries of every directory by their sort key, a tree's name with a slash appended
+		Map<String, TreeMap<String, ObjectId>> directories = new HashMap<>();
+		directories.put("", new TreeMap<>(GIT_ORDER));
+		for (Map.Entry<String, String> blob : blobs.entrySet()) {
+			String path = blob.getKey();
+			int slash = path.lastIndexOf('/');
+			String directory = slash > 0 ? path.substring(0, slash) : "";
+			addDirectory(directories, directory).put(path.substring(slash + 1), ObjectId.fromString(blob.getValue()));
+		}
+
+		// Children before their parents, so deeper directories first
+		String[] sorted = directories.keySet().toArray(new String[0]);
+		Arrays.sort(sorted, Comparator.comparingInt(SitePlan::depth).reversed());
+		Map<String, String> trees = new TreeMap<>();
+		ObjectInserter.Formatter hasher = new ObjectInserter.Formatter();
+		for (String directory : sorted) {
+			TreeFormatter formatter = new TreeFormatter();
+			for (Map.Entry<String, ObjectId> entry : directories.get(directory).entrySet()) {
+				String name = entry.getKey();
+				if (name.endsWith("/")) {
+					formatter.append(name.substring(0, name.length() - 1), FileMode.TREE, entry.getValue());
+				} else {
+					formatter.append(name, FileMode.REGULAR_FILE, entry.getValue());
+				}
+			}
+			ObjectId tree = formatter.computeId(hasher);
+			trees.put(directory, tree.name());
+			if (!directory.isEmpty()) {
+				int slash = directory.lastIndexOf('/');
+				String parent = slash > 0 ? directory.substring(0, slash) : "";
+				directories.get(parent).put(directory.substring(slash + 1) + "/", tree);
+			}
+		}
+		return trees;
+	}
+
+	private static TreeMap<String, ObjectId> addDirectory(Map<String, TreeMap<String, ObjectId>> directories,
+			String directory) {
+		TreeMap<String, ObjectId> entries = directories.get(directory);
+		if (entries == null) {
+			entries = new TreeMap<>(GIT_ORDER);
+			directories.put(directory, entries);
+			// Parents are created too, even if they only contain directories
+			int slash = directory.lastIndexOf('/');
+			addDirectory(directories, slash > 0 ? directory.substring(0, slash) : "");
+		}
+		return entries;
+	}
+
+	private static int depth(String directory) {
+		if (directory.isEmpty()) {
+			return 0;
+		}
+		int depth = 1;
+		for (int i = 0; i < directory.length(); i++) {
+			if (directory.charAt(i) == '/') {
+				depth++;
+			}
+		}
+		return depth;
+	}
+}
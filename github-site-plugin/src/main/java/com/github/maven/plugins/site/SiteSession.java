@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.eclipse.egit.github.core.service.DataService;
+
+/**
+ * State shared by all site mojo executions of one Maven session, so that modules built in parallel share one upload
+ * pool, one memory budget and one rate limited client per host and credentials, and never update the same reference
+ * at the same time.
+ */
+class SiteSession {
+
+	private static final Map<Object, SiteSession> SESSIONS = new WeakHashMap<>();
+
+	private final Map<String, DataService> services = new ConcurrentHashMap<>();
+
+	private final Map<String, Lock> locks = new ConcurrentHashMap<>();
+
+	private final Map<String, AdaptiveConcurrency> concurrencies = new ConcurrentHashMap<>();
+
+	private ThreadPoolExecutor executor;
+
+	private ByteBudget budget;
+
+	/**
+	 * Get the state of the given session, creating it on first use
+	 *
+	 * @param session key identifying the session, only weakly referenced
+	 * @return non-null state
+	 */
+	static SiteSession get(Object session) {
+		synchronized (SESSIONS) {
+			return SESSIONS.computeIfAbsent(session, key -> new SiteSession());
+		}
+	}
+
+	/**
+	 * Get the executor blobs are uploaded with. Its threads end when idle, so no shutdown is needed at the end of the
+	 * session.
+	 *
+	 * @param threads number of threads used when the executor is created by this call
+	 * @return executor
+	 */
+	synchronized ExecutorService getExecutor(int threads) {
+		if (this.executor == null) {
+			AtomicInteger count = new AtomicInteger();
+			this.executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+					runnable -> {
+						Thread thread = new Thread(runnable, "github-site-upload-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+			this.executor.allowCoreThreadTimeOut(true);
+		}
+		return this.executor;
+	}
+
+	/**
+	 * Get the budget bounding the memory held by the uploads of all executions
+	 *
+	 * @param maxBytes number of bytes of the budget when it is created by this call
+	 * @return budget
+	 */
+	synchronized ByteBudget getBudget(long maxBytes) {
+		if (this.budget == null) {
+			this.budget = new ByteBudget(maxBytes);
+		}
+		return this.budget;
+	}
+
+	/**
+	 * Get the concurrency limit of the uploads to the given host, creating it on first use
+	 *
+	 * @param host    host for API calls, null for github.com
+	 * @param factory creates the limit
+	 * @return limit
+	 */
+	AdaptiveConcurrency getConcurrency(String host, Supplier<AdaptiveConcurrency> factory) {
+		return this.concurrencies.computeIfAbsent(String.valueOf(host), key -> factory.get());
+	}
+
+	/**
+	 * Get the service for the given key, creating it on first use
+	 *
+	 * @param key     identifies host and credentials
+	 * @param factory creates the service
+	 * @return service
+	 * @throws E
+	 */
+	<E extends Exception> DataService getService(String key, ServiceFactory<E> factory) throws E {
+		DataService service = this.services.get(key);
+		if (service == null) {
+			synchronized (this.services) {
+				service = this.services.get(key);
+				if (service == null) {
+					service = factory.create();
+					this.services.put(key, service);
+				}
+			}
+		}
+		return service;
+	}
+
+	/**
+	 * Get the lock guarding updates of the given reference
+	 *
+	 * @param key identifies host, repository and reference
+	 * @return lock
+	 */
+	Lock getReferenceLock(String key) {
+		return this.locks.computeIfAbsent(key, k -> new ReentrantLock());
+	}
+
+	/**
+	 * Creates services
+	 *
+	 * @param <E> exception thrown on failures
+	 */
+	interface ServiceFactory<E extends Exception> {
+
+		/**
+		 * @return new service
+		 * @throws E
+		 */
+		DataService create() throws E;
+	}
+}
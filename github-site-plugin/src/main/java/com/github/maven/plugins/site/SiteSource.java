@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.io.File;
+
+/**
+ * Directory deployed to a path below the goal's path, configured as one of the <em>sources</em> of the site goal.
+ * Includes and excludes not set are taken from the goal's configuration.
+ */
+public class SiteSource {
+
+	private File directory;
+
+	private String path;
+
+	private String[] includes;
+
+	private String[] excludes;
+
+	/**
+	 * Create source configured by Maven
+	 */
+	public SiteSource() {
+		// configured by Maven
+	}
+
+	/**
+	 * Create source
+	 *
+	 * @param directory
+	 * @param path
+	 * @param includes
+	 * @param excludes
+	 */
+	SiteSource(File directory, String path, String[] includes, String[] excludes) {
+		this.directory = directory;
+		this.path = path;
+		this.includes = includes;
+		this.excludes = excludes;
+	}
+
+	/**
+	 * @return directory the files are read from
+	 */
+	File getDirectory() {
+		return this.directory;
+	}
+
+	/**
+	 * @return patterns of the files to include, null to use the goal's
+	 */
+	String[] getIncludes() {
+		return this.includes;
+	}
+
+	/**
+	 * @return patterns of the files to exclude, null to use the goal's
+	 */
+	String[] getExcludes() {
+		return this.excludes;
+	}
+
+	/**
+	 * Get the path the files are placed below, relative to the goal's path
+	 *
+	 * @return empty string or path ending with a slash
+	 */
+	String getPrefix() {
+		String prefix = this.path != null ? this.path.replace('\\', '/') : "";
+		while (prefix.startsWith("/")) {
+			prefix = prefix.substring(1);
+		}
+		if (prefix.length() > 0 && !prefix.endsWith("/")) {
+			prefix += "/";
+		}
+		return prefix;
+	}
+
+	@Override
+	public String toString() {
+		return this.directory + " -> /" + getPrefix();
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.github.maven.plugins.core.PathUtils;
+import com.github.maven.plugins.core.StringUtils;
+
+/**
+ * Files of several source directories merged into one site: every directory is scanned with its own includes and
+ * excludes and its files are placed below its path. Paths are those of the merged site, with forward slashes.
+ */
+class SiteSources {
+
+	private final SiteSource[] sources;
+
+	private final List<String> paths = new ArrayList<>();
+
+	private final Map<String, File> files = new HashMap<>();
+
+	private SiteSources(SiteSource[] sources) {
+		this.sources = sources;
+	}
+
+	/**
+	 * Scan all sources concurrently
+	 *
+	 * @param sources
+	 * @param includes patterns used by sources without own includes
+	 * @param excludes patterns used by sources without own excludes
+	 * @param executor
+	 * @return merged files
+	 * @throws IOException              if a directory is missing or can't be scanned
+	 * @throws IllegalArgumentException if two sources map a file to the same path
+	 */
+	static SiteSources scan(SiteSource[] sources, String[] includes, String[] excludes, ExecutorService executor)
+			throws IOException {
+		List<Future<String[]>> scans = new ArrayList<>(sources.length);
+		for (SiteSource source : sources) {
+			File directory = source.getDirectory();
+			if (directory == null || !directory.isDirectory()) {
+				throw new FileNotFoundException("Source directory " + directory + " not found");
+			}
+			String[] sourceIncludes = StringUtils
+					.removeEmpties(source.getIncludes() != null ? source.getIncludes() : includes);
+			String[] sourceExcludes = StringUtils
+					.removeEmpties(source.getExcludes() != null ? source.getExcludes() : excludes);
+			scans.add(executor.submit(() -> PathUtils.getMatchingPaths(sourceIncludes, sourceExcludes,
+					directory.getAbsolutePath())));
+		}
+
+		SiteSources merged = new SiteSources(sources);
+		try {
+			for (int i = 0; i < sources.length; i++) {
+				String prefix = sources[i].getPrefix();
+				for (String path : scans.get(i).get()) {
+					merged.add(prefix + path.replace('\\', '/'), new File(sources[i].getDirectory(), path));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while scanning sources");
+		} catch (ExecutionException e) {
+			throw new IOException("Error scanning sources: " + e.getCause().getMessage(), e.getCause());
+		} finally {
+			for (Future<String[]> scan : scans) {
+				scan.cancel(true);
+			}
+		}
+		return merged;
+	}
+
+	private void add(String path, File file) {
+		File existing = this.files.putIfAbsent(path, file);
+		if (existing != null) {
+			throw new IllegalArgumentException(
+					MessageFormat.format("{0} is deployed from both {1} and {2}", path, existing, file));
+		}
+		this.paths.add(path);
+	}
+
+	/**
+	 * @return paths of all files in the order of the sources
+	 */
+	String[] getPaths() {
+		return this.paths.toArray(new String[0]);
+	}
+
+	/**
+	 * Get the file of the given path: a scanned file, or else the file below the source with the longest matching
+	 * path, such as for a path of a plan
+	 *
+	 * @param path
+	 * @return file, possibly not existing
+	 * @throws FileNotFoundException if no source maps the path
+	 */
+	File getFile(String path) throws FileNotFoundException {
+		String normalized = path.replace('\\', '/');
+		File file = this.files.get(normalized);
+		if (file != null) {
+			return file;
+		}
+		SiteSource longest = null;
+		for (SiteSource source : this.sources) {
+			if (normalized.startsWith(source.getPrefix())
+					&& (longest == null || source.getPrefix().length() > longest.getPrefix().length())) {
+				longest = source;
+			}
+		}
+		if (longest == null) {
+			throw new FileNotFoundException("No source contains " + path);
+		}
+		return new File(longest.getDirectory(), normalized.substring(longest.getPrefix().length()));
+	}
+}
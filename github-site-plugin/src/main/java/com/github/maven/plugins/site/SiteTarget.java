@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import com.github.maven.plugins.core.StringUtils;
+
+/**
+ * Repository, branch and path a site is deployed to, configured as one of the <em>targets</em> of the site goal.
+ * Values not set are taken from the goal's own configuration.
+ */
+public class SiteTarget {
+
+	private String repositoryOwner;
+
+	private String repositoryName;
+
+	private String host;
+
+	private String server;
+
+	private String userName;
+
+	private String password;
+
+	private String oauth2Token;
+
+	private String branch;
+
+	private String path;
+
+	/**
+	 * Create a target taking all values from the goal's configuration
+	 */
+	public SiteTarget() {
+		// configured by Maven
+	}
+
+	/**
+	 * Create target
+	 *
+	 * @param repositoryOwner
+	 * @param repositoryName
+	 * @param host
+	 * @param server
+	 * @param userName
+	 * @param password
+	 * @param oauth2Token
+	 * @param branch
+	 * @param path
+	 */
+	SiteTarget(String repositoryOwner, String repositoryName, String host, String server, String userName,
+			String password, String oauth2Token, String branch, String path) {
+		this.repositoryOwner = repositoryOwner;
+		this.repositoryName = repositoryName;
+		this.host = host;
+		this.server = server;
+		this.userName = userName;
+		this.password = password;
+		this.oauth2Token = oauth2Token;
+		this.branch = branch;
+		this.path = path;
+	}
+
+	/**
+	 * Create a target with the values of this target and the given defaults for the values not set
+	 *
+	 * @param defaults
+	 * @return new target
+	 */
+	SiteTarget withDefaults(SiteTarget defaults) {
+		// Credentials are only inherited as a whole
+		boolean credentials = !StringUtils.isEmpty(this.server) || !StringUtils.isEmpty(this.userName)
+				|| !StringUtils.isEmpty(this.oauth2Token);
+		return new SiteTarget(get(this.repositoryOwner, defaults.repositoryOwner),
+				get(this.repositoryName, defaults.repositoryName), get(this.host, defaults.host),
+				credentials ? this.server : defaults.server, credentials ? this.userName : defaults.userName,
+				credentials ? this.password : defaults.password, credentials ? this.oauth2Token : defaults.oauth2Token,
+				get(this.branch, defaults.branch), get(this.path, defaults.path));
+	}
+
+	/**
+	 * @return owner of the repository
+	 */
+	String getRepositoryOwner() {
+		return this.repositoryOwner;
+	}
+
+	/**
+	 * @return name of the repository
+	 */
+	String getRepositoryName() {
+		return this.repositoryName;
+	}
+
+	/**
+	 * @return host for API calls
+	 */
+	String getHost() {
+		return this.host;
+	}
+
+	/**
+	 * @return id of the server in the settings holding the credentials
+	 */
+	String getServer() {
+		return this.server;
+	}
+
+	/**
+	 * @return user name for authentication
+	 */
+	String getUserName() {
+		return this.userName;
+	}
+
+	/**
+	 * @return password for authentication
+	 */
+	String getPassword() {
+		return this.password;
+	}
+
+	/**
+	 * @return OAuth2 token for authentication
+	 */
+	String getOAuth2Token() {
+		return this.oauth2Token;
+	}
+
+	/**
+	 * @return full name of the branch to update
+	 */
+	String getBranch() {
+		return this.branch;
+	}
+
+	/**
+	 * Get the path all blobs are placed below
+	 *
+	 * @return empty string or path ending with a slash
+	 */
+	String getPrefix() {
+		String prefix = this.path != null ? this.path : "";
+		if (prefix.length() > 0 && !prefix.endsWith("/")) {
+			prefix += "/";
+		}
+		return prefix;
+	}
+
+	@Override
+	public String toString() {
+		return (this.host != null ? this.host + "/" : "") + this.repositoryOwner + "/" + this.repositoryName + ":"
+				+ this.branch + "/" + getPrefix();
+	}
+
+	// static helpers
+
+	private static String get(String value, String defaultValue) {
+		return value != null ? value : defaultValue;
+	}
+}
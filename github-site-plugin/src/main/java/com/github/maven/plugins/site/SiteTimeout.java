@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.util.Locale;
+
+import com.github.maven.plugins.core.egit.GitHubClientEgit.Operation;
+
+/**
+ * Timeouts of one type of request, configured as one of the <em>timeouts</em> of the site goal. Values not set keep
+ * their defaults.
+ */
+public class SiteTimeout {
+
+	/**
+	 * Connect timeout used by default
+	 */
+	static final int DEFAULT_CONNECT = 30000;
+
+	/**
+	 * Read timeout of reads and small writes used by default
+	 */
+	static final int DEFAULT_READ = 60000;
+
+	/**
+	 * Read timeout of blob and tree creation used by default, GitHub may take long to store large ones
+	 */
+	static final int DEFAULT_UPLOAD_READ = 300000;
+
+	private String operation;
+
+	private Integer connect;
+
+	private Integer read;
+
+	private Integer total;
+
+	/**
+	 * Create timeouts configured by Maven
+	 */
+	public SiteTimeout() {
+		// configured by Maven
+	}
+
+	/**
+	 * Create timeouts
+	 *
+	 * @param operation
+	 * @param connect
+	 * @param read
+	 * @param total
+	 */
+	SiteTimeout(String operation, Integer connect, Integer read, Integer total) {
+		this.operation = operation;
+		this.connect = connect;
+		this.read = read;
+		this.total = total;
+	}
+
+	/**
+	 * Get the operation the timeouts apply to
+	 *
+	 * @return operation
+	 * @throws IllegalArgumentException if unknown
+	 */
+	Operation getOperation() {
+		if (this.operation == null) {
+			throw new IllegalArgumentException("Operation of timeouts missing");
+		}
+		try {
+			return Operation.valueOf(this.operation.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown operation of timeouts: " + this.operation, e);
+		}
+	}
+
+	/**
+	 * Get the timeouts of the operation, the configured ones taking precedence over the defaults
+	 *
+	 * @param timeouts configured timeouts, may be null
+	 * @param operation
+	 * @return connect, read and total timeout in milliseconds
+	 */
+	static int[] get(SiteTimeout[] timeouts, Operation operation) {
+		int[] values = { DEFAULT_CONNECT, operation == Operation.BLOB || operation == Operation.TREE
+				? DEFAULT_UPLOAD_READ : DEFAULT_READ, 0 };
+		if (timeouts != null) {
+			for (SiteTimeout timeout : timeouts) {
+				if (timeout.getOperation() == operation) {
+					values[0] = get(timeout.connect, values[0]);
+					values[1] = get(timeout.read, values[1]);
+					values[2] = get(timeout.total, values[2]);
+				}
+			}
+		}
+		for (int value : values) {
+			if (value < 0) {
+				throw new IllegalArgumentException("Timeouts of " + operation + " must not be negative");
+			}
+		}
+		return values;
+	}
+
+	// static helpers
+
+	private static int get(Integer value, int defaultValue) {
+		return value != null ? value.intValue() : defaultValue;
+	}
+}
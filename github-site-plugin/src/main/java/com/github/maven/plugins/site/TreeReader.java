@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_TREE;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_GIT;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_REPOS;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_TREES;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.service.DataService;
+
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Reads the blobs of a remote tree into a {@link BlobIndex}. Responses are parsed while they are streamed, without
+ * creating tree entry objects. A tree is read recursively with a single request; GitHub truncates such responses for
+ * very large trees, in which case only the direct entries of the tree are read and its subtrees are read the same way
+ * in parallel.
+ */
+class TreeReader {
+
+	private final DataService service;
+
+	private final String uri;
+
+	private final Executor executor;
+
+	private BlobIndex blobs;
+
+	private int pending;
+
+	private IOException failure;
+
+	/**
+	 * Create reader
+	 *
+	 * @param service
+	 * @param repository
+	 * @param executor   executor subtrees are read with, bounding the concurrent requests
+	 */
+	TreeReader(DataService service, RepositoryId repository, Executor executor) {
+		this.service = service;
+		this.uri = SEGMENT_REPOS + "/" + repository.generateId() + SEGMENT_GIT + SEGMENT_TREES + "/";
+		this.executor = executor;
+	}
+
+	/**
+	 * Read the blobs of the given tree
+	 *
+	 * @param tree SHA-1 of the tree
+	 * @return blob SHA-1s by path
+	 * @throws IOException
+	 */
+	BlobIndex read(String tree) throws IOException {
+		synchronized (this) {
+			this.blobs = null;
+			this.failure = null;
+			this.pending = 1;
+		}
+		walk(tree, "");
+		synchronized (this) {
+			try {
+				while (this.pending > 0) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				this.failure = new InterruptedIOException("Interrupted while reading tree " + tree);
+			}
+			if (this.failure != null) {
+				throw this.failure;
+			}
+			return this.blobs != null ? this.blobs : new BlobIndex();
+		}
+	}
+
+	/**
+	 * Read the given tree and submit its subtrees if it is too large to read at once
+	 *
+	 * @param tree
+	 * @param prefix path of the tree, empty or ending with a slash
+	 */
+	private void walk(String tree, String prefix) {
+		try {
+			if (!isFailed()) {
+				BlobIndex part = new BlobIndex();
+				if (fetch(tree, prefix, true, part, null)) {
+					List<String[]> subtrees = new ArrayList<>();
+					part = new BlobIndex();
+					if (fetch(tree, prefix, false, part, subtrees)) {
+						throw new IOException(MessageFormat.format("Tree {0} ({1}) has too many entries", tree,
+								prefix.isEmpty() ? "/" : prefix));
+					}
+					for (String[] subtree : subtrees) {
+						submit(subtree[1], prefix + subtree[0] + "/");
+					}
+				}
+				merge(part);
+			}
+		} catch (IOException | RuntimeException e) {
+			fail(e instanceof IOException io ? io : new IOException("Error reading tree " + tree, e));
+		} finally {
+			finish();
+		}
+	}
+
+	private void submit(String tree, String prefix) {
+		synchronized (this) {
+			this.pending++;
+		}
+		try {
+			this.executor.execute(() -> walk(tree, prefix));
+		} catch (RejectedExecutionException e) {
+			fail(new IOException("Error reading tree " + tree, e));
+			finish();
+		}
+	}
+
+	private synchronized void merge(BlobIndex part) {
+		if (this.blobs == null) {
+			this.blobs = part;
+			return;
+		}
+		for (String path : part.paths()) {
+			this.blobs.put(path, part.get(path));
+		}
+	}
+
+	private synchronized boolean isFailed() {
+		return this.failure != null;
+	}
+
+	private synchronized void fail(IOException e) {
+		if (this.failure == null) {
+			this.failure = e;
+		}
+	}
+
+	private synchronized void finish() {
+		if (--this.pending == 0) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Fetch a tree and add its blobs to the index
+	 *
+	 * @param tree
+	 * @param prefix    prepended to all paths
+	 * @param recursive
+	 * @param blobs
+	 * @param subtrees  receives path and SHA-1 of every subtree, may be null
+	 * @return true if the response was truncated
+	 * @throws IOException
+	 */
+	private boolean fetch(String tree, String prefix, boolean recursive, BlobIndex blobs, List<String[]> subtrees)
+			throws IOException {
+		GitHubRequest request = new GitHubRequest().setUri(this.uri + tree + (recursive ? "?recursive=1" : ""));
+		try (JsonReader reader = new JsonReader(
+				new InputStreamReader(this.service.getClient().getStream(request), StandardCharsets.UTF_8))) {
+			return readTree(reader, prefix, blobs, subtrees);
+		} catch (IllegalStateException | NumberFormatException e) {
+			throw new IOException("Invalid tree " + tree + ": " + e.getMessage(), e);
+		}
+	}
+
+	// static helpers
+
+	/**
+	 * Add the blobs of a tree response to the index
+	 *
+	 * @param reader   positioned before the tree object
+	 * @param prefix   prepended to all paths
+	 * @param blobs
+	 * @param subtrees receives path and SHA-1 of every subtree, may be null
+	 * @return true if the response was truncated
+	 * @throws IOException
+	 */
+	static boolean readTree(JsonReader reader, String prefix, BlobIndex blobs, List<String[]> subtrees)
+			throws IOException {
+		boolean truncated = false;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if ("truncated".equals(name)) {
+				truncated = reader.nextBoolean();
+				continue;
+			}
+			if (!"tree".equals(name)) {
+				reader.skipValue();
+				continue;
+			}
+			reader.beginArray();
+			while (reader.hasNext()) {
+				String path = null;
+				String type = null;
+				String sha = null;
+				reader.beginObject();
+				while (reader.hasNext()) {
+					switch (reader.nextName()) {
+					case "path":
+						path = reader.nextString();
+						break;
+					case "type":
+						type = reader.nextString();
+						break;
+					case "sha":
+						sha = reader.nextString();
+						break;
+					default:
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+				if (TYPE_BLOB.equals(type)) {
+					blobs.put(prefix + path, sha);
+				} else if (TYPE_TREE.equals(type) && subtrees != null) {
+					subtrees.add(new String[] { path, sha });
+				}
+			}
+			reader.endArray();
+		}
+		reader.endObject();
+		return truncated;
+	}
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.eclipse.egit.github.core.Blob.ENCODING_BASE64;
+import static org.eclipse.egit.github.core.TreeEntry.MODE_BLOB;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
+import static org.eclipse.egit.github.core.TypedResource.TYPE_COMMIT;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.eclipse.egit.github.core.Blob;
+import org.eclipse.egit.github.core.Commit;
+import org.eclipse.egit.github.core.CommitUser;
+import org.eclipse.egit.github.core.Reference;
+import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.egit.github.core.Tree;
+import org.eclipse.egit.github.core.TreeEntry;
+import org.eclipse.egit.github.core.TypedResource;
+import org.eclipse.egit.github.core.client.RequestException;
+import org.eclipse.egit.github.core.service.DataService;
+
+import com.github.maven.plugins.core.BlobUtils;
+import com.github.maven.plugins.core.DirectoryWatcher;
+
+/**
+ * Mojo which watches the output directory and pushes a commit containing only the changed files after every burst of
+ * changes. The client, the remote tree and the blob SHA-1s already on the branch are kept between commits, so files
+ * whose content didn't change are never uploaded again. Runs until interrupted.
+ */
+@Mojo(name = "watch")
+public class WatchMojo extends SiteMojo {
+
+	/**
+	 * Number of milliseconds without further changes before the changed files are pushed.
+	 */
+	@Parameter(property = "github.site.debounce", defaultValue = "500")
+	private long debounce;
+
+	private DataService service;
+
+	private RepositoryId repository;
+
+	private CommitUser author;
+
+	private String headCommit;
+
+	private String headTree;
+
+	private BlobIndex remoteBlobs = new BlobIndex();
+
+	private final Set<String> uploadedBlobs = new HashSet<>();
+
+	@Override
+	public void execute() throws MojoExecutionException {
+		if (isSkip()) {
+			info("Github Site Plugin execution skipped");
+			return;
+		}
+		checkMessage();
+
+		if (hasSources()) {
+			throw new MojoExecutionException("Sources can't be watched, only the output directory");
+		}
+		if (hasArchive()) {
+			throw new MojoExecutionException("An archive can't be watched, only the output directory");
+		}
+		if (hasTargets()) {
+			throw new MojoExecutionException("Only the target configured on the goal can be watched");
+		}
+		if (getPlan() != null) {
+			throw new MojoExecutionException("A plan can't be watched, the changed files are hashed instead");
+		}
+		if (getKeepCommits() > 0) {
+			throw new MojoExecutionException("Keeping only the latest commits is not supported when watching");
+		}
+		if (BACKEND_GIT.equals(getBackend())) {
+			throw new MojoExecutionException("Changes are watched with the data backend only");
+		}
+		this.repository = getTargetRepository();
+		this.service = createService();
+		this.author = createAuthor(this.service.getClient());
+		if (isDryRun()) {
+			info("Dry run mode, repository will not be modified");
+		}
+
+		Set<String> pending = new TreeSet<>();
+		for (String path : getMatchingPaths()) {
+			pending.add(path.replace('\\', '/'));
+		}
+
+		// Start watching before the initial push so no change gets lost
+		try (DirectoryWatcher watcher = new DirectoryWatcher(getOutputDirectory().toPath())) {
+			loadRemote();
+			while (true) {
+				if (push(pending)) {
+					pending.clear();
+				}
+				if (pending.isEmpty()) {
+					info(MessageFormat.format("Watching {0} for changes", getOutputDirectory()));
+				}
+				// A deleted directory is not matched itself, the blobs below it are filtered when deleting them
+				for (String path : watcher.take(this.debounce)) {
+					if (!new File(getOutputDirectory(), path).exists() || isMatchingPath(path)) {
+						pending.add(path);
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error watching directory: " + e.getMessage(), e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			info("Stopped watching");
+		}
+	}
+
+	/**
+	 * Load the head commit, its tree and the SHA-1s of all blobs in it
+	 *
+	 * @throws MojoExecutionException
+	 */
+	private void loadRemote() throws MojoExecutionException {
+		RemoteTree remote;
+		try {
+			remote = RemoteTree.load(this.service, this.repository, getBranch(), getExecutor());
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error getting tree: " + e.getMessage(), e);
+		}
+		this.headCommit = remote.getCommit();
+		this.headTree = remote.getTree();
+		this.remoteBlobs = remote.getBlobs();
+		if (isDebug()) {
+			debug(MessageFormat.format("Loaded tree {0} with {1} blobs at commit {2}, indexed in about {3} bytes",
+					this.headTree, this.remoteBlobs.size(), this.headCommit, this.remoteBlobs.getMemoryUsage()));
+		}
+	}
+
+	/**
+	 * Push a commit containing the given files, rebuilding it on the new head whenever the branch moved concurrently
+	 *
+	 * @param paths paths relative to the output directory
+	 * @return true if pushed or nothing to push, false if the push failed and should be retried
+	 * @throws MojoExecutionException
+	 * @throws InterruptedException
+	 */
+	private boolean push(Set<String> paths) throws MojoExecutionException, InterruptedException {
+		for (int attempt = 1;; attempt++) {
+			try {
+				pushChanges(paths);
+				return true;
+			} catch (RequestException e) {
+				if (e.getStatus() != 422 || attempt >= getReferenceAttempts()) {
+					getLog().warn("Error pushing changes, reloading branch: " + e.getMessage());
+					loadRemote();
+					return false;
+				}
+				long delay = getRetryDelay(attempt);
+				info(MessageFormat.format("Reference {0} was updated concurrently, retrying in {1} ms", getBranch(),
+						delay));
+				Thread.sleep(delay);
+				loadRemote();
+			} catch (IOException e) {
+				// The branch may have moved, start over from its current state with the next change
+				getLog().warn("Error pushing changes, reloading branch: " + e.getMessage());
+				loadRemote();
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Push a commit containing the given files if any of them differs from the blob on the branch
+	 *
+	 * @param paths paths relative to the output directory
+	 * @throws MojoExecutionException
+	 * @throws IOException
+	 */
+	private void pushChanges(Set<String> paths) throws MojoExecutionException, IOException {
+		String prefix = getPrefix();
+		List<TreeEntry> entries = new ArrayList<>();
+		for (String path : paths) {
+			File file = new File(getOutputDirectory(), path);
+			if (!file.exists()) {
+				if (isIncremental()) {
+					addDeletions(entries, prefix, path);
+				}
+				continue;
+			}
+			if (!file.isFile()) {
+				continue;
+			}
+			String sha;
+			try {
+				sha = BlobUtils.sha1(file);
+			} catch (IOException e) {
+				throw new MojoExecutionException("Error reading file: " + e.getMessage(), e);
+			}
+			if (sha.equals(this.remoteBlobs.get(prefix + path))) {
+				continue;
+			}
+			entries.add(createEntry(prefix + path, sha));
+		}
+		boolean createNoJekyll = isNoJekyll() && !this.remoteBlobs.contains(NO_JEKYLL_FILE);
+		for (TreeEntry entry : entries) {
+			if (NO_JEKYLL_FILE.equals(entry.getPath())) {
+				createNoJekyll = false;
+			}
+		}
+		if (entries.isEmpty() && !createNoJekyll) {
+			if (isDebug()) {
+				debug(MessageFormat.format("None of {0} changed files differs from the branch", paths.size()));
+			}
+			return;
+		}
+
+		info(MessageFormat.format("Pushing {0} changed files", entries.size()));
+		if (isDryRun()) {
+			return;
+		}
+
+		// Blobs uploaded by an earlier attempt are not uploaded again
+		for (TreeEntry entry : entries) {
+			if (entry.getSha() == null || this.uploadedBlobs.contains(entry.getSha())) {
+				continue;
+			}
+			String sha = createBlob(this.service, this.repository, entry.getPath().substring(prefix.length()));
+			if (!entry.getSha().equals(sha)) {
+				throw new IOException(MessageFormat.format("Blob of {0} was created as {1} instead of {2}",
+						entry.getPath(), sha, entry.getSha()));
+			}
+			this.uploadedBlobs.add(sha);
+		}
+		if (createNoJekyll) {
+			entries.add(createEntry(NO_JEKYLL_FILE, this.service.createBlob(this.repository,
+					new Blob().setEncoding(ENCODING_BASE64).setContent(""))));
+		}
+
+		Tree tree = RemoteTree.createTree(this.service, this.repository, entries, this.headTree);
+
+		Commit commit = new Commit();
+		commit.setMessage(getMessage());
+		commit.setTree(tree);
+		this.author.setDate(new Date());
+		commit.setAuthor(this.author);
+		commit.setCommitter(this.author);
+		if (this.headCommit != null) {
+			commit.setParents(Collections.singletonList(new Commit().setSha(this.headCommit)));
+		}
+		Commit created = this.service.createCommit(this.repository, commit);
+
+		TypedResource object = new TypedResource();
+		object.setType(TYPE_COMMIT).setSha(created.getSha());
+		Reference ref = new Reference().setObject(object).setRef(getBranch());
+		if (this.headCommit != null) {
+			this.service.editReference(this.repository, ref, isForce());
+		} else {
+			this.service.createReference(this.repository, ref);
+		}
+		info(MessageFormat.format("Updated reference {0} to {1}", getBranch(), created.getSha()));
+
+		this.headCommit = created.getSha();
+		this.headTree = tree.getSha();
+		for (TreeEntry entry : entries) {
+			if (entry.getSha() != null) {
+				this.remoteBlobs.put(entry.getPath(), entry.getSha());
+			} else {
+				this.remoteBlobs.remove(entry.getPath());
+			}
+		}
+	}
+
+	/**
+	 * Add deletion entries for the blob at the given path or all blobs below it if it was a directory, as long as they
+	 * are matched by the includes and excludes
+	 *
+	 * @param entries
+	 * @param prefix
+	 * @param path    path of the deleted file or directory relative to the output directory
+	 */
+	private void addDeletions(List<TreeEntry> entries, String prefix, String path) {
+		String deleted = prefix + path;
+		for (String remotePath : this.remoteBlobs.paths()) {
+			if ((remotePath.equals(deleted) || remotePath.startsWith(deleted + "/"))
+					&& isMatchingPath(remotePath.substring(prefix.length()))
+					&& !(isNoJekyll() && NO_JEKYLL_FILE.equals(remotePath))) {
+				entries.add(createEntry(remotePath, null));
+			}
+		}
+	}
+
+	// static helpers
+
+	private static TreeEntry createEntry(String path, String sha) {
+		TreeEntry entry = new TreeEntry();
+		entry.setPath(path);
+		entry.setType(TYPE_BLOB);
+		entry.setMode(MODE_BLOB);
+		entry.setSha(sha);
+		return entry;
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.maven.plugins.core.BlobUtils.TextDetector;
+
+/**
+ * Unit tests of {@link BlobUtils}
+ */
+class BlobUtilsTest {
+
+	/**
+	 * Test of {@link BlobUtils#sha1(byte[])} against SHA-1s computed by Git
+	 */
+	@Test
+	void sha1Content() {
+		assertEquals("e69de29bb2d1d6434b8b29ae775ad8c2e48c5391", BlobUtils.sha1(new byte[0]));
+		assertEquals("ce013625030ba8dba906f756967f9e9ca394464a",
+				BlobUtils.sha1("hello\n".getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	/**
+	 * Test of {@link BlobUtils#sha1(File)}
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void sha1File() throws IOException {
+		File file = File.createTempFile("blob", ".txt", PathUtilsTest.createDirectory());
+		byte[] content = new byte[100000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		Files.write(file.toPath(), content);
+		assertEquals(BlobUtils.sha1(content), BlobUtils.sha1(file));
+	}
+
+	/**
+	 * Test of {@link BlobUtils#sha1(java.io.InputStream, long)} failing on a stream shorter than announced
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void sha1Stream() throws IOException {
+		byte[] content = "hello\n".getBytes(StandardCharsets.US_ASCII);
+		assertEquals("ce013625030ba8dba906f756967f9e9ca394464a",
+				BlobUtils.sha1(new ByteArrayInputStream(content), content.length));
+		assertThrows(IOException.class, () -> BlobUtils.sha1(new ByteArrayInputStream(content), 7));
+	}
+
+	private static boolean isText(byte[] content, int chunk) {
+		TextDetector detector = new TextDetector();
+		for (int offset = 0; offset < content.length; offset += chunk) {
+			detector.update(content, offset, Math.min(chunk, content.length - offset));
+		}
+		return detector.isText();
+	}
+
+	private static boolean isText(int... values) {
+		byte[] content = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			content[i] = (byte) values[i];
+		}
+		return isText(content, content.length);
+	}
+
+	/**
+	 * Test of {@link TextDetector} with valid UTF-8 read in chunks of every size
+	 */
+	@Test
+	void text() {
+		byte[] content = "<p>Grüße, \u20ac \ud83d\ude00</p>\n".getBytes(StandardCharsets.UTF_8);
+		for (int chunk = 1; chunk <= content.length; chunk++) {
+			assertTrue(isText(content, chunk));
+		}
+		assertTrue(isText(new byte[0], 1));
+	}
+
+	/**
+	 * Test of {@link TextDetector} with NULs and invalid UTF-8
+	 */
+	@Test
+	void binary() {
+		assertFalse(isText('a', 0, 'b'));
+		// Truncated, stray continuation, overlong, surrogate, above U+10FFFF
+		assertFalse(isText('a', 0xC3));
+		assertFalse(isText(0x80));
+		assertFalse(isText(0xC0, 0xAF));
+		assertFalse(isText(0xE0, 0x80, 0xAF));
+		assertFalse(isText(0xED, 0xA0, 0x80));
+		assertFalse(isText(0xF4, 0x90, 0x80, 0x80));
+		assertFalse(isText(0xFF));
+		assertTrue(isText(0xF4, 0x8F, 0xBF, 0xBF));
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link DirectoryWatcher}
+ */
+class DirectoryWatcherTest {
+
+	/**
+	 * Changed files and files in new directories are reported relative to the root
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void changedFiles() throws Exception {
+		File dir = PathUtilsTest.createDirectory();
+		File existing = new File(dir, "index.html");
+		Files.write(existing.toPath(), "old".getBytes(StandardCharsets.UTF_8));
+
+		try (DirectoryWatcher watcher = new DirectoryWatcher(dir.toPath())) {
+			Files.write(existing.toPath(), "new".getBytes(StandardCharsets.UTF_8));
+			File subdir = new File(dir, "css");
+			assertTrue(subdir.mkdir());
+			Files.write(new File(subdir, "site.css").toPath(), "body {}".getBytes(StandardCharsets.UTF_8));
+
+			// Events may be delivered in several bursts on slow file systems
+			Set<String> changed = new TreeSet<>();
+			long deadline = System.currentTimeMillis() + 30000;
+			while (changed.size() < 2 && System.currentTimeMillis() < deadline) {
+				changed.addAll(watcher.take(200));
+			}
+			assertTrue(changed.contains("index.html"), changed.toString());
+			assertTrue(changed.contains("css/site.css"), changed.toString());
+		}
+	}
+}
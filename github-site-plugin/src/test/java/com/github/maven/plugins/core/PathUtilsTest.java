@@ -101,4 +101,19 @@ class PathUtilsTest {
 		assertEquals(include.getName(), paths[0]);
 	}
 
+	/**
+	 * Test of {@link PathUtils#isMatchingPath(String[], String[], String)}
+	 */
+	@Test
+	void matchingPath() {
+		String[] includes = { "**/*.html", "css/" };
+		String[] excludes = { "private/**" };
+		assertTrue(PathUtils.isMatchingPath(includes, excludes, "index.html"));
+		assertTrue(PathUtils.isMatchingPath(includes, excludes, "apidocs/index.html"));
+		assertTrue(PathUtils.isMatchingPath(includes, excludes, "css/site.css"));
+		assertFalse(PathUtils.isMatchingPath(includes, excludes, "images/logo.png"));
+		assertFalse(PathUtils.isMatchingPath(includes, excludes, "private/index.html"));
+		assertTrue(PathUtils.isMatchingPath(null, null, "images/logo.png"));
+	}
+
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.URI;
+import java.util.Arrays;
+
+import org.apache.maven.settings.Proxy;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link SettingsProxySelector}
+ */
+class SettingsProxySelectorTest {
+
+	private static Proxy createProxy(String id, String nonProxyHosts) {
+		Proxy proxy = new Proxy();
+		proxy.setId(id);
+		proxy.setHost("proxy.example.com");
+		proxy.setPort(3128);
+		proxy.setNonProxyHosts(nonProxyHosts);
+		return proxy;
+	}
+
+	/**
+	 * Exact and wildcard non proxy hosts
+	 */
+	@Test
+	void nonProxyHosts() {
+		SettingsProxySelector selector = new SettingsProxySelector(
+				createProxy("proxy", "localhost|*.internal, build* ;git*.example.com|*"));
+		assertTrue(selector.isNonProxyHost("localhost"));
+		assertTrue(selector.isNonProxyHost("ci.internal"));
+		assertTrue(selector.isNonProxyHost("build-1"));
+		assertTrue(selector.isNonProxyHost("github.example.com"));
+		assertFalse(selector.isNonProxyHost("internal"));
+		assertFalse(selector.isNonProxyHost("git.com"));
+		assertFalse(selector.isNonProxyHost("api.github.com"));
+		assertFalse(selector.isNonProxyHost(null));
+	}
+
+	/**
+	 * The decision for a host is cached and direct hosts select no proxy
+	 */
+	@Test
+	void select() {
+		SettingsProxySelector selector = new SettingsProxySelector(createProxy("proxy", "localhost"));
+		java.net.Proxy proxy = selector.select(URI.create("https://api.github.com/repos")).get(0);
+		assertEquals(java.net.Proxy.Type.HTTP, proxy.type());
+		assertEquals(3128, ((InetSocketAddress) proxy.address()).getPort());
+		assertSame(proxy, selector.select(URI.create("https://api.github.com/user")).get(0));
+		assertSame(java.net.Proxy.NO_PROXY, selector.select(URI.create("http://localhost:8080/")).get(0));
+		assertSame(java.net.Proxy.NO_PROXY,
+				new SettingsProxySelector(null).select(URI.create("https://api.github.com")).get(0));
+	}
+
+	/**
+	 * The proxy with the server's id is preferred over the first active HTTP proxy
+	 */
+	@Test
+	void choose() {
+		Proxy inactive = createProxy("inactive", null);
+		inactive.setActive(false);
+		Proxy socks = createProxy("socks", null);
+		socks.setProtocol("socks5");
+		Proxy first = createProxy("first", null);
+		Proxy server = createProxy("server", null);
+		server.setProtocol("https");
+		assertSame(server, SettingsProxySelector.choose(Arrays.asList(inactive, socks, first, server), "SERVER"));
+		assertSame(first, SettingsProxySelector.choose(Arrays.asList(inactive, socks, first, server), "other"));
+		assertSame(first, SettingsProxySelector.choose(Arrays.asList(inactive, first), null));
+		assertNull(SettingsProxySelector.choose(Arrays.asList(inactive, socks), "inactive"));
+		assertNull(SettingsProxySelector.choose(null, null));
+	}
+
+	/**
+	 * Credentials only for proxies with a user name
+	 */
+	@Test
+	void credentials() {
+		Proxy proxy = createProxy("proxy", null);
+		assertNull(new SettingsProxySelector(proxy).getCredentials());
+		proxy.setUsername("user");
+		proxy.setPassword("secret");
+		PasswordAuthentication credentials = new SettingsProxySelector(proxy).getCredentials();
+		assertEquals("user", credentials.getUserName());
+		assertEquals("secret", new String(credentials.getPassword()));
+	}
+}
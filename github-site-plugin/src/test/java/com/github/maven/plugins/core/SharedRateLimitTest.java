@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests of {@link SharedRateLimit}
+ */
+class SharedRateLimitTest {
+
+	private static final long NOW = 1700000000L * 1000000;
+
+	@TempDir
+	File directory;
+
+	/**
+	 * Limits mapping the same file see each other's reservations and observations
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void shared() throws IOException {
+		File file = new File(this.directory, "state.limit");
+		SharedRateLimit first = new SharedRateLimit(file);
+		SharedRateLimit second = new SharedRateLimit(file);
+		first.merge(100, NOW / 1000000 + 100);
+		assertEquals(0, second.reserve(NOW, 10));
+		assertEquals(1000000, first.reserve(NOW, 10));
+		// 99 requests remain for 100 seconds
+		assertEquals(2010101, second.reserve(NOW, 10));
+	}
+
+	/**
+	 * Without an observation the default rate applies
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void defaultRate() throws IOException {
+		SharedRateLimit limit = new SharedRateLimit(new File(this.directory, "state.limit"));
+		assertEquals(0, limit.reserve(NOW, 4));
+		assertEquals(250000, limit.reserve(NOW, 4));
+		assertEquals(0, limit.reserve(NOW + 10000000, 4));
+	}
+
+	/**
+	 * When no requests remain they wait for the reset, and the lowest remaining count of a window is kept
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void exhausted() throws IOException {
+		SharedRateLimit limit = new SharedRateLimit(new File(this.directory, "state.limit"));
+		long reset = NOW / 1000000 + 30;
+		limit.merge(0, reset);
+		limit.merge(50, reset);
+		assertEquals(30000000, limit.reserve(NOW, 1));
+		limit.merge(10, reset + 3600);
+		assertEquals(0, limit.reserve(reset * 1000000 + 1000000, 1));
+	}
+
+	/**
+	 * One instance is shared per key within the JVM
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void open() throws IOException {
+		SharedRateLimit limit = SharedRateLimit.open(this.directory, "host\ntoken");
+		assertSame(limit, SharedRateLimit.open(this.directory, "host\ntoken"));
+		assertNotSame(limit, SharedRateLimit.open(this.directory, "host\nother"));
+		limit.observe(5000, System.currentTimeMillis() / 1000 + 3600);
+		limit.acquire(1);
+	}
+}
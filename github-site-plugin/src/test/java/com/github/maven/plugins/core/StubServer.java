@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import com.github.maven.plugins.core.egit.GitHubClientEgit;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in of the GitHub API and other HTTP endpoints used by tests, answering with canned JSON
+ */
+public class StubServer implements AutoCloseable {
+
+	private final HttpServer server;
+
+	/**
+	 * Create server listening on a free port of the loopback interface, not yet started
+	 *
+	 * @throws IOException
+	 */
+	public StubServer() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+	}
+
+	/**
+	 * Handle requests below the given path, also once started
+	 *
+	 * @param path    path prefix, such as <em>/api/v3/user</em>
+	 * @param handler
+	 */
+	public void handle(String path, HttpHandler handler) {
+		this.server.createContext(path, handler);
+	}
+
+	/**
+	 * Start answering requests
+	 */
+	public void start() {
+		this.server.start();
+	}
+
+	/**
+	 * @return address the server listens on
+	 */
+	public InetSocketAddress getAddress() {
+		return this.server.getAddress();
+	}
+
+	/**
+	 * @return port the server listens on
+	 */
+	public int getPort() {
+		return this.server.getAddress().getPort();
+	}
+
+	/**
+	 * @return client of the API served at <em>/api/v3</em>
+	 */
+	public GitHubClientEgit createClient() {
+		return new GitHubClientEgit("localhost", getPort(), "http");
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+	}
+
+	// static helpers
+
+	/**
+	 * Send a JSON response, gzip compressed if the request accepts it
+	 *
+	 * @param exchange
+	 * @param status
+	 * @param body     JSON, empty to send no body
+	 * @throws IOException
+	 */
+	public static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		if (bytes.length > 0 && accept != null && accept.contains("gzip")) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (OutputStream output = new GZIPOutputStream(compressed)) {
+				output.write(bytes);
+			}
+			bytes = compressed.toByteArray();
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(bytes);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link TarGzWriter}
+ */
+class TarGzWriterTest {
+
+	/**
+	 * Read all entries of the given archive
+	 *
+	 * @param archive
+	 * @return map of entry names to contents
+	 * @throws IOException
+	 */
+	static Map<String, String> readArchive(File archive) throws IOException {
+		Map<String, String> entries = new LinkedHashMap<>();
+		try (DataInputStream input = new DataInputStream(new GZIPInputStream(new FileInputStream(archive)))) {
+			String paxPath = null;
+			byte[] header = new byte[512];
+			while (true) {
+				input.readFully(header);
+				if (header[0] == 0) {
+					return entries;
+				}
+				long checksum = 0;
+				for (int i = 0; i < header.length; i++) {
+					checksum += i >= 148 && i < 156 ? ' ' : header[i] & 0xff;
+				}
+				assertEquals(checksum, Long.parseLong(field(header, 148, 7), 8));
+
+				int size = Integer.parseInt(field(header, 124, 11), 8);
+				byte[] content = new byte[size];
+				input.readFully(content);
+				input.readFully(new byte[(512 - size % 512) % 512]);
+
+				if (header[156] == 'x') {
+					String record = new String(content, StandardCharsets.UTF_8);
+					assertEquals(Integer.parseInt(record.substring(0, record.indexOf(' '))), content.length);
+					paxPath = record.substring(record.indexOf("path=") + 5, record.length() - 1);
+					continue;
+				}
+				String name = field(header, 0, 100);
+				String prefix = field(header, 345, 155);
+				if (paxPath != null) {
+					name = paxPath;
+					paxPath = null;
+				} else if (!prefix.isEmpty()) {
+					name = prefix + "/" + name;
+				}
+				entries.put(name, new String(content, StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	private static String field(byte[] header, int offset, int length) {
+		int end = offset;
+		while (end < offset + length && header[end] != 0) {
+			end++;
+		}
+		return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+	}
+
+	private static File writeFile(File dir, String content) throws IOException {
+		File file = File.createTempFile("entry", ".txt", dir);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	/**
+	 * Test writing entries with short, prefixed and extended names
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void writeEntries() throws IOException {
+		File dir = PathUtilsTest.createDirectory();
+		StringBuilder large = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			large.append("line ").append(i).append('\n');
+		}
+		StringBuilder deep = new StringBuilder();
+		for (int i = 0; i < 30; i++) {
+			deep.append("directory").append(i).append('/');
+		}
+		String prefixed = deep.substring(0, 120) + "/index.html";
+		String extended = deep + "index.html";
+
+		File archive = new File(dir, "site.tar.gz");
+		try (TarGzWriter writer = new TarGzWriter(archive)) {
+			writer.addFile("index.html", writeFile(dir, "<html/>"));
+			writer.addFile("empty.txt", writeFile(dir, ""));
+			writer.addFile("large.txt", writeFile(dir, large.toString()));
+			writer.addFile(prefixed, writeFile(dir, "prefixed"));
+			writer.addFile(extended, writeFile(dir, "extended"));
+		}
+
+		Map<String, String> entries = readArchive(archive);
+		assertEquals(5, entries.size());
+		assertEquals("<html/>", entries.get("index.html"));
+		assertEquals("", entries.get("empty.txt"));
+		assertEquals(large.toString(), entries.get("large.txt"));
+		assertEquals("prefixed", entries.get(prefixed));
+		assertEquals("extended", entries.get(extended));
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import static com.github.maven.plugins.core.StubServer.respond;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPInputStream;
+
+import javax.net.ssl.SSLException;
+
+import org.eclipse.egit.github.core.Blob;
+import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.service.DataService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.maven.plugins.core.StubServer;
+import com.github.maven.plugins.core.egit.GitHubClientEgit.Operation;
+
+/**
+ * Unit tests of {@link GitHubClientEgit} against a local stand-in of the GitHub API
+ */
+class GitHubClientEgitTest {
+
+	private final List<String> encodings = new CopyOnWriteArrayList<>();
+
+	private StubServer server;
+
+	@AfterEach
+	void stop() {
+		if (this.server != null) {
+			this.server.close();
+		}
+	}
+
+	/**
+	 * Start a server echoing request bodies, gzip compressed if the request accepts it
+	 *
+	 * @param acceptGzip whether compressed request bodies are understood
+	 * @return client of the server
+	 * @throws IOException
+	 */
+	private GitHubClientEgit start(boolean acceptGzip) throws IOException {
+		this.server = new StubServer();
+		this.server.handle("/api/v3/", exchange -> {
+			String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+			this.encodings.add(exchange.getRequestURI().getPath() + " " + encoding);
+			InputStream body = exchange.getRequestBody();
+			if ("gzip".equals(encoding)) {
+				if (!acceptGzip) {
+					respond(exchange, 400, "{\"message\":\"Problems parsing JSON\"}");
+					return;
+				}
+				body = new GZIPInputStream(body);
+			}
+			respond(exchange, 200, new String(body.readAllBytes(), StandardCharsets.UTF_8));
+		});
+		this.server.start();
+		return this.server.createClient();
+	}
+
+
+	/**
+	 * Request bodies are compressed once the probe succeeded, the probe is sent once per host
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void compressedRequests() throws IOException {
+		GitHubClientEgit client = start(true).setCompressRequests(true);
+		Map<?, ?> echo = client.post("/echo", Collections.singletonMap("path", "index.html"), Map.class);
+		assertEquals("index.html", echo.get("path"));
+		client.post("/echo", Collections.singletonMap("path", "other.html"), Map.class);
+		assertTrue(client.isCompressingRequests());
+		assertEquals(List.of("/api/v3/markdown gzip", "/api/v3/echo gzip", "/api/v3/echo gzip"), this.encodings);
+	}
+
+	/**
+	 * Requests are classified by method and path
+	 */
+	@Test
+	void operations() {
+		assertEquals(Operation.READ, Operation.of("GET", "/repos/o/r/git/trees/abc"));
+		assertEquals(Operation.READ, Operation.of("HEAD", "/repos/o/r/git/blobs/abc"));
+		assertEquals(Operation.BLOB, Operation.of("POST", "/repos/o/r/git/blobs"));
+		assertEquals(Operation.TREE, Operation.of("POST", "/repos/o/r/git/trees"));
+		assertEquals(Operation.WRITE, Operation.of("POST", "/repos/o/r/git/commits"));
+		assertEquals(Operation.WRITE, Operation.of("PATCH", "/repos/o/r/git/refs/heads/gh-pages"));
+		assertTrue(Operation.BLOB.isIdempotent());
+		assertFalse(Operation.WRITE.isIdempotent());
+	}
+
+	/**
+	 * Responses not arriving within the read timeout of the operation fail the request
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void readTimeout() throws IOException {
+		GitHubClientEgit client = start(true);
+		this.server.handle("/api/v3/slow", exchange -> {
+			try {
+				Thread.sleep(2000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange, 200, "{}");
+		});
+		client.setTimeouts(Operation.WRITE, 1000, 200, 0);
+		assertThrows(SocketTimeoutException.class,
+				() -> client.post("/slow", Collections.singletonMap("path", "index.html"), Map.class));
+
+		// The total timeout of a write caps its read timeout
+		client.setTimeouts(Operation.WRITE, 1000, 0, 200);
+		assertThrows(SocketTimeoutException.class,
+				() -> client.post("/slow", Collections.singletonMap("path", "index.html"), Map.class));
+	}
+
+	/**
+	 * Request bodies are sent uncompressed to hosts rejecting compressed ones
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void fallback() throws IOException {
+		GitHubClientEgit client = start(false).setCompressRequests(true);
+		Map<?, ?> echo = client.post("/echo", Collections.singletonMap("path", "index.html"), Map.class);
+		assertEquals("index.html", echo.get("path"));
+		assertFalse(client.isCompressingRequests());
+		assertEquals(List.of("/api/v3/markdown gzip", "/api/v3/echo null"), this.encodings);
+	}
+
+	/**
+	 * HTML is sent unescaped, so the body of a text blob stays smaller than the one of the same blob in base64
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void unescapedHtml() throws IOException {
+		GitHubClientEgit client = start(true);
+		List<String> bodies = new CopyOnWriteArrayList<>();
+		this.server.handle("/api/v3/repos/owner/name/git/blobs", exchange -> {
+			bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+			respond(exchange, 201, "{\"sha\":\"" + "b".repeat(40) + "\"}");
+		});
+		String html = "<tr class=\"row\"><td><a href=\"Foo.html#bar()\" title='Bar'>A &amp; B</a></td></tr>\n";
+		DataService service = new DataService(client);
+		RepositoryId repository = RepositoryId.create("owner", "name");
+		service.createBlob(repository, new Blob().setEncoding(Blob.ENCODING_UTF8).setContent(html.repeat(100)));
+		service.createBlob(repository, new Blob().setEncoding(Blob.ENCODING_BASE64)
+				.setContent(Base64.getEncoder().encodeToString(html.repeat(100).getBytes(StandardCharsets.UTF_8))));
+
+		assertTrue(bodies.get(0).contains("<a href=\\\"Foo.html#bar()\\\" title='Bar'>A &amp; B</a>"));
+		assertTrue(bodies.get(0).length() < bodies.get(1).length(), bodies.get(0).length() + " bytes of text");
+	}
+
+	/**
+	 * Requests through an authenticating proxy carry the proxy credentials from the first request on
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void preemptiveProxyAuthorization() throws IOException {
+		List<String> authorizations = new CopyOnWriteArrayList<>();
+		this.server = new StubServer();
+		this.server.handle("/", exchange -> {
+			String authorization = exchange.getRequestHeaders().getFirst("Proxy-Authorization");
+			authorizations.add(exchange.getRequestURI().getHost() + " " + authorization);
+			if (authorization == null) {
+				exchange.getResponseHeaders().set("Proxy-Authenticate", "Basic realm=\"proxy\"");
+				respond(exchange, 407, "{}");
+			} else {
+				respond(exchange, 200, "{\"login\":\"octocat\"}");
+			}
+		});
+		this.server.start();
+		InetSocketAddress address = this.server.getAddress();
+		ProxySelector selector = ProxySelector.of(address);
+		GitHubClientEgit client = new GitHubClientEgit("github.invalid", 80, "http");
+		client.setProxySelector(selector, new PasswordAuthentication("user", "secret".toCharArray()));
+		assertEquals(Proxy.Type.HTTP, client.getProxy().type());
+
+		Map<?, ?> user = (Map<?, ?>) client.get(new GitHubRequest().setUri("/user").setType(Map.class)).getBody();
+		assertEquals("octocat", user.get("login"));
+		assertEquals(List.of("github.invalid Basic dXNlcjpzZWNyZXQ="), authorizations);
+	}
+
+	/**
+	 * HTTPS requests through an authenticating proxy send the proxy credentials with the CONNECT request opening the
+	 * tunnel, as the JDK never answers a Basic challenge of a tunneling proxy
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void tunnelProxyAuthorization() throws IOException {
+		List<String> connects = new CopyOnWriteArrayList<>();
+		try (ServerSocket proxy = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			Thread thread = new Thread(() -> {
+				while (!proxy.isClosed()) {
+					try (Socket socket = proxy.accept()) {
+						String head = TunnelSocketFactory.readHead(socket.getInputStream());
+						String authorization = head.replaceAll("(?s).*\r\nProxy-Authorization: ([^\r]*).*", "$1");
+						connects.add(head.substring(0, head.indexOf('\r')) + " " + authorization);
+						// Tunnel established, but nothing answers the TLS handshake
+						String status = "Basic dXNlcjpzZWNyZXQ=".equals(authorization) ? "200 Connection established"
+								: "407 Proxy Authentication Required\r\nProxy-Authenticate: Basic realm=\"proxy\"";
+						socket.getOutputStream().write(
+								("HTTP/1.1 " + status + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+					} catch (IOException e) {
+						// Closed
+					}
+				}
+			});
+			thread.setDaemon(true);
+			thread.start();
+			ProxySelector selector = ProxySelector.of((InetSocketAddress) proxy.getLocalSocketAddress());
+
+			GitHubClientEgit client = new GitHubClientEgit("github.invalid", 443, "https");
+			client.setProxySelector(selector, new PasswordAuthentication("user", "secret".toCharArray()));
+			GitHubRequest request = new GitHubRequest().setUri("/user").setType(Map.class);
+			assertThrows(SSLException.class, () -> client.get(request));
+			assertFalse(connects.isEmpty());
+			for (String connect : connects) {
+				assertEquals("CONNECT github.invalid:443 HTTP/1.1 Basic dXNlcjpzZWNyZXQ=", connect);
+			}
+
+			client.setProxySelector(selector, new PasswordAuthentication("user", "wrong".toCharArray()));
+			IOException e = assertThrows(IOException.class, () -> client.get(request));
+			assertTrue(e.getMessage().contains("407 Proxy Authentication Required"), e.getMessage());
+		}
+	}
+
+	/**
+	 * Nothing is probed or compressed unless enabled, compressed responses are still read
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void disabled() throws IOException {
+		GitHubClientEgit client = start(true);
+		Map<?, ?> echo = client.post("/echo", Collections.singletonMap("path", "index.html"), Map.class);
+		assertEquals("index.html", echo.get("path"));
+		assertFalse(client.isCompressingRequests());
+		assertEquals(List.of("/api/v3/echo null"), this.encodings);
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.maven.plugins.core.egit.GitHubClientEgit.Operation;
+
+/**
+ * Unit tests of {@link RequestHedger}
+ */
+class RequestHedgerTest {
+
+	private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/**
+	 * The delay is the 95th percentile of the recorded latencies, scaled by the size of the request
+	 */
+	@Test
+	void hedgeDelay() {
+		RequestHedger hedger = new RequestHedger();
+		for (int i = 1; i < RequestHedger.MIN_SAMPLES; i++) {
+			hedger.record(Operation.BLOB, i * MILLIS, 0);
+		}
+		assertEquals(-1, hedger.getHedgeDelay(Operation.BLOB, 0));
+		hedger.record(Operation.BLOB, RequestHedger.MIN_SAMPLES * MILLIS, 0);
+		assertEquals(19 * MILLIS, hedger.getHedgeDelay(Operation.BLOB, 0));
+		assertEquals(38 * MILLIS, hedger.getHedgeDelay(Operation.BLOB, 1 << 20));
+		assertEquals(-1, hedger.getHedgeDelay(Operation.TREE, 0));
+	}
+
+	/**
+	 * A slow request is sent a second time and the first response is used
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void hedge() throws IOException {
+		RequestHedger hedger = new RequestHedger().setEnabled(true);
+		for (int i = 0; i < RequestHedger.MIN_SAMPLES; i++) {
+			hedger.record(Operation.BLOB, 10 * MILLIS, 0);
+		}
+		AtomicInteger calls = new AtomicInteger();
+		String response = hedger.execute(Operation.BLOB, 0, 0, () -> {
+			int call = calls.incrementAndGet();
+			if (call == 1) {
+				sleep(5000);
+			}
+			return "response " + call;
+		});
+		assertEquals("response 2", response);
+		assertEquals(1, hedger.getHedged());
+	}
+
+	/**
+	 * Requests that aren't idempotent or when hedging is disabled are sent once
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void noHedge() throws IOException {
+		RequestHedger hedger = new RequestHedger().setEnabled(true);
+		for (int i = 0; i < RequestHedger.MIN_SAMPLES; i++) {
+			hedger.record(Operation.WRITE, MILLIS, 0);
+		}
+		AtomicInteger calls = new AtomicInteger();
+		hedger.execute(Operation.WRITE, 0, 0, () -> {
+			sleep(50);
+			return calls.incrementAndGet();
+		});
+		assertEquals(1, calls.get());
+		assertEquals(0, hedger.getHedged());
+	}
+
+	/**
+	 * Waiting ends after the total timeout, failures are passed on
+	 */
+	@Test
+	void totalTimeout() {
+		RequestHedger hedger = new RequestHedger();
+		assertThrows(SocketTimeoutException.class, () -> hedger.execute(Operation.READ, 0, 100, () -> {
+			sleep(5000);
+			return "late";
+		}));
+		IOException failure = assertThrows(IOException.class, () -> hedger.execute(Operation.READ, 0, 1000, () -> {
+			throw new IOException("failed");
+		}));
+		assertEquals("failed", failure.getMessage());
+	}
+
+	/**
+	 * Writes aren't abandoned after the total timeout, as they could still be applied later
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void writeNotAbandoned() throws IOException {
+		RequestHedger hedger = new RequestHedger().setEnabled(true);
+		assertEquals("applied", hedger.execute(Operation.WRITE, 0, 50, () -> {
+			sleep(300);
+			return "applied";
+		}));
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.egit.github.core.RequestError;
+import org.eclipse.egit.github.core.client.GsonUtils;
+import org.eclipse.egit.github.core.client.RequestException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link AdaptiveConcurrency}
+ */
+class AdaptiveConcurrencyTest {
+
+	private static final long MILLIS = 1000000;
+
+	/**
+	 * Healthy requests raise the limit by about one per round trip up to the maximum
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	void additiveIncrease() throws InterruptedException {
+		AdaptiveConcurrency concurrency = new AdaptiveConcurrency(1, 3, new SystemStreamLog());
+		concurrency.succeeded(concurrency.acquire(), 10 * MILLIS, 0);
+		assertEquals(2, concurrency.getLimit());
+		concurrency.succeeded(concurrency.acquire(), 10 * MILLIS, 0);
+		concurrency.succeeded(concurrency.acquire(), 10 * MILLIS, 0);
+		assertEquals(2, concurrency.getLimit());
+		concurrency.succeeded(concurrency.acquire(), 10 * MILLIS, 0);
+		assertEquals(3, concurrency.getLimit());
+		for (int i = 0; i < 10; i++) {
+			concurrency.succeeded(concurrency.acquire(), 10 * MILLIS, 0);
+		}
+		assertEquals(3, concurrency.getLimit());
+		assertEquals(3, concurrency.getPeak());
+		assertEquals(0, concurrency.getDecreases());
+		assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrency(2, 1, new SystemStreamLog()));
+	}
+
+	/**
+	 * Throttling halves the limit once for all requests sent at the old limit
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	void multiplicativeDecrease() throws InterruptedException {
+		AdaptiveConcurrency concurrency = new AdaptiveConcurrency(8, 8, new SystemStreamLog());
+		long first = concurrency.acquire();
+		long second = concurrency.acquire();
+		assertTrue(concurrency.release(first, failure(429, "Too many requests")));
+		assertEquals(4, concurrency.getLimit());
+		assertTrue(concurrency.release(second, failure(502, "Bad gateway")));
+		assertEquals(4, concurrency.getLimit());
+		assertTrue(concurrency.release(concurrency.acquire(),
+				failure(403, "You have exceeded a secondary rate limit")));
+		assertEquals(2, concurrency.getLimit());
+		assertFalse(concurrency.release(concurrency.acquire(), failure(404, "Not Found")));
+		assertEquals(2, concurrency.getLimit());
+		assertEquals(2, concurrency.getDecreases());
+	}
+
+	/**
+	 * Latency far above the baseline halves the limit, larger requests may take longer
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	void latencySpike() throws InterruptedException {
+		AdaptiveConcurrency concurrency = new AdaptiveConcurrency(4, 4, new SystemStreamLog());
+		for (int i = 0; i < AdaptiveConcurrency.WARMUP_REQUESTS; i++) {
+			concurrency.succeeded(concurrency.acquire(), 10 * MILLIS, 0);
+		}
+		concurrency.succeeded(concurrency.acquire(), 100 * MILLIS, 20 << 20);
+		assertEquals(4, concurrency.getLimit());
+		concurrency.succeeded(concurrency.acquire(), 100 * MILLIS, 0);
+		assertEquals(2, concurrency.getLimit());
+		assertEquals(1, concurrency.getDecreases());
+	}
+
+	/**
+	 * Requests wait while the limit is reached
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	void waitForSlot() throws InterruptedException {
+		AdaptiveConcurrency concurrency = new AdaptiveConcurrency(1, 1, new SystemStreamLog());
+		long start = concurrency.acquire();
+		CountDownLatch acquired = new CountDownLatch(1);
+		Thread thread = new Thread(() -> {
+			try {
+				concurrency.acquire();
+				acquired.countDown();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		thread.start();
+		assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+		concurrency.release(start, 0);
+		assertTrue(acquired.await(5, TimeUnit.SECONDS));
+		thread.join();
+	}
+
+	/**
+	 * Failures other than throttling are not retried
+	 */
+	@Test
+	void executeFailure() {
+		AdaptiveConcurrency concurrency = new AdaptiveConcurrency(2, 2, new SystemStreamLog());
+		AtomicInteger calls = new AtomicInteger();
+		assertThrows(MojoExecutionException.class, () -> concurrency.execute(0, () -> {
+			calls.incrementAndGet();
+			throw new MojoExecutionException("Error creating blob", failure(422, "Invalid"));
+		}));
+		assertEquals(1, calls.get());
+		assertEquals(2, concurrency.getLimit());
+	}
+
+	/**
+	 * Throttling is recognized through wrapping exceptions
+	 */
+	@Test
+	void throttling() {
+		assertEquals("status 429", AdaptiveConcurrency
+				.getThrottling(new MojoExecutionException("Error creating blob", failure(429, "Slow down"))));
+		assertEquals("secondary rate limit",
+				AdaptiveConcurrency.getThrottling(failure(403, "You have exceeded a secondary rate limit")));
+		assertEquals("timeout", AdaptiveConcurrency.getThrottling(new SocketTimeoutException()));
+		assertNull(AdaptiveConcurrency.getThrottling(failure(403, "API rate limit exceeded")));
+		assertNull(AdaptiveConcurrency.getThrottling(new IllegalStateException()));
+	}
+
+	private static RequestException failure(int status, String message) {
+		return new RequestException(
+				GsonUtils.fromJson("{\"message\":\"" + message + "\"}", RequestError.class), status);
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link BatchSizer}
+ */
+class BatchSizerTest {
+
+	/**
+	 * Batches are limited by entry count
+	 */
+	@Test
+	void limitEntries() {
+		BatchSizer sizer = new BatchSizer(2, Long.MAX_VALUE);
+		long[] sizes = { 1, 1, 1, 1, 1 };
+		assertEquals(2, sizer.next(sizes, 0));
+		assertEquals(4, sizer.next(sizes, 2));
+		assertEquals(5, sizer.next(sizes, 4));
+	}
+
+	/**
+	 * Batches are limited by payload bytes, but an oversized entry still forms its own batch
+	 */
+	@Test
+	void limitBytes() {
+		BatchSizer sizer = new BatchSizer(500, 100);
+		long[] sizes = { 40, 40, 40, 500, 10, 10 };
+		assertEquals(2, sizer.next(sizes, 0));
+		assertEquals(3, sizer.next(sizes, 2));
+		assertEquals(4, sizer.next(sizes, 3));
+		assertEquals(6, sizer.next(sizes, 4));
+	}
+
+	/**
+	 * Shrinking halves both limits down to a minimum of one
+	 */
+	@Test
+	void shrink() {
+		BatchSizer sizer = new BatchSizer(3, 3);
+		sizer.shrink();
+		assertEquals(1, sizer.getMaxEntries());
+		assertEquals(1, sizer.getMaxBytes());
+		sizer.shrink();
+		assertEquals(1, sizer.getMaxEntries());
+		assertEquals(1, sizer.next(new long[] { 5, 5 }, 0));
+	}
+
+	/**
+	 * Test of {@link BatchSizer#encodedSize(long)}
+	 */
+	@Test
+	void encodedSize() {
+		assertEquals(0, BatchSizer.encodedSize(0));
+		assertEquals(4, BatchSizer.encodedSize(1));
+		assertEquals(4, BatchSizer.encodedSize(3));
+		assertEquals(8, BatchSizer.encodedSize(4));
+	}
+
+	/**
+	 * Limits must be positive
+	 */
+	@Test
+	void invalidLimits() {
+		assertThrows(IllegalArgumentException.class, () -> new BatchSizer(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new BatchSizer(1, 0));
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link BlobIndex}
+ */
+class BlobIndexTest {
+
+	private static final String SHA1 = "0123456789abcdef0123456789abcdef01234567";
+
+	private static final String SHA2 = "fedcba9876543210fedcba9876543210fedcba98";
+
+	private static String sha(int value) {
+		return String.format("%040x", Integer.valueOf(value));
+	}
+
+	/**
+	 * Put, replace, remove and add again
+	 */
+	@Test
+	void putAndRemove() {
+		BlobIndex index = new BlobIndex();
+		assertTrue(index.isEmpty());
+		index.put("docs/index.html", SHA1);
+		index.put("docs/intro.html", SHA2);
+		index.put("dóks/ünïcode.html", SHA1);
+		assertEquals(3, index.size());
+		assertEquals(SHA1, index.get("docs/index.html"));
+		assertEquals(SHA2, index.get("docs/intro.html"));
+		assertEquals(SHA1, index.get("dóks/ünïcode.html"));
+		assertNull(index.get("docs/index"));
+		assertFalse(index.contains("docs"));
+
+		index.put("docs/index.html", SHA2);
+		assertEquals(SHA2, index.get("docs/index.html"));
+		index.remove("docs/intro.html");
+		index.remove("docs/intro.html");
+		assertEquals(2, index.size());
+		assertFalse(index.contains("docs/intro.html"));
+		assertEquals(Arrays.asList("docs/index.html", "dóks/ünïcode.html"), toList(index.paths()));
+
+		index.put("docs/intro.html", SHA1);
+		assertEquals(SHA1, index.get("docs/intro.html"));
+		assertEquals(Arrays.asList("docs/index.html", "docs/intro.html", "dóks/ünïcode.html"),
+				toList(index.paths()));
+		assertThrows(IllegalArgumentException.class, () -> index.put("a", "b1"));
+		assertThrows(IllegalArgumentException.class, () -> index.put("a", SHA1.replace('a', 'x')));
+	}
+
+	/**
+	 * Half a million paths of versioned documentation fit in some tens of MB
+	 */
+	@Test
+	void largeTree() {
+		BlobIndex index = new BlobIndex();
+		int count = 0;
+		for (int version = 0; version < 50; version++) {
+			for (int type = 0; type < 10000; type++) {
+				index.put("apidocs/1." + version + "/org/example/package" + type / 100 + "/Type" + type + ".html",
+						sha(count++));
+			}
+		}
+		assertEquals(500000, index.size());
+		assertTrue(index.getMemoryUsage() < 48L * 1024 * 1024, "Index takes " + index.getMemoryUsage() + " bytes");
+		assertEquals(sha(123456), index.get("apidocs/1.12/org/example/package34/Type3456.html"));
+		assertNull(index.get("apidocs/1.50/org/example/package0/Type0.html"));
+
+		int listed = 0;
+		for (String path : index.paths()) {
+			if (listed++ == 499999) {
+				assertEquals("apidocs/1.49/org/example/package99/Type9999.html", path);
+			}
+		}
+		assertEquals(500000, listed);
+	}
+
+	private static List<String> toList(Iterable<String> paths) {
+		List<String> list = new ArrayList<>();
+		paths.forEach(list::add);
+		return list;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link ByteBudget}
+ */
+class ByteBudgetTest {
+
+	/**
+	 * Working sets larger than the budget are reduced to it
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	void clamp() throws InterruptedException {
+		ByteBudget budget = new ByteBudget(100);
+		long taken = budget.acquire(1000);
+		assertEquals(100, taken);
+		assertEquals(100, budget.getUsed());
+		budget.release(taken);
+		assertEquals(0, budget.getUsed());
+		assertThrows(IllegalArgumentException.class, () -> new ByteBudget(0));
+	}
+
+	/**
+	 * Acquiring waits until enough bytes were released
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	void waitForRelease() throws InterruptedException {
+		ByteBudget budget = new ByteBudget(100);
+		long first = budget.acquire(60);
+		CountDownLatch acquired = new CountDownLatch(1);
+		Thread second = new Thread(() -> {
+			try {
+				budget.release(budget.acquire(50));
+				acquired.countDown();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		second.start();
+		assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+		budget.release(first);
+		second.join(5000);
+		assertEquals(0, acquired.getCount());
+		assertEquals(0, budget.getUsed());
+	}
+}
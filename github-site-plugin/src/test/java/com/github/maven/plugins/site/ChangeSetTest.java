@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.eclipse.egit.github.core.TreeEntry;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link ChangeSet}
+ */
+class ChangeSetTest {
+
+	private static final String[] PATHS = { "a.html", "b.html", "c.html" };
+
+	private static final Map<String, String> SHAS = Map.of("a.html", "a2", "b.html", "b2", "c.html", "c2");
+
+	private static RemoteTree createTree(String... entries) {
+		BlobIndex blobs = new BlobIndex();
+		for (int i = 0; i < entries.length; i += 2) {
+			blobs.put(entries[i], entries[i + 1].repeat(20));
+		}
+		return new RemoteTree("c1", "t1", blobs);
+	}
+
+	private static String hash(String path) {
+		return SHAS.get(path).repeat(20);
+	}
+
+	private static String getDeletions(ChangeSet changes) {
+		return changes.getDeletions().stream().map(TreeEntry::getPath).collect(Collectors.joining(","));
+	}
+
+	/**
+	 * Files with the SHA-1 of the branch are skipped and blobs not available locally are deleted
+	 */
+	@Test
+	void compute() throws IOException {
+		RemoteTree remote = createTree("a.html", "a1", "b.html", "b2", "old.html", "d1");
+		ChangeSet changes = ChangeSet.compute(remote, PATHS, "", "", true, ChangeSetTest::hash);
+		assertArrayEquals(new String[] { "a.html", "c.html" }, changes.getPaths());
+		assertEquals("old.html", getDeletions(changes));
+		assertTrue(changes.isCreateNoJekyll());
+	}
+
+	/**
+	 * After a Contents API deployment failed part-way through, the reloaded branch already has the files committed
+	 * before the conflict and only the remaining ones are sent again
+	 */
+	@Test
+	void partiallyApplied() throws IOException {
+		RemoteTree before = createTree("a.html", "a1", "b.html", "b1", "old.html", "d1", "gone.html", "f1");
+		ChangeSet changes = ChangeSet.compute(before, PATHS, "", "", true, ChangeSetTest::hash);
+		assertEquals(3, changes.getPaths().length);
+		assertEquals("gone.html,old.html", getDeletions(changes));
+
+		// a.html and b.html were committed, then c.html conflicted with a concurrent deletion of gone.html
+		RemoteTree after = createTree("a.html", "a2", "b.html", "b2", "old.html", "d1", ".nojekyll", "e1");
+		changes = ChangeSet.compute(after, PATHS, "", "", true, ChangeSetTest::hash);
+		assertArrayEquals(new String[] { "c.html" }, changes.getPaths());
+		assertEquals("old.html", getDeletions(changes));
+		assertFalse(changes.isCreateNoJekyll());
+	}
+
+	/**
+	 * Merging keeps all blobs, deploying incrementally only deletes blobs below the prefix and the .nojekyll file is
+	 * kept
+	 */
+	@Test
+	void removedPrefix() throws IOException {
+		RemoteTree remote = createTree("docs/a.html", "a2", "docs/old.html", "d1", "other.html", "e2", ".nojekyll",
+				"e1");
+		assertEquals("", getDeletions(ChangeSet.compute(remote, PATHS, "docs/", null, true, ChangeSetTest::hash)));
+		ChangeSet changes = ChangeSet.compute(remote, PATHS, "docs/", "docs/", true, ChangeSetTest::hash);
+		assertArrayEquals(new String[] { "b.html", "c.html" }, changes.getPaths());
+		assertEquals("docs/old.html", getDeletions(changes));
+		assertEquals("docs/old.html,other.html", getDeletions(ChangeSet.compute(remote, PATHS, "docs/", "", true,
+				ChangeSetTest::hash)));
+		assertEquals(".nojekyll,docs/old.html,other.html",
+				getDeletions(ChangeSet.compute(remote, PATHS, "docs/", "", false, ChangeSetTest::hash)));
+	}
+}
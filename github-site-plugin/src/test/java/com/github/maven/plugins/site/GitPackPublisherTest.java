@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link GitPackPublisher} pushing to a local bare repository
+ */
+class GitPackPublisherTest {
+
+	private static final String BRANCH = "refs/heads/gh-pages";
+
+	private static final PersonIdent AUTHOR = new PersonIdent("Site", "site@example.com");
+
+	/**
+	 * Create temporary directory to use in a test
+	 *
+	 * @return directory that exists
+	 */
+	static File createDirectory() {
+		String tmpDir = System.getProperty("java.io.tmpdir");
+		assertNotNull(tmpDir);
+		File dir = new File(tmpDir, "test" + System.nanoTime());
+		assertFalse(dir.exists());
+		assertTrue(dir.mkdirs());
+		dir.deleteOnExit();
+		return dir;
+	}
+
+	private static File createRemote() throws IOException {
+		File remote = createDirectory();
+		try (Repository repository = new FileRepositoryBuilder().setGitDir(remote).setBare().build()) {
+			repository.create(true);
+		}
+		return remote;
+	}
+
+	private static File writeFile(File dir, String path, String content) throws IOException {
+		File file = new File(dir, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static GitPackPublisher createPublisher(File remote) {
+		return new GitPackPublisher(createDirectory(), remote.toURI().toString(), null, null, new SystemStreamLog());
+	}
+
+	private static Map<String, String> readTree(File remote, String commit) throws IOException {
+		Map<String, String> files = new HashMap<>();
+		try (Repository repository = new FileRepositoryBuilder().setGitDir(remote).setBare().build();
+				RevWalk walk = new RevWalk(repository);
+				TreeWalk tree = new TreeWalk(repository)) {
+			tree.addTree(walk.parseCommit(ObjectId.fromString(commit)).getTree());
+			tree.setRecursive(true);
+			while (tree.next()) {
+				files.put(tree.getPathString(),
+						new String(repository.open(tree.getObjectId(0)).getBytes(), StandardCharsets.UTF_8));
+			}
+		}
+		return files;
+	}
+
+	private static RevCommit readHead(File remote) throws IOException {
+		try (Repository repository = new FileRepositoryBuilder().setGitDir(remote).setBare().build();
+				RevWalk walk = new RevWalk(repository)) {
+			return walk.parseCommit(repository.resolve(BRANCH));
+		}
+	}
+
+	/**
+	 * Publish to a branch that doesn't exist yet
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void createBranch() throws Exception {
+		File remote = createRemote();
+		File site = createDirectory();
+		writeFile(site, "index.html", "<html/>");
+		writeFile(site, "css/site.css", "body {}");
+
+		String commit = createPublisher(remote).setNoJekyll(true).publish(site,
+				new String[] { "index.html", "css/site.css" }, "docs/", BRANCH, "Site", AUTHOR);
+
+		RevCommit head = readHead(remote);
+		assertEquals(commit, head.name());
+		assertEquals(0, head.getParentCount());
+		assertEquals("Site", head.getFullMessage());
+
+		Map<String, String> files = readTree(remote, commit);
+		assertEquals(3, files.size());
+		assertEquals("<html/>", files.get("docs/index.html"));
+		assertEquals("body {}", files.get("docs/css/site.css"));
+		assertEquals("", files.get(SiteMojo.NO_JEKYLL_FILE));
+	}
+
+	/**
+	 * Publish on top of an existing branch with and without merging the current tree
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void updateBranch() throws Exception {
+		File remote = createRemote();
+		File site = createDirectory();
+		writeFile(site, "index.html", "v1");
+		writeFile(site, "old.html", "old");
+		String first = createPublisher(remote).publish(site, new String[] { "index.html", "old.html" }, "", BRANCH,
+				"First", AUTHOR);
+
+		writeFile(site, "index.html", "v2");
+		String merged = createPublisher(remote).setMerge(true).publish(site, new String[] { "index.html" }, "",
+				BRANCH, "Second", AUTHOR);
+		assertEquals(first, readHead(remote).getParent(0).name());
+		Map<String, String> files = readTree(remote, merged);
+		assertEquals("v2", files.get("index.html"));
+		assertEquals("old", files.get("old.html"));
+
+		String replaced = createPublisher(remote).publish(site, new String[] { "index.html" }, "", BRANCH, "Third",
+				AUTHOR);
+		assertEquals(merged, readHead(remote).getParent(0).name());
+		files = readTree(remote, replaced);
+		assertEquals(1, files.size());
+		assertNull(files.get("old.html"));
+	}
+
+	/**
+	 * Publish incrementally, dropping removed files below the prefix and keeping everything else
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void incremental() throws Exception {
+		File remote = createRemote();
+		File site = createDirectory();
+		writeFile(site, "index.html", "v1");
+		writeFile(site, "old.html", "old");
+		createPublisher(remote).publish(site, new String[] { "index.html", "old.html" }, "docs/", BRANCH, "First",
+				AUTHOR);
+		createPublisher(remote).setMerge(true).publish(site, new String[] { "index.html" }, "", BRANCH, "Other",
+				AUTHOR);
+
+		writeFile(site, "index.html", "v2");
+		String commit = createPublisher(remote).setIncremental(true).setNoJekyll(true).publish(site,
+				new String[] { "index.html" }, "docs/", BRANCH, "Second", AUTHOR);
+		Map<String, String> files = readTree(remote, commit);
+		assertEquals(3, files.size());
+		assertEquals("v2", files.get("docs/index.html"));
+		assertEquals("v1", files.get("index.html"));
+		assertEquals("", files.get(SiteMojo.NO_JEKYLL_FILE));
+		assertNull(files.get("docs/old.html"));
+	}
+
+	/**
+	 * Dry run builds the commit without updating the branch
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void dryRun() throws Exception {
+		File remote = createRemote();
+		File site = createDirectory();
+		writeFile(site, "index.html", "dry");
+		assertNotNull(createPublisher(remote).setDryRun(true).publish(site, new String[] { "index.html" }, "",
+				BRANCH, "Dry", AUTHOR));
+		try (Repository repository = new FileRepositoryBuilder().setGitDir(remote).setBare().build()) {
+			assertNull(repository.resolve(BRANCH));
+		}
+	}
+
+	/**
+	 * A kept local repository picks up commits pushed by others in the meantime
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void reuseGitDirectory() throws Exception {
+		File remote = createRemote();
+		File site = createDirectory();
+		File gitDirectory = createDirectory();
+		writeFile(site, "a.html", "a");
+		writeFile(site, "b.html", "b");
+		new GitPackPublisher(gitDirectory, remote.toURI().toString(), null, null, new SystemStreamLog())
+				.publish(site, new String[] { "a.html" }, "", BRANCH, "A", AUTHOR);
+		String other = createPublisher(remote).setMerge(true).publish(site, new String[] { "b.html" }, "", BRANCH,
+				"B", AUTHOR);
+
+		writeFile(site, "a.html", "a2");
+		String commit = new GitPackPublisher(gitDirectory, remote.toURI().toString(), null, null,
+				new SystemStreamLog()).setMerge(true).publish(site, new String[] { "a.html" }, "", BRANCH, "C",
+						AUTHOR);
+		assertEquals(other, readHead(remote).getParent(0).name());
+		Map<String, String> files = readTree(remote, commit);
+		assertEquals("a2", files.get("a.html"));
+		assertEquals("b", files.get("b.html"));
+	}
+
+	/**
+	 * A push rejected because the branch moved after the head was fetched is rebuilt on the new head
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void retryRejectedPush() throws Exception {
+		File remote = createRemote();
+		File site = createDirectory();
+		writeFile(site, "a.html", "a");
+		writeFile(site, "b.html", "b");
+		createPublisher(remote).publish(site, new String[] { "a.html" }, "", BRANCH, "A", AUTHOR);
+
+		String[] concurrent = new String[1];
+		GitPackPublisher publisher = new GitPackPublisher(createDirectory(), remote.toURI().toString(), null, null,
+				new SystemStreamLog()) {
+
+			@Override
+			ObjectId fetchHead(Git git, String branch) throws GitAPIException, IOException {
+				ObjectId head = super.fetchHead(git, branch);
+				if (concurrent[0] == null) {
+					// Another deployment moves the branch right after the head was fetched
+					try {
+						concurrent[0] = createPublisher(remote).setMerge(true).publish(site,
+								new String[] { "b.html" }, "", BRANCH, "B", AUTHOR);
+					} catch (MojoExecutionException e) {
+						throw new IOException(e);
+					}
+				}
+				return head;
+			}
+		};
+		assertThrows(MojoExecutionException.class, () -> publisher.setMerge(true).publish(site,
+				new String[] { "a.html" }, "", BRANCH, "C", AUTHOR));
+
+		concurrent[0] = null;
+		writeFile(site, "a.html", "a2");
+		String commit = publisher.setAttempts(3).publish(site, new String[] { "a.html" }, "", BRANCH, "C", AUTHOR);
+		assertEquals(concurrent[0], readHead(remote).getParent(0).name());
+		Map<String, String> files = readTree(remote, commit);
+		assertEquals("a2", files.get("a.html"));
+		assertEquals("b", files.get("b.html"));
+	}
+
+	/**
+	 * Test of {@link GitPackPublisher#getRemoteUrl(String, RepositoryId)}
+	 */
+	@Test
+	void remoteUrl() {
+		RepositoryId repository = RepositoryId.create("owner", "name");
+		assertEquals("https://github.com/owner/name.git",
+				GitPackPublisher.getRemoteUrl("https://api.github.com", repository));
+		assertEquals("https://github.example.com/owner/name.git",
+				GitPackPublisher.getRemoteUrl("https://github.example.com", repository));
+		assertEquals("http://localhost:8080/owner/name.git",
+				GitPackPublisher.getRemoteUrl("http://localhost:8080", repository));
+	}
+
+	/**
+	 * Publishing to a repository that doesn't exist fails with a {@link MojoExecutionException}
+	 */
+	@Test
+	void missingRemote() {
+		File site = createDirectory();
+		File missing = new File(createDirectory(), "missing");
+		assertThrows(MojoExecutionException.class, () -> createPublisher(missing).publish(site, new String[0], "",
+				BRANCH, "Missing", AUTHOR));
+	}
+}
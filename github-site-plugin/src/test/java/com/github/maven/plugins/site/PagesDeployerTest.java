@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static com.github.maven.plugins.core.StubServer.respond;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.egit.github.core.RepositoryId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.maven.plugins.core.StubServer;
+import com.github.maven.plugins.site.PagesDeployer.PagesDeployment;
+
+/**
+ * Unit tests of {@link PagesDeployer} against a local stand-in of the GitHub API
+ */
+class PagesDeployerTest {
+
+	private static final RepositoryId REPOSITORY = RepositoryId.create("owner", "name");
+
+	private static final String DEPLOYMENTS = "/api/v3/repos/owner/name/pages/deployments";
+
+	private final Map<String, byte[]> requests = new ConcurrentHashMap<>();
+
+	private final AtomicInteger polls = new AtomicInteger();
+
+	private StubServer server;
+
+	private PagesDeployer deployer;
+
+	private String baseUrl;
+
+	@BeforeEach
+	void start() throws IOException {
+		this.server = new StubServer();
+		this.server.handle("/upload", exchange -> {
+			this.requests.put("upload " + exchange.getRequestHeaders().getFirst("Content-Type"),
+					exchange.getRequestBody().readAllBytes());
+			respond(exchange, 201, "");
+		});
+		this.server.handle("/token", exchange -> respond(exchange, 200,
+				"{\"value\":\"" + exchange.getRequestHeaders().getFirst("Authorization") + "\"}"));
+		this.server.handle(DEPLOYMENTS, exchange -> {
+			if ("POST".equals(exchange.getRequestMethod())) {
+				this.requests.put("deployment", exchange.getRequestBody().readAllBytes());
+				respond(exchange, 200, "{\"id\":42,\"status_url\":\"" + this.baseUrl + DEPLOYMENTS
+						+ "/42\",\"page_url\":\"https://owner.github.io/name/\"}");
+			} else if (exchange.getRequestURI().getPath().endsWith("/42")) {
+				String status = this.polls.incrementAndGet() < 3 ? "deployment_in_progress" : "succeed";
+				respond(exchange, 200, "{\"status\":\"" + status + "\"}");
+			} else {
+				respond(exchange, 200, "{\"status\":\"deployment_failed\"}");
+			}
+		});
+		this.server.start();
+		this.baseUrl = "http://localhost:" + this.server.getPort();
+		this.deployer = new PagesDeployer(this.server.createClient(), new SystemStreamLog());
+	}
+
+	@AfterEach
+	void stop() {
+		this.server.close();
+	}
+
+
+	/**
+	 * Upload, deploy and wait for the deployment to succeed
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void deploy() throws Exception {
+		File archive = File.createTempFile("site", ".tar.gz");
+		archive.deleteOnExit();
+		byte[] content = new byte[100000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		Files.write(archive.toPath(), content);
+
+		this.deployer.upload(archive, this.baseUrl + "/upload?sig=abc");
+		assertArrayEquals(content, this.requests.get("upload application/gzip"));
+
+		String token = this.deployer.requestOidcToken(this.baseUrl + "/token", "secret");
+		assertEquals("Bearer secret", token);
+
+		PagesDeployment deployment = this.deployer.createDeployment(REPOSITORY, "https://artifact", "abc123", token,
+				"github-pages");
+		assertEquals("42", deployment.getId());
+		assertEquals("https://owner.github.io/name/", deployment.getPageUrl());
+		String body = new String(this.requests.get("deployment"), StandardCharsets.UTF_8);
+		assertTrue(body.contains("\"pages_build_version\":\"abc123\""));
+		assertTrue(body.contains("\"artifact_url\":\"https://artifact\""));
+
+		assertEquals(PagesDeployer.STATUS_SUCCEED, this.deployer.waitForDeployment(REPOSITORY, deployment, 10000, 10));
+		assertEquals(3, this.polls.get());
+	}
+
+	/**
+	 * A failed upload is reported as exception
+	 */
+	@Test
+	void uploadFailure() {
+		assertThrows(IOException.class, () -> {
+			File archive = File.createTempFile("site", ".tar.gz");
+			archive.deleteOnExit();
+			this.deployer.upload(archive, this.baseUrl + "/missing");
+		});
+	}
+
+	/**
+	 * Waiting stops at the timeout and returns the last status seen
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void timeout() throws Exception {
+		PagesDeployment deployment = this.deployer.createDeployment(REPOSITORY, "https://artifact", "abc123",
+				"token", "github-pages");
+		assertEquals("deployment_in_progress", this.deployer.waitForDeployment(REPOSITORY, deployment, 5, 10));
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.net.URISyntaxException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Unit tests of {@link PlanMojo} and its descriptor
+ */
+class PlanMojoTest {
+
+	/**
+	 * The commit message is required by the goals committing, but not by the plan goal inheriting it
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void messageNotRequired() throws Exception {
+		assertEquals("false", getRequired("plan", "message"));
+		assertEquals("false", getRequired("site", "message"));
+		assertThrows(MojoExecutionException.class, () -> new SiteMojo().checkMessage());
+	}
+
+	/**
+	 * Get whether a parameter is required by a goal in the generated plugin descriptor
+	 *
+	 * @param goal
+	 * @param parameter
+	 * @return value of the required element
+	 * @throws Exception
+	 */
+	private static String getRequired(String goal, String parameter) throws Exception {
+		NodeList mojos = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(getDescriptor())
+				.getElementsByTagName("mojo");
+		for (int i = 0; i < mojos.getLength(); i++) {
+			Element mojo = (Element) mojos.item(i);
+			if (!goal.equals(getText(mojo, "goal"))) {
+				continue;
+			}
+			NodeList parameters = mojo.getElementsByTagName("parameter");
+			for (int j = 0; j < parameters.getLength(); j++) {
+				Element element = (Element) parameters.item(j);
+				if (parameter.equals(getText(element, "name"))) {
+					return getText(element, "required");
+				}
+			}
+		}
+		throw new AssertionError("No parameter " + parameter + " of goal " + goal);
+	}
+
+	private static String getText(Element element, String name) {
+		return element.getElementsByTagName(name).item(0).getTextContent();
+	}
+
+	private static File getDescriptor() throws URISyntaxException {
+		File classes = new File(PlanMojo.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		return new File(classes, "META-INF/maven/plugin.xml");
+	}
+}
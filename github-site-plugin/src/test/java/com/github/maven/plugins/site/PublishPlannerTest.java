@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.maven.plugins.site.PublishPlanner.Plan;
+import com.github.maven.plugins.site.PublishPlanner.Strategy;
+
+/**
+ * Unit tests of {@link PublishPlanner}
+ */
+class PublishPlannerTest {
+
+	private final PublishPlanner planner = new PublishPlanner(500, 50 << 20).setMaxContentsFiles(2).setGit(true);
+
+	/**
+	 * A single changed file is committed through the Contents API with one request
+	 */
+	@Test
+	void tinyChange() {
+		Plan plan = this.planner.plan(new long[] { 1000 }, 0, false, 1000);
+		assertEquals(Strategy.CONTENTS, plan.getStrategy());
+		assertEquals(1, plan.getRequests());
+	}
+
+	/**
+	 * Change sets larger than the Contents API limit or with large files use the data API
+	 */
+	@Test
+	void mediumChange() {
+		Plan plan = this.planner.plan(new long[] { 1000, 1000 }, 1, false, 1000);
+		assertEquals(Strategy.DATA, plan.getStrategy());
+		assertEquals(2 + PublishPlanner.DATA_BATCH_REQUESTS, plan.getRequests());
+
+		assertEquals(Strategy.DATA, this.planner.plan(new long[] { 2 << 20 }, 0, false, 1000).getStrategy());
+		assertEquals(Strategy.DATA, this.planner.plan(new long[] { 1000 }, 1, true, 1000).getStrategy());
+	}
+
+	/**
+	 * A missing branch is never created through the Contents API, but pushed as a pack as there is nothing to fetch
+	 */
+	@Test
+	void missingBranch() {
+		assertEquals(Strategy.GIT, this.planner.plan(new long[] { 1000 }, 0, false, -1).getStrategy());
+		assertEquals(Strategy.DATA, this.planner.setGit(false).plan(new long[] { 1000 }, 0, false, -1).getStrategy());
+	}
+
+	/**
+	 * Many changed files are pushed as a pack unless fetching a huge branch costs more
+	 */
+	@Test
+	void largeChange() {
+		long[] sizes = new long[1200];
+		List<Plan> plans = this.planner.estimate(sizes, 0, false, 5000);
+		assertEquals(2, plans.size());
+		assertEquals(Strategy.GIT, plans.get(0).getStrategy());
+		assertEquals(PublishPlanner.GIT_REQUESTS + 50, plans.get(0).getRequests());
+		assertEquals(Strategy.DATA, plans.get(1).getStrategy());
+		assertEquals(1200 + 3 * PublishPlanner.DATA_BATCH_REQUESTS, plans.get(1).getRequests());
+
+		assertEquals(Strategy.DATA, this.planner.plan(sizes, 0, false, 200_000).getStrategy());
+		assertEquals(Strategy.DATA, this.planner.setGit(false).plan(sizes, 0, false, 5000).getStrategy());
+	}
+
+	/**
+	 * Bytes sent weigh in besides the requests
+	 */
+	@Test
+	void largeFiles() {
+		Plan plan = this.planner.plan(new long[] { 300 << 20 }, 0, false, 1000);
+		assertEquals(Strategy.GIT, plan.getStrategy());
+		assertEquals(300 << 20, plan.getBytes());
+	}
+}
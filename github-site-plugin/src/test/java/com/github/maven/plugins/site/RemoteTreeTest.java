@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static com.github.maven.plugins.core.StubServer.respond;
+import static org.eclipse.egit.github.core.TreeEntry.MODE_BLOB;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.egit.github.core.Tree;
+import org.eclipse.egit.github.core.TreeEntry;
+import org.eclipse.egit.github.core.service.DataService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.maven.plugins.core.StubServer;
+import com.github.maven.plugins.core.egit.GitHubClientEgit;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Unit tests of {@link RemoteTree} against a local stand-in of the GitHub API
+ */
+class RemoteTreeTest {
+
+	private static final RepositoryId REPOSITORY = RepositoryId.create("owner", "name");
+
+	private static final String GIT = "/api/v3/repos/owner/name/git";
+
+	private static final String B1 = "b1b1b1b1b1b1b1b1b1b1b1b1b1b1b1b1b1b1b1b1";
+
+	private static final String B2 = "b2b2b2b2b2b2b2b2b2b2b2b2b2b2b2b2b2b2b2b2";
+
+	private static final String B3 = "b3b3b3b3b3b3b3b3b3b3b3b3b3b3b3b3b3b3b3b3";
+
+	private final Map<String, String> requests = new ConcurrentHashMap<>();
+
+	private final List<String> created = new CopyOnWriteArrayList<>();
+
+	private StubServer server;
+
+	private DataService service;
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+	@BeforeEach
+	void start() throws IOException {
+		this.server = new StubServer();
+		this.server.handle(GIT + "/refs/heads/missing", exchange -> respond(exchange, 404, "{}"));
+		this.server.handle(GIT + "/refs/heads/gh-pages", exchange -> respond(exchange, 200,
+				"{\"ref\":\"refs/heads/gh-pages\",\"object\":{\"type\":\"commit\",\"sha\":\"c1\"}}"));
+		this.server.handle(GIT + "/refs/heads/large", exchange -> respond(exchange, 200,
+				"{\"ref\":\"refs/heads/large\",\"object\":{\"type\":\"commit\",\"sha\":\"c2\"}}"));
+		this.server.handle(GIT + "/commits/c2",
+				exchange -> respond(exchange, 200, "{\"sha\":\"c2\",\"tree\":{\"sha\":\"large\"}}"));
+		this.server.handle(GIT + "/commits", exchange -> {
+			if ("POST".equals(exchange.getRequestMethod())) {
+				String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+				String sha = "n" + this.created.size();
+				this.created.add(body);
+				respond(exchange, 201, "{\"sha\":\"" + sha + "\"}");
+				return;
+			}
+			// History h3 -> h2 -> h1 -> h0
+			String path = exchange.getRequestURI().getPath();
+			int number = path.charAt(path.length() - 1) - '0';
+			String parents = number > 0 ? "[{\"sha\":\"h" + (number - 1) + "\"}]" : "[]";
+			respond(exchange, 200, "{\"sha\":\"h" + number + "\",\"message\":\"Deploy " + number
+					+ "\",\"tree\":{\"sha\":\"t" + number + "\"},\"parents\":" + parents + "}");
+		});
+		this.server.handle(GIT + "/commits/c1",
+				exchange -> respond(exchange, 200, "{\"sha\":\"c1\",\"tree\":{\"sha\":\"t1\"}}"));
+		this.server.handle(GIT + "/trees", exchange -> {
+			if ("POST".equals(exchange.getRequestMethod())) {
+				this.requests.put("tree", new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+				respond(exchange, 201, "{\"sha\":\"t2\"}");
+			} else if (!exchange.getRequestURI().getPath().endsWith("/t1")) {
+				respondLarge(exchange);
+			} else {
+				this.requests.put("query", exchange.getRequestURI().getQuery());
+				respond(exchange, 200, "{\"sha\":\"t1\",\"tree\":[" //
+						+ "{\"path\":\"docs\",\"type\":\"tree\",\"sha\":\"d1\"}," //
+						+ "{\"path\":\"docs/index.html\",\"type\":\"blob\",\"sha\":\"" + B1 + "\"}," //
+						+ "{\"path\":\"docs/old.html\",\"type\":\"blob\",\"sha\":\"" + B2 + "\"}," //
+						+ "{\"path\":\"other.html\",\"type\":\"blob\",\"sha\":\"" + B3 + "\"}]}");
+			}
+		});
+		this.server.handle(GIT + "/blobs", exchange -> {
+			this.requests.put("blob", exchange.getRequestMethod());
+			if ("POST".equals(exchange.getRequestMethod())) {
+				byte[] body = exchange.getRequestBody().readAllBytes();
+				this.requests.put("content", new String(body, StandardCharsets.UTF_8));
+				respond(exchange, 201, "{\"sha\":\"" + B3 + "\"}");
+				return;
+			}
+			exchange.sendResponseHeaders(exchange.getRequestURI().getPath().endsWith(B1) ? 200 : 404, -1);
+			exchange.close();
+		});
+		this.server.handle("/api/v3/repos/owner/name/contents", exchange -> {
+			this.requests.put(exchange.getRequestMethod(), exchange.getRequestURI().getRawPath() + " "
+					+ new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+			respond(exchange, 200, "{\"commit\":{\"sha\":\"n0\"}}");
+		});
+		this.server.start();
+		this.service = new DataService(this.server.createClient());
+	}
+
+	@AfterEach
+	void stop() {
+		this.server.close();
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Respond to tree requests of the large branch: the root and subtree b are truncated when listed recursively
+	 *
+	 * @param exchange
+	 * @throws IOException
+	 */
+	private static void respondLarge(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		String tree = path.substring(path.lastIndexOf('/') + 1);
+		boolean recursive = "recursive=1".equals(exchange.getRequestURI().getQuery());
+		String entries;
+		if ("large".equals(tree)) {
+			entries = recursive ? blob("index.html", B1) : blob("index.html", B1) + "," + subtree("a", "ta") + ","
+					+ subtree("b", "tb");
+		} else if ("ta".equals(tree)) {
+			entries = subtree("deep", "td") + "," + blob("deep/y.html", B2) + "," + blob("x.html", B1);
+		} else if ("tb".equals(tree)) {
+			entries = recursive ? "" : blob("z.html", B2) + "," + subtree("c", "tc");
+		} else {
+			entries = blob("w.html", B3);
+		}
+		boolean truncated = recursive && ("large".equals(tree) || "tb".equals(tree));
+		respond(exchange, 200, "{\"sha\":\"" + tree + "\",\"tree\":[" + entries + "],\"truncated\":" + truncated + "}");
+	}
+
+	private static String blob(String path, String sha) {
+		return "{\"path\":\"" + path + "\",\"mode\":\"100644\",\"type\":\"blob\",\"sha\":\"" + sha + "\",\"size\":1}";
+	}
+
+	private static String subtree(String path, String sha) {
+		return "{\"path\":\"" + path + "\",\"mode\":\"040000\",\"type\":\"tree\",\"sha\":\"" + sha + "\"}";
+	}
+
+
+	/**
+	 * Load the blobs of the head commit and find the removed ones below a prefix
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void load() throws IOException {
+		RemoteTree remote = RemoteTree.load(this.service, REPOSITORY, "refs/heads/gh-pages", this.executor);
+		assertEquals("c1", remote.getCommit());
+		assertEquals("t1", remote.getTree());
+		assertEquals(3, remote.getBlobs().size());
+		assertEquals(B1, remote.getBlobs().get("docs/index.html"));
+		assertEquals("recursive=1", this.requests.get("query"));
+
+		assertEquals(Arrays.asList("docs/old.html"),
+				remote.getRemoved("docs/", new HashSet<>(Arrays.asList("docs/index.html"))));
+		assertEquals(Arrays.asList("docs/index.html", "docs/old.html", "other.html"),
+				remote.getRemoved("", new HashSet<>()));
+	}
+
+	/**
+	 * Trees whose recursive listing is truncated are read level by level, subtrees in parallel
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void loadTruncated() throws IOException {
+		RemoteTree remote = RemoteTree.load(this.service, REPOSITORY, "refs/heads/large", this.executor);
+		assertEquals("large", remote.getTree());
+		assertEquals(Arrays.asList("a/deep/y.html", "a/x.html", "b/c/w.html", "b/z.html", "index.html"),
+				remote.getRemoved("", new HashSet<>()));
+		assertEquals(B3, remote.getBlobs().get("b/c/w.html"));
+	}
+
+	/**
+	 * The latest commits are recreated on a new root commit only if the history is longer
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void retainHistory() throws IOException {
+		assertEquals("h3", RemoteTree.retainHistory(this.service, REPOSITORY, "h3", 4));
+		assertTrue(this.created.isEmpty());
+
+		assertEquals("n1", RemoteTree.retainHistory(this.service, REPOSITORY, "h3", 2));
+		assertEquals(2, this.created.size());
+		assertTrue(this.created.get(0).contains("\"tree\":\"t2\""));
+		assertTrue(this.created.get(0).contains("\"message\":\"Deploy 2\""));
+		assertFalse(this.created.get(0).contains("parents"));
+		assertTrue(this.created.get(1).contains("\"tree\":\"t3\""));
+		assertTrue(this.created.get(1).contains("\"parents\":[\"n0\"]"));
+	}
+
+	/**
+	 * A missing branch loads as empty tree
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void loadMissing() throws IOException {
+		RemoteTree remote = RemoteTree.load(this.service, REPOSITORY, "refs/heads/missing", this.executor);
+		assertNull(remote.getCommit());
+		assertNull(remote.getTree());
+		assertTrue(remote.getBlobs().isEmpty());
+	}
+
+	/**
+	 * Entries without SHA-1 are sent with an explicit null SHA-1
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void createTreeWithDeletion() throws IOException {
+		TreeEntry changed = new TreeEntry().setPath("docs/index.html").setMode(MODE_BLOB).setType(TYPE_BLOB)
+				.setSha("b4");
+		TreeEntry deleted = new TreeEntry().setPath("docs/old.html").setMode(MODE_BLOB).setType(TYPE_BLOB);
+		List<TreeEntry> entries = Arrays.asList(changed, deleted);
+
+		Tree tree = RemoteTree.createTree(this.service, REPOSITORY, entries, "t1");
+		assertEquals("t2", tree.getSha());
+		assertEquals("{\"tree\":[" //
+				+ "{\"path\":\"docs/index.html\",\"mode\":\"100644\",\"type\":\"blob\",\"sha\":\"b4\"}," //
+				+ "{\"path\":\"docs/old.html\",\"mode\":\"100644\",\"type\":\"blob\",\"sha\":null}]," //
+				+ "\"base_tree\":\"t1\"}", this.requests.get("tree"));
+	}
+
+	/**
+	 * Files are committed and deleted through the Contents API with escaped paths and the SHA-1 of the current blob
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void putContents() throws IOException {
+		RemoteTree.putContents(this.service, REPOSITORY, "gh-pages", "docs/new page.html",
+				"hi!".getBytes(StandardCharsets.UTF_8), null, "Deploy");
+		assertEquals("/api/v3/repos/owner/name/contents/docs/new%20page.html "
+				+ "{\"message\":\"Deploy\",\"branch\":\"gh-pages\",\"content\":\"aGkh\"}", this.requests.get("PUT"));
+
+		RemoteTree.putContents(this.service, REPOSITORY, "gh-pages", "docs/old.html", null, B2, "Deploy");
+		assertEquals("/api/v3/repos/owner/name/contents/docs/old.html "
+				+ "{\"message\":\"Deploy\",\"branch\":\"gh-pages\",\"sha\":\"" + B2 + "\"}",
+				this.requests.get("DELETE"));
+	}
+
+	/**
+	 * Blobs are probed for with HEAD requests
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void hasBlob() throws IOException {
+		GitHubClientEgit client = (GitHubClientEgit) this.service.getClient();
+		assertTrue(RemoteTree.hasBlob(client, REPOSITORY, B1));
+		assertEquals("HEAD", this.requests.get("blob"));
+		assertFalse(RemoteTree.hasBlob(client, REPOSITORY, B2));
+	}
+
+	/**
+	 * Streamed blobs are sent as base64 encoded JSON
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void createBlob() throws IOException {
+		GitHubClientEgit client = (GitHubClientEgit) this.service.getClient();
+		byte[] content = new byte[100000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		assertEquals(B3, RemoteTree.createBlob(client, REPOSITORY, new ByteArrayInputStream(content), content.length));
+		assertEquals("POST", this.requests.get("blob"));
+		String encoded = Base64.getEncoder().encodeToString(content);
+		assertEquals("{\"encoding\":\"base64\",\"content\":\"" + encoded + "\"}", this.requests.get("content"));
+		assertThrows(IOException.class,
+				() -> RemoteTree.createBlob(client, REPOSITORY, new ByteArrayInputStream(content), content.length + 1));
+	}
+}
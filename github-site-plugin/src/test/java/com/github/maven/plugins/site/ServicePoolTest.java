@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.service.DataService;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link ServicePool}
+ */
+class ServicePoolTest {
+
+	private static DataService createService(int remaining) {
+		return new DataService(new GitHubClient() {
+
+			@Override
+			public int getRemainingRequests() {
+				return remaining;
+			}
+		});
+	}
+
+	/**
+	 * Requests go to the service with the largest budget left, counting the requests in flight
+	 */
+	@Test
+	void remainingBudget() {
+		DataService low = createService(10);
+		DataService high = createService(12);
+		ServicePool pool = new ServicePool(Arrays.asList(low, high));
+		assertSame(low, pool.getPrimary());
+		assertEquals(2, pool.size());
+
+		assertEquals(1, pool.acquire());
+		assertEquals(1, pool.acquire());
+		// Both have 10 left now, the first one wins ties
+		assertEquals(0, pool.acquire());
+		pool.release(0);
+		pool.release(1);
+		assertEquals(1, pool.acquire());
+	}
+
+	/**
+	 * Services that didn't report a budget yet are tried first
+	 */
+	@Test
+	void unknownBudget() throws Exception {
+		DataService known = createService(4000);
+		DataService unknown = createService(-1);
+		ServicePool pool = new ServicePool(Arrays.asList(known, unknown));
+		assertSame(unknown, pool.execute(service -> service));
+		assertEquals(1, pool.acquire());
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.maven.plugins.core.BlobUtils;
+
+/**
+ * Unit tests of {@link SiteArchive}
+ */
+class SiteArchiveTest {
+
+	@TempDir
+	Path directory;
+
+	private Path file;
+
+	@BeforeEach
+	void createArchive() throws IOException {
+		this.file = this.directory.resolve("app-1.0-site.jar");
+		try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(this.file))) {
+			zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+			zip.write("Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+			zip.putNextEntry(new ZipEntry("css/"));
+			zip.putNextEntry(new ZipEntry("css/site.css"));
+			zip.write("body {}\n".getBytes(StandardCharsets.UTF_8));
+			zip.putNextEntry(new ZipEntry("index.html"));
+			zip.write("hello\n".getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+		}
+	}
+
+	/**
+	 * Includes and excludes apply to the names of the files in the archive, the manifest is always excluded
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void matchingPaths() throws IOException {
+		try (SiteArchive archive = new SiteArchive(this.file.toFile())) {
+			assertArrayEquals(new String[] { "css/site.css", "index.html" }, archive.getMatchingPaths(null, null));
+			assertArrayEquals(new String[] { "css/site.css" },
+					archive.getMatchingPaths(null, new String[] { "index.html" }));
+			assertArrayEquals(new String[0], archive.getMatchingPaths(new String[] { "META-INF/**" }, null));
+			assertArrayEquals(new String[] { "css/site.css" },
+					archive.getMatchingPaths(new String[] { "**/*.css" }, null));
+		}
+	}
+
+	/**
+	 * Entries are read and hashed without extracting them
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void read() throws IOException {
+		try (SiteArchive archive = new SiteArchive(this.file.toFile())) {
+			assertEquals(6, archive.getSize("index.html"));
+			try (InputStream stream = archive.open("index.html")) {
+				assertEquals("ce013625030ba8dba906f756967f9e9ca394464a",
+						BlobUtils.sha1(stream, archive.getSize("index.html")));
+			}
+			try (InputStream stream = archive.open("css/site.css"); OutputStream output = OutputStream.nullOutputStream()) {
+				assertEquals(8, stream.transferTo(output));
+			}
+			assertThrows(FileNotFoundException.class, () -> archive.open("css"));
+			assertThrows(FileNotFoundException.class, () -> archive.getSize("missing.html"));
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.maven.plugins.core.BlobUtils;
+
+/**
+ * Unit tests of {@link SitePlan}
+ */
+class SitePlanTest {
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * Trees are hashed like git does, ordering a file named like a directory with a dash before it
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void create() throws IOException {
+		SitePlan plan = createPlan();
+		assertArrayEquals(new String[] { "a-b.html", "a/b.html", "a/c/d.html", "index.html" }, plan.getPaths());
+		assertEquals(2, plan.getSize(0));
+		assertEquals(this.directory.resolve("a-b.html").toFile().lastModified(), plan.getModified(0));
+		assertEquals("63d8dbd40c23542e740659a7168a0ce3138ea748", plan.getSha(1));
+		assertEquals("639c5ae1eb5e9f9c51e91065b74afa86305a7822", plan.getTree(""));
+		assertEquals("8a768130992fdf3edd24131521844d1b76a37fc9", plan.getTree("a"));
+		assertEquals("c21d8922c6cd845ce619d0608e6a5d88d24f6302", plan.getTree("a/c"));
+		assertNull(plan.getTree("b"));
+		assertEquals(3, plan.getTreeCount());
+	}
+
+	/**
+	 * A written plan reads back the same
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void writeAndRead() throws IOException {
+		SitePlan plan = createPlan();
+		File file = this.directory.resolve("target/github-site.plan").toFile();
+		plan.write(file);
+
+		SitePlan read = SitePlan.read(file);
+		assertArrayEquals(plan.getPaths(), read.getPaths());
+		for (int i = 0; i < plan.size(); i++) {
+			assertEquals(plan.getSize(i), read.getSize(i));
+			assertEquals(plan.getModified(i), read.getModified(i));
+			assertEquals(plan.getSha(i), read.getSha(i));
+		}
+		assertEquals(plan.getTree(""), read.getTree(""));
+		assertEquals(plan.getTree("a/c"), read.getTree("a/c"));
+	}
+
+	/**
+	 * Other files are rejected
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void readInvalid() throws IOException {
+		Path file = this.directory.resolve("index.html");
+		Files.write(file, "index".getBytes(StandardCharsets.UTF_8));
+		assertThrows(IOException.class, () -> SitePlan.read(file.toFile()));
+	}
+
+	private SitePlan createPlan() throws IOException {
+		Map<String, String> files = new HashMap<>();
+		files.put("index.html", "index");
+		files.put("a/b.html", "b");
+		files.put("a-b.html", "ab");
+		files.put("a/c/d.html", "d");
+		Map<String, String> shas = new HashMap<>();
+		for (Map.Entry<String, String> entry : files.entrySet()) {
+			Path file = this.directory.resolve(entry.getKey());
+			Files.createDirectories(file.getParent());
+			Files.write(file, entry.getValue().getBytes(StandardCharsets.UTF_8));
+			shas.put(entry.getKey(), BlobUtils.sha1(file.toFile()));
+		}
+		File baseDir = this.directory.toFile();
+		return SitePlan.create(files.keySet().toArray(new String[0]), shas, path -> new File(baseDir, path).length(),
+				path -> new File(baseDir, path).lastModified());
+	}
+}
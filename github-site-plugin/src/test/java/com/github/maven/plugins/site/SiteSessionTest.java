@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.egit.github.core.service.DataService;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link SiteSession}
+ */
+class SiteSessionTest {
+
+	/**
+	 * Executions of one session share state, executions of other sessions don't
+	 */
+	@Test
+	void sharedPerSession() {
+		Object session = new Object();
+		SiteSession state = SiteSession.get(session);
+		assertSame(state, SiteSession.get(session));
+		assertNotSame(state, SiteSession.get(new Object()));
+		assertSame(state.getExecutor(2), state.getExecutor(8));
+		assertSame(state.getReferenceLock("a"), state.getReferenceLock("a"));
+		assertNotSame(state.getReferenceLock("a"), state.getReferenceLock("b"));
+	}
+
+	/**
+	 * Services are created once per key even when requested concurrently
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	void serviceCreatedOnce() throws Exception {
+		SiteSession state = SiteSession.get(new Object());
+		AtomicInteger created = new AtomicInteger();
+		ExecutorService executor = state.getExecutor(4);
+		List<Future<DataService>> services = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			services.add(executor.submit(() -> state.getService("key", () -> {
+				created.incrementAndGet();
+				return new DataService();
+			})));
+		}
+		for (Future<DataService> service : services) {
+			assertSame(services.get(0).get(), service.get());
+		}
+		assertEquals(1, created.get());
+	}
+}
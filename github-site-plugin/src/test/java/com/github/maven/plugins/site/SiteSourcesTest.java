@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests of {@link SiteSources}
+ */
+class SiteSourcesTest {
+
+	@TempDir
+	Path directory;
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+	private File site;
+
+	private File apidocs;
+
+	@BeforeEach
+	void createSources() throws IOException {
+		this.site = createFiles("site", "index.html", "css/site.css", "site.log");
+		this.apidocs = createFiles("apidocs", "index.html", "pkg/Type.html", "javadoc.log");
+	}
+
+	@AfterEach
+	void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	private File createFiles(String name, String... paths) throws IOException {
+		Path root = this.directory.resolve(name);
+		for (String path : paths) {
+			Path file = root.resolve(path);
+			Files.createDirectories(file.getParent());
+			Files.write(file, path.getBytes(StandardCharsets.UTF_8));
+		}
+		return root.toFile();
+	}
+
+	/**
+	 * Files of all sources are placed below their paths, each source using its own patterns or else the goal's
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void merge() throws IOException {
+		SiteSources sources = SiteSources.scan(
+				new SiteSource[] { new SiteSource(this.site, null, null, null),
+						new SiteSource(this.apidocs, "/api\\v1", null, new String[] { "**/*.log", "pkg/**" }) },
+				null, new String[] { "**/*.log" }, this.executor);
+		String[] paths = sources.getPaths();
+		Arrays.sort(paths);
+		assertArrayEquals(new String[] { "api/v1/index.html", "css/site.css", "index.html" }, paths);
+		assertEquals(new File(this.apidocs, "index.html"), sources.getFile("api/v1/index.html"));
+		assertEquals(new File(this.site, "css" + File.separator + "site.css"), sources.getFile("css/site.css"));
+	}
+
+	/**
+	 * Paths not scanned are resolved below the source with the longest matching path
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	void resolve() throws IOException {
+		SiteSources sources = SiteSources.scan(new SiteSource[] { new SiteSource(this.site, "docs", null, null),
+				new SiteSource(this.apidocs, "docs/api", null, null) }, null, null, this.executor);
+		assertEquals(new File(this.apidocs, "pkg/Other.html"), sources.getFile("docs/api/pkg/Other.html"));
+		assertEquals(new File(this.site, "new.html"), sources.getFile("docs/new.html"));
+		assertThrows(FileNotFoundException.class, () -> sources.getFile("other/index.html"));
+	}
+
+	/**
+	 * Two sources must not deploy a file to the same path and all directories must exist
+	 */
+	@Test
+	void invalid() {
+		SiteSource[] overlapping = { new SiteSource(this.site, null, new String[] { "*.html" }, null),
+				new SiteSource(this.apidocs, "", new String[] { "*.html" }, null) };
+		assertThrows(IllegalArgumentException.class, () -> SiteSources.scan(overlapping, null, null, this.executor));
+		SiteSource[] missing = { new SiteSource(new File(this.site, "missing"), null, null, null) };
+		assertThrows(FileNotFoundException.class, () -> SiteSources.scan(missing, null, null, this.executor));
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link SiteTarget}
+ */
+class SiteTargetTest {
+
+	private static final SiteTarget DEFAULTS = new SiteTarget("owner", "name", null, "github", null, null, null,
+			"refs/heads/gh-pages", "docs");
+
+	/**
+	 * Values not set are taken from the defaults
+	 */
+	@Test
+	void defaults() {
+		SiteTarget target = new SiteTarget(null, "mirror", "github.example.com", null, null, null, null,
+				"refs/heads/archive", null).withDefaults(DEFAULTS);
+		assertEquals("owner", target.getRepositoryOwner());
+		assertEquals("mirror", target.getRepositoryName());
+		assertEquals("github.example.com", target.getHost());
+		assertEquals("github", target.getServer());
+		assertEquals("refs/heads/archive", target.getBranch());
+		assertEquals("docs/", target.getPrefix());
+	}
+
+	/**
+	 * Credentials are only inherited as a whole
+	 */
+	@Test
+	void credentials() {
+		SiteTarget target = new SiteTarget(null, null, null, null, null, null, "token", null, null)
+				.withDefaults(DEFAULTS);
+		assertEquals("token", target.getOAuth2Token());
+		assertNull(target.getServer());
+	}
+
+	/**
+	 * Test of {@link SiteTarget#getPrefix()}
+	 */
+	@Test
+	void prefix() {
+		assertEquals("", new SiteTarget().getPrefix());
+		assertEquals("a/b/", new SiteTarget(null, null, null, null, null, null, null, null, "a/b").getPrefix());
+		assertEquals("a/", new SiteTarget(null, null, null, null, null, null, null, null, "a/").getPrefix());
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2011 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.maven.plugins.core.egit.GitHubClientEgit.Operation;
+
+/**
+ * Unit tests of {@link SiteTimeout}
+ */
+class SiteTimeoutTest {
+
+	/**
+	 * Configured values override the defaults of their operation only
+	 */
+	@Test
+	void configured() {
+		SiteTimeout[] timeouts = { new SiteTimeout("blob", null, 10000, 60000), new SiteTimeout(" READ ", 5000, null,
+				null) };
+		assertArrayEquals(new int[] { 30000, 10000, 60000 }, SiteTimeout.get(timeouts, Operation.BLOB));
+		assertArrayEquals(new int[] { 5000, 60000, 0 }, SiteTimeout.get(timeouts, Operation.READ));
+		assertArrayEquals(new int[] { 30000, 300000, 0 }, SiteTimeout.get(timeouts, Operation.TREE));
+		assertArrayEquals(new int[] { 30000, 60000, 0 }, SiteTimeout.get(null, Operation.WRITE));
+	}
+
+	/**
+	 * Unknown operations and negative values are rejected
+	 */
+	@Test
+	void invalid() {
+		assertThrows(IllegalArgumentException.class,
+				() -> SiteTimeout.get(new SiteTimeout[] { new SiteTimeout("upload", 1, 1, 1) }, Operation.BLOB));
+		assertThrows(IllegalArgumentException.class,
+				() -> SiteTimeout.get(new SiteTimeout[] { new SiteTimeout("tree", -1, null, null) }, Operation.TREE));
+	}
+}